@@ -0,0 +1,53 @@
+package dev.getelements.elements.crossfire.api;
+
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Assigns one or more {@link MatchmakingRequest}s to a match as the result of
+ * {@link BatchMatchmakingAlgorithm#match}.
+ *
+ * @param matchId the id of an existing match, or null to create a new match
+ * @param requests the requests to add to the match
+ * @param <RequestT> the request type
+ */
+@ElementPublic
+public record BatchAssignment<RequestT extends HandshakeRequest>(
+        String matchId,
+        List<MatchmakingRequest<RequestT>> requests) {
+
+    public BatchAssignment {
+        requests = List.copyOf(requireNonNull(requests, "requests"));
+    }
+
+    /**
+     * Assigns the requests to an existing match.
+     *
+     * @param matchId the match id
+     * @param requests the requests
+     * @return the assignment
+     * @param <RequestT> the request type
+     */
+    public static <RequestT extends HandshakeRequest> BatchAssignment<RequestT> toExistingMatch(
+            final String matchId,
+            final List<MatchmakingRequest<RequestT>> requests) {
+        return new BatchAssignment<>(requireNonNull(matchId, "matchId"), requests);
+    }
+
+    /**
+     * Assigns the requests to a new match.
+     *
+     * @param requests the requests
+     * @return the assignment
+     * @param <RequestT> the request type
+     */
+    public static <RequestT extends HandshakeRequest> BatchAssignment<RequestT> toNewMatch(
+            final List<MatchmakingRequest<RequestT>> requests) {
+        return new BatchAssignment<>(null, requests);
+    }
+
+}
@@ -0,0 +1,46 @@
+package dev.getelements.elements.crossfire.api;
+
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects pending requests for {@link BatchMatchmakingAlgorithm}s and periodically runs each algorithm over the
+ * requests collected for each configuration. Assignments made during a tick are committed in a single transaction.
+ */
+@ElementPublic
+public interface BatchMatchmaker {
+
+    /**
+     * Enqueues the request for the next tick.
+     *
+     * @param algorithm the algorithm which will match the request
+     * @param request the request
+     * @param onMatched called with the match once the assignment has been committed
+     * @param onError called if the assignment could not be committed
+     * @return a {@link Ticket} which may be used to withdraw the request
+     * @param <RequestT> the request type
+     */
+    <RequestT extends HandshakeRequest> Ticket enqueue(
+            BatchMatchmakingAlgorithm<RequestT, ?> algorithm,
+            MatchmakingRequest<RequestT> request,
+            Consumer<MultiMatch> onMatched,
+            Consumer<Throwable> onError);
+
+    /**
+     * A pending request.
+     */
+    interface Ticket {
+
+        /**
+         * Withdraws the request if it has not yet been assigned.
+         *
+         * @return true if the request was withdrawn, false if it was already assigned or withdrawn
+         */
+        boolean cancel();
+
+    }
+
+}
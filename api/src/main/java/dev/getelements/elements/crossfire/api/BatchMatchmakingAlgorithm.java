@@ -0,0 +1,38 @@
+package dev.getelements.elements.crossfire.api;
+
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+
+import java.util.List;
+
+/**
+ * An optional extension of {@link MatchmakingAlgorithm} which makes matchmaking decisions for many requests at once.
+ * Rather than finding a match for each request as it arrives, the {@link BatchMatchmaker} collects pending requests
+ * for each configuration over a short tick and passes them to {@link #match(MatchmakingApplicationConfiguration, List)}
+ * together. The returned assignments are then written to the database in a single transaction.
+ *
+ * Implementations typically return handles from {@link #initialize(MatchmakingRequest)} which enqueue themselves with
+ * the {@link BatchMatchmaker} when matching starts.
+ *
+ * @param <InitializeRequestT> the initialize request type
+ * @param <ResumeRequestT> the resume request type
+ */
+@ElementPublic
+public interface BatchMatchmakingAlgorithm<InitializeRequestT extends HandshakeRequest, ResumeRequestT extends HandshakeRequest>
+        extends MatchmakingAlgorithm<InitializeRequestT, ResumeRequestT> {
+
+    /**
+     * Assigns the pending requests to matches. This method must not write to the database. Requests which do not appear
+     * in any of the returned assignments remain pending and are passed again on the next tick. Requests are passed
+     * in the order they arrived.
+     *
+     * @param configuration the configuration shared by all the requests
+     * @param pending the pending requests
+     * @return the assignments
+     */
+    List<BatchAssignment<InitializeRequestT>> match(
+            MatchmakingApplicationConfiguration configuration,
+            List<MatchmakingRequest<InitializeRequestT>> pending);
+
+}
@@ -15,6 +15,7 @@ import java.util.stream.Stream;
 import static dev.getelements.elements.crossfire.api.model.ProtocolMessageCategory.*;
 import static dev.getelements.elements.crossfire.api.model.Version.V_1_0;
 import static dev.getelements.elements.crossfire.api.model.Version.V_1_1;
+import static dev.getelements.elements.crossfire.api.model.Version.V_1_2;
 
 /**
  * The type of the protocol message. Each type is associated with a specific category and message class.
@@ -112,6 +113,11 @@ public enum ProtocolMessageType {
      */
     SIGNAL_LEAVE(SIGNALING, LeaveBroadcastSignal.class, V_1_0),
 
+    /**
+     * Specifies the participants, their connection status and the host when a participant connects.
+     */
+    ROSTER(SIGNALING, RosterBroadcastSignal.class, V_1_2),
+
     /**
      * Requests that the client leave the match.
      */
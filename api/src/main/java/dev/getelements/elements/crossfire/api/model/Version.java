@@ -13,7 +13,12 @@ public enum Version {
     /**
      * Protocol version 1.1
      */
-    V_1_1(1, 1);
+    V_1_1(1, 1),
+
+    /**
+     * Protocol version 1.2
+     */
+    V_1_2(1, 2);
 
     private final int major;
 
@@ -73,4 +78,9 @@ public enum Version {
      */
     public static final String VERSION_1_1_NAME = "V_1_1";
 
+    /**
+     * Version 1.2 (String version for DI)
+     */
+    public static final String VERSION_1_2_NAME = "V_1_2";
+
 }
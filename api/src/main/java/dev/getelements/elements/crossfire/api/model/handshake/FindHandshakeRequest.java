@@ -5,6 +5,9 @@ import dev.getelements.elements.crossfire.api.model.Version;
 import dev.getelements.elements.sdk.annotation.ElementPublic;
 import jakarta.validation.constraints.NotNull;
 
+import java.util.List;
+import java.util.Map;
+
 import static dev.getelements.elements.crossfire.api.model.ProtocolMessageType.FIND;
 import static dev.getelements.elements.crossfire.api.model.Version.V_1_0;
 
@@ -27,6 +30,10 @@ public class FindHandshakeRequest implements HandshakeRequest {
     @NotNull
     private String configuration;
 
+    private Map<String, Integer> regionLatencies;
+
+    private List<String> party;
+
     @Override
     public Version getVersion() {
         return version;
@@ -58,6 +65,35 @@ public class FindHandshakeRequest implements HandshakeRequest {
         this.configuration = configuration;
     }
 
+    /**
+     * Gets the client's measured round-trip latencies, in milliseconds, to each region it was able to reach. This is
+     * optional and only used by region-aware matchmaking algorithms.
+     *
+     * @return the latencies keyed by region name, or null
+     */
+    public Map<String, Integer> getRegionLatencies() {
+        return regionLatencies;
+    }
+
+    public void setRegionLatencies(Map<String, Integer> regionLatencies) {
+        this.regionLatencies = regionLatencies;
+    }
+
+    /**
+     * Gets the profile IDs of the other members of this client's party. When present, the server places this client
+     * in the same match as every member, but only once each member has sent their own FIND with the same
+     * configuration listing the rest of the party, this client included.
+     *
+     * @return the profile IDs of the other party members, or null
+     */
+    public List<String> getParty() {
+        return party;
+    }
+
+    public void setParty(List<String> party) {
+        this.party = party;
+    }
+
     @Override
     public String getSessionKey() {
         return sessionKey;
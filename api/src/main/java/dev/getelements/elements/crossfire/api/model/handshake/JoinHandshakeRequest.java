@@ -30,6 +30,8 @@ public class JoinHandshakeRequest implements HandshakeRequest {
     @NotNull
     private String matchId;
 
+    private long lastSequence;
+
     @Override
     public ProtocolMessageType getType() {
         return JOIN;
@@ -61,6 +63,21 @@ public class JoinHandshakeRequest implements HandshakeRequest {
         this.matchId = matchId;
     }
 
+    /**
+     * Gets the highest sequence number the client processed before it was disconnected, or zero if the client has not
+     * processed any signals in the match. Only signals which followed it are replayed.
+     *
+     * @return the last sequence number
+     * @see dev.getelements.elements.crossfire.api.model.signal.SequencedSignal
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
     public String getSessionKey() {
         return sessionKey;
     }
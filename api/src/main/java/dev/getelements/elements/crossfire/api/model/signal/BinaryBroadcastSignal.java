@@ -11,7 +11,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * participants in the match. The lifecycle of the signal determines how it is cached and delivered by the server and
  * can be set by the originator of the signal. On the wire-the binary payload is base64 encoded.
  */
-public class BinaryBroadcastSignal implements BroadcastSignal {
+public class BinaryBroadcastSignal implements BroadcastSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -22,6 +22,8 @@ public class BinaryBroadcastSignal implements BroadcastSignal {
     @NotNull
     private SignalLifecycle lifecycle = ONCE;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return BINARY_BROADCAST;
@@ -53,4 +55,14 @@ public class BinaryBroadcastSignal implements BroadcastSignal {
         this.lifecycle = lifecycle;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
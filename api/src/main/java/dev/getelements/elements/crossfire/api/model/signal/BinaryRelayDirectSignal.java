@@ -10,7 +10,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * recipient in the match. The lifecycle of the signal determines how it is cached and delivered by the server and
  * can be set by the originator of the signal. On the wire-the binary payload is base64 encoded.
  */
-public class BinaryRelayDirectSignal implements DirectSignal {
+public class BinaryRelayDirectSignal implements DirectSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -24,6 +24,8 @@ public class BinaryRelayDirectSignal implements DirectSignal {
     @NotNull
     private SignalLifecycle lifecycle = ONCE;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return ProtocolMessageType.BINARY_RELAY;
@@ -64,4 +66,14 @@ public class BinaryRelayDirectSignal implements DirectSignal {
         this.lifecycle = lifecycle;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
@@ -12,7 +12,7 @@ import static dev.getelements.elements.crossfire.api.model.ProtocolMessageType.C
  * to establish a direct connection. The mid and midIndex help identify the media stream the candidate is associated
  * with in scenarios with multiple media streams.
  */
-public class CandidateDirectSignal implements DirectSignal {
+public class CandidateDirectSignal implements DirectSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -29,6 +29,8 @@ public class CandidateDirectSignal implements DirectSignal {
     @Min(0)
     private int midIndex;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return CANDIDATE;
@@ -80,4 +82,15 @@ public class CandidateDirectSignal implements DirectSignal {
     public void setMidIndex(int midIndex) {
         this.midIndex = midIndex;
     }
+
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
@@ -9,13 +9,16 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
 /**
  * A signal indicating that a participant has connected to the match. This signal is sent by the server to all
  * participants in the match. It is server-only and has a lifecycle of SESSION, meaning it is relevant for the duration
- * of the connected session.
+ * of the connected session. A participant which reconnects before its disconnection was announced is flagged as
+ * resumed, as the other participants never observed it leaving.
  */
 public class ConnectBroadcastSignal implements BroadcastSignal {
 
     @NotNull
     private String profileId;
 
+    private boolean resumed;
+
     @Override
     public ProtocolMessageType getType() {
         return CONNECT;
@@ -30,6 +33,20 @@ public class ConnectBroadcastSignal implements BroadcastSignal {
         this.profileId = profileId;
     }
 
+    /**
+     * Indicates that the participant reconnected within the grace window following a disconnect, or replaced a
+     * connection which was still open. Clients should keep any existing peer connection to the participant.
+     *
+     * @return true if resumed, false if this is a new connection
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public void setResumed(boolean resumed) {
+        this.resumed = resumed;
+    }
+
     @Override
     public SignalLifecycle getLifecycle() {
         return SESSION;
@@ -44,6 +61,7 @@ public class ConnectBroadcastSignal implements BroadcastSignal {
     public String toString() {
         return "ConnectBroadcastSignal{" +
                 "profileId='" + profileId + '\'' +
+                ", resumed=" + resumed +
                 '}';
     }
 
@@ -0,0 +1,100 @@
+package dev.getelements.elements.crossfire.api.model.signal;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageType;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+import static dev.getelements.elements.crossfire.api.model.ProtocolMessageType.ROSTER;
+import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle.ONCE;
+
+/**
+ * A snapshot of the participants in the match, sent by the server as the first signal after a participant connects.
+ * It replaces the replay of every past join, connect and host signal, which older protocol versions receive instead.
+ * The profile id is that of the connecting participant. It is server-only and is never persisted.
+ */
+public class RosterBroadcastSignal implements BroadcastSignal {
+
+    @NotNull
+    private String profileId;
+
+    private String host;
+
+    private List<String> participants = List.of();
+
+    private List<String> connected = List.of();
+
+    @Override
+    public ProtocolMessageType getType() {
+        return ROSTER;
+    }
+
+    @Override
+    public String getProfileId() {
+        return profileId;
+    }
+
+    public void setProfileId(String profileId) {
+        this.profileId = profileId;
+    }
+
+    /**
+     * Gets the profile id of the current host, or null if the match has no host.
+     *
+     * @return the host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Gets the profile ids of every participant which has joined the match, in the order they joined.
+     *
+     * @return the participants
+     */
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    /**
+     * Gets the profile ids of the participants which are currently connected, including the recipient.
+     *
+     * @return the connected participants
+     */
+    public List<String> getConnected() {
+        return connected;
+    }
+
+    public void setConnected(List<String> connected) {
+        this.connected = connected;
+    }
+
+    @Override
+    public SignalLifecycle getLifecycle() {
+        return ONCE;
+    }
+
+    @Override
+    public boolean isServerOnly() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RosterBroadcastSignal{" +
+                "profileId='" + profileId + '\'' +
+                ", host='" + host + '\'' +
+                ", participants=" + participants +
+                ", connected=" + connected +
+                '}';
+    }
+
+}
@@ -13,7 +13,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * SESSION, meaning it is relevant for the duration of the connected session. If a participant drops then it should
  * force a re-offer from the other peer.
  */
-public class SdpAnswerDirectSignal implements DirectSignal {
+public class SdpAnswerDirectSignal implements DirectSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -24,6 +24,8 @@ public class SdpAnswerDirectSignal implements DirectSignal {
     @NotNull
     private String peerSdp;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return SDP_ANSWER;
@@ -60,4 +62,14 @@ public class SdpAnswerDirectSignal implements DirectSignal {
         this.recipientProfileId = recipientProfileId;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
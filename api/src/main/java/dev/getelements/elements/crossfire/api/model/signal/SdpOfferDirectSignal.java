@@ -11,7 +11,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * peer to another during the WebRTC signaling process. The signal includes the profile ID of the sender, the profile ID
  * of the recipient, and the SDP answer itself.
  */
-public class SdpOfferDirectSignal implements DirectSignal {
+public class SdpOfferDirectSignal implements DirectSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -22,6 +22,8 @@ public class SdpOfferDirectSignal implements DirectSignal {
     @NotNull
     private String peerSdp;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return SDP_OFFER;
@@ -58,4 +60,14 @@ public class SdpOfferDirectSignal implements DirectSignal {
         this.peerSdp = peerSdp;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
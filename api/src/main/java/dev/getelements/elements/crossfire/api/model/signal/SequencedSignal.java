@@ -0,0 +1,28 @@
+package dev.getelements.elements.crossfire.api.model.signal;
+
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+
+/**
+ * A signal which the server may persist and replay to a participant which reconnects. Each is stamped by the server
+ * with a sequence number which increases monotonically within the match as it is delivered. A client which rejoins the
+ * match may supply the highest sequence number it has processed, and the server will replay only the signals which
+ * followed it. Any sequence number supplied by the client when sending the signal is ignored.
+ */
+@ElementPublic
+public interface SequencedSignal extends Signal {
+
+    /**
+     * Gets the sequence number assigned by the server, or zero if the signal has not been delivered by a server.
+     *
+     * @return the sequence number
+     */
+    long getSequence();
+
+    /**
+     * Sets the sequence number.
+     *
+     * @param sequence the sequence number
+     */
+    void setSequence(long sequence);
+
+}
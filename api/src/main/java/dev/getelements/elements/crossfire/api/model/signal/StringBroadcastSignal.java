@@ -12,7 +12,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * the signal, and the string payload itself. The originator of the signal can define the lifecycle based on the
  * intended duration of relevance for the signal.
  */
-public class StringBroadcastSignal implements BroadcastSignal {
+public class StringBroadcastSignal implements BroadcastSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -23,6 +23,8 @@ public class StringBroadcastSignal implements BroadcastSignal {
     @NotNull
     private String payload;
 
+    private long sequence;
+
     @Override
     public String getProfileId() {
         return profileId;
@@ -54,4 +56,14 @@ public class StringBroadcastSignal implements BroadcastSignal {
         this.payload = payload;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
@@ -12,7 +12,7 @@ import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycl
  * the lifecycle of the signal, and the string payload itself. The originator of the signal can define the lifecycle
  * based on the intended duration of relevance for the signal.
  */
-public class StringRelayDirectSignal implements DirectSignal {
+public class StringRelayDirectSignal implements DirectSignal, SequencedSignal {
 
     @NotNull
     private String profileId;
@@ -26,6 +26,8 @@ public class StringRelayDirectSignal implements DirectSignal {
     @NotNull
     public String payload;
 
+    private long sequence;
+
     @Override
     public ProtocolMessageType getType() {
         return STRING_RELAY;
@@ -66,4 +68,14 @@ public class StringRelayDirectSignal implements DirectSignal {
         this.payload = payload;
     }
 
+    @Override
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
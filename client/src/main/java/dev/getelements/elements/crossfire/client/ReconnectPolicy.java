@@ -0,0 +1,80 @@
+package dev.getelements.elements.crossfire.client;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Determines whether, and how quickly, a {@link SignalingClient} reconnects after its connection to the server drops.
+ * Delays grow exponentially from the initial delay up to the maximum delay. Each delay is jittered so that many
+ * clients dropped by the same outage do not all reconnect at once.
+ *
+ * @param maxAttempts the maximum number of consecutive attempts before giving up, or zero to never reconnect
+ * @param initialDelay the delay before the first attempt
+ * @param maxDelay the upper bound of the delay between attempts
+ * @param multiplier the factor by which the delay grows with each attempt
+ */
+public record ReconnectPolicy(int maxAttempts, Duration initialDelay, Duration maxDelay, double multiplier) {
+
+    /**
+     * Never reconnects. The client terminates as soon as its connection drops.
+     */
+    public static final ReconnectPolicy DISABLED = new ReconnectPolicy(0, Duration.ZERO, Duration.ZERO, 1.0);
+
+    public ReconnectPolicy {
+
+        requireNonNull(initialDelay, "initialDelay");
+        requireNonNull(maxDelay, "maxDelay");
+
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException("maxAttempts must not be negative: " + maxAttempts);
+        }
+
+        if (initialDelay.isNegative() || maxDelay.compareTo(initialDelay) < 0) {
+            throw new IllegalArgumentException("Invalid delays: " + initialDelay + " to " + maxDelay);
+        }
+
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be at least 1.0: " + multiplier);
+        }
+
+    }
+
+    /**
+     * Returns a policy suited to riding out short outages, such as a server restart. This makes ten attempts starting
+     * at 250 milliseconds and doubling up to ten seconds.
+     *
+     * @return the default policy
+     */
+    public static ReconnectPolicy defaults() {
+        return new ReconnectPolicy(10, Duration.ofMillis(250), Duration.ofSeconds(10), 2.0);
+    }
+
+    /**
+     * Returns true if this policy makes any attempt to reconnect.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return maxAttempts > 0;
+    }
+
+    /**
+     * Gets the delay before the supplied attempt. Half of the delay is fixed and the other half is random, which keeps
+     * the delays growing while still spreading out clients which dropped together.
+     *
+     * @param attempt the attempt, starting from zero
+     * @return the delay
+     */
+    public Duration delay(final int attempt) {
+
+        final var growth = Math.pow(multiplier, Math.min(attempt, 62));
+        final var ceiling = (long) Math.min(maxDelay.toMillis(), initialDelay.toMillis() * growth);
+        final var half = ceiling / 2;
+
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+
+    }
+
+}
@@ -230,6 +230,14 @@ public interface SignalingClient extends AutoCloseable {
          */
         List<String> getProfiles();
 
+        /**
+         * Gets the highest sequence number among the persisted signals received, or zero if none were received. A
+         * client rejoining the match supplies this so that the server replays only what it missed.
+         *
+         * @return the last sequence number
+         */
+        long getLastSequence();
+
         /**
          * Returns true if the current client is the host.
          *
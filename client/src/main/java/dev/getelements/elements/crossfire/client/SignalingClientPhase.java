@@ -25,6 +25,12 @@ public enum SignalingClientPhase {
      */
     SIGNALING,
 
+    /**
+     * Indicates that the connection to the server dropped while signaling and the client is reconnecting to resume the
+     * match. Signals sent in this phase are held until the client has rejoined the match.
+     */
+    RECONNECTING,
+
     /**
      * Indicates that the client is closed and no longer will exchange data
      * with the server.
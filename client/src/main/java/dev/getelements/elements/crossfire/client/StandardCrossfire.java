@@ -95,6 +95,14 @@ public class StandardCrossfire implements Crossfire {
                         final HostBroadcastSignal signal) {
 
         final var signalState = signaling.getState();
+        final var current = state.get();
+
+        // The host is announced again whenever the signaling client rejoins the match. Rebuilding would tear down the
+        // peers which were kept open through the outage, so an unchanged host is left as it is.
+        if (current.defaultMode() != null && Objects.equals(current.host(), signal.getProfileId())) {
+            logger.debug("Host {} unchanged. Keeping existing state.", signal.getProfileId());
+            return;
+        }
 
         final var allModes = getSupportedModes()
                 .stream()
@@ -144,7 +152,7 @@ public class StandardCrossfire implements Crossfire {
 
         do {
             old  = state.get();
-            update = old.host(defaultMode, hosts);
+            update = old.host(signal.getProfileId(), defaultMode, hosts);
         } while (!state.compareAndSet(old, update));
 
         // We always clean up the old state, because if the update failed as we are taking responsibility for the
@@ -190,7 +198,7 @@ public class StandardCrossfire implements Crossfire {
 
         do {
             old  = state.get();
-            update = old.client(defaultMode, clients);
+            update = old.client(signal.getProfileId(), defaultMode, clients);
         } while (!state.compareAndSet(old, update));
 
         // We always clean up the old state, because if the update failed as we are taking responsibility for the
@@ -324,38 +332,39 @@ public class StandardCrossfire implements Crossfire {
     }
 
     record State(boolean open,
+                 String host,
                  Mode defaultMode,
                  Map<Protocol, MatchHost> hosts,
                  Map<Protocol, MatchClient> clients) {
 
         public static State create() {
-            return new State(true, null, Map.of(), Map.of());
+            return new State(true, null, null, Map.of(), Map.of());
         }
 
         public State clear() {
-            return open() ? new State(true, null, Map.of(), Map.of()) : this;
+            return open() ? new State(true, null, null, Map.of(), Map.of()) : this;
         }
 
-        public State host(final Mode mode, final Map<Protocol, MatchHost> hosts) {
+        public State host(final String host, final Mode mode, final Map<Protocol, MatchHost> hosts) {
 
             if (!mode.isHost())
                 throw new IllegalArgumentException(mode + " is not a host mode.");
 
-            return open() ? new State(true, mode, hosts, Map.of()) : this;
+            return open() ? new State(true, host, mode, hosts, Map.of()) : this;
 
         }
 
-        public State client(final Mode mode, final Map<Protocol, MatchClient> clients) {
+        public State client(final String host, final Mode mode, final Map<Protocol, MatchClient> clients) {
 
             if (mode.isHost())
                 throw new IllegalArgumentException(mode + " is not a client mode.");
 
-            return open() ? new State(true, mode, Map.of(), clients) : this;
+            return open() ? new State(true, host, mode, Map.of(), clients) : this;
 
         }
 
         public State terminate() {
-            return open() ? new State(false, null, hosts(), clients()) : this;
+            return open() ? new State(false, null, null, hosts(), clients()) : this;
         }
 
         public Optional<MatchHost> findMatchHost() {
@@ -515,6 +524,19 @@ public class StandardCrossfire implements Crossfire {
             return this;
         }
 
+        /**
+         * Uses a {@link V10SignalingClient} which reconnects according to the supplied policy, keeping the match host
+         * or client, and its peers, open through short signaling outages.
+         *
+         * @param reconnectPolicy the reconnect policy
+         * @return the current Builder instance
+         */
+        public Builder withReconnectPolicy(final ReconnectPolicy reconnectPolicy) {
+            requireNonNull(reconnectPolicy, "Reconnect policy must be specified.");
+            this.signalingClientSupplier = () -> new V10SignalingClient(reconnectPolicy);
+            return this;
+        }
+
         /**
          * Sets the WebRTC match host builder supplier.
          *
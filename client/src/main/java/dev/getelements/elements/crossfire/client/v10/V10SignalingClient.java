@@ -8,11 +8,16 @@ import dev.getelements.elements.crossfire.api.model.error.ProtocolStateException
 import dev.getelements.elements.crossfire.api.model.error.UnexpectedMessageException;
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeResponse;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
+import dev.getelements.elements.crossfire.api.model.signal.ConnectBroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.HostBroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.JoinBroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.LeaveBroadcastSignal;
+import dev.getelements.elements.crossfire.api.model.signal.RosterBroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.Signal;
+import dev.getelements.elements.crossfire.client.ReconnectPolicy;
 import dev.getelements.elements.crossfire.client.SignalingClient;
+import dev.getelements.elements.crossfire.client.SignalingClientException;
 import dev.getelements.elements.crossfire.common.jackson.JacksonEncoder;
 import dev.getelements.elements.crossfire.common.jackson.JacksonProtocolMessageDecoder;
 import dev.getelements.elements.sdk.Subscription;
@@ -23,22 +28,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.Deque;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
-import static dev.getelements.elements.crossfire.client.SignalingClientPhase.HANDSHAKING;
-import static dev.getelements.elements.crossfire.client.SignalingClientPhase.TERMINATED;
+import static dev.getelements.elements.crossfire.client.SignalingClientPhase.*;
 import static dev.getelements.elements.crossfire.client.v10.V10SignalingClientState.create;
 import static jakarta.websocket.CloseReason.CloseCodes.NORMAL_CLOSURE;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
-
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The version 1.0 {@link SignalingClient}. By default, the client terminates as soon as its connection to the server
+ * drops. When constructed with an enabled {@link ReconnectPolicy}, a connection which drops while signaling is instead
+ * re-established, and the client rejoins the same match with a {@link JoinHandshakeRequest} carrying the last sequence
+ * number it received so the server replays only what was missed. Listeners, and any peers built on the client, are
+ * left in place while reconnecting, so established data channels survive short signaling outages.
+ */
 @ClientEndpoint(
         encoders = JacksonEncoder.class,
         decoders = JacksonProtocolMessageDecoder.class
@@ -59,6 +75,36 @@ public class V10SignalingClient implements SignalingClient {
 
     private final AtomicReference<V10SignalingClientState> state = new AtomicReference<>(create());
 
+    private final ReconnectPolicy reconnectPolicy;
+
+    private final Deque<ProtocolMessage> pending = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+
+    private volatile long reconnectStarted;
+
+    private volatile HandshakeRequest handshakeRequest;
+
+    private volatile WebSocketContainer container;
+
+    private volatile URI uri;
+
+    /**
+     * Creates a client which does not reconnect.
+     */
+    public V10SignalingClient() {
+        this(ReconnectPolicy.DISABLED);
+    }
+
+    /**
+     * Creates a client which reconnects according to the supplied policy.
+     *
+     * @param reconnectPolicy the reconnect policy
+     */
+    public V10SignalingClient(final ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = requireNonNull(reconnectPolicy, "reconnectPolicy");
+    }
+
     @Override
     public Version getVersion() {
         return Version.V_1_0;
@@ -81,24 +127,38 @@ public class V10SignalingClient implements SignalingClient {
 
     @Override
     public void signal(final Signal signal) {
+        send(signal);
+    }
+
+    @Override
+    public void control(final ControlMessage control) {
+        send(control);
+    }
+
+    private void send(final ProtocolMessage message) {
 
         final var state = this.state.get();
 
         switch (state.phase()) {
-            case SIGNALING -> state.session().getAsyncRemote().sendObject(signal);
+            case SIGNALING -> state.session().getAsyncRemote().sendObject(message);
+            case RECONNECTING -> {
+                pending.add(message);
+                // The client may have rejoined since the phase was read, in which case nothing else would flush it.
+                flush();
+            }
             default -> throw new IllegalStateException("Unexpected state: " + state.phase());
         }
 
     }
 
-    @Override
-    public void control(final ControlMessage control) {
+    private void flush() {
 
         final var state = this.state.get();
 
-        switch (state.phase()) {
-            case SIGNALING -> state.session().getAsyncRemote().sendObject(control);
-            default -> throw new IllegalStateException("Unexpected state: " + state.phase());
+        if (SIGNALING.equals(state.phase())) {
+            for (var message = pending.poll(); message != null; message = pending.poll()) {
+                state.session().getAsyncRemote().sendObject(message);
+            }
         }
 
     }
@@ -110,14 +170,33 @@ public class V10SignalingClient implements SignalingClient {
         // client waiting in queue would be erroneously dropped before a match is found.
         session.setMaxIdleTimeout(0);
 
+        container = session.getContainer();
+        uri = session.getRequestURI();
+
         final var state = this.state.updateAndGet(s -> s.connected(session));
 
-        if (TERMINATED.equals(state.phase())) {
-            state.closeSession();
+        switch (state.phase()) {
+            case TERMINATED -> session.close();
+            case RECONNECTING -> rejoin(state, session);
         }
 
     }
 
+    private void rejoin(final V10SignalingClientState state, final Session session) {
+
+        final var original = handshakeRequest;
+        final var request = new JoinHandshakeRequest();
+        request.setVersion(original.getVersion());
+        request.setSessionKey(original.getSessionKey());
+        request.setProfileId(state.getProfileId());
+        request.setMatchId(state.getMatchId());
+        request.setLastSequence(state.getLastSequence());
+
+        logger.debug("Rejoining match {} after sequence {}.", request.getMatchId(), request.getLastSequence());
+        session.getAsyncRemote().sendObject(request);
+
+    }
+
     @OnMessage
     public void onSessionMessage(final Session session, final ProtocolMessage message) throws IOException {
 
@@ -128,9 +207,14 @@ public class V10SignalingClient implements SignalingClient {
 
         final var state = this.state.get();
 
+        if (isStale(state, session)) {
+            logger.debug("Dropping message from stale session {}: {}", session.getId(), message.getType());
+            return;
+        }
+
         switch (state.phase()) {
             case SIGNALING -> onMessageSignalingPhase(state, message);
-            case HANDSHAKING -> onMessageHandshakingPhase(state, message);
+            case HANDSHAKING, RECONNECTING -> onMessageHandshakingPhase(state, message);
             case TERMINATED -> logger.debug("Dropping message in terminated phase: {}", message.getType());
             default -> throw new UnexpectedMessageException("Unexpected message in phase " + state.phase());
         }
@@ -147,6 +231,14 @@ public class V10SignalingClient implements SignalingClient {
 
     private void onSignalingMessage(final Signal message) {
 
+        // The roster is expanded into the signals it summarizes, so listeners observe the same presence signals
+        // regardless of the protocol version negotiated with the server.
+
+        if (message instanceof RosterBroadcastSignal roster) {
+            expand(roster).forEach(this::onSignalingMessage);
+            return;
+        }
+
         final var state = switch (message.getType()) {
             case HOST -> {
                 final var host = (HostBroadcastSignal) message;
@@ -174,6 +266,30 @@ public class V10SignalingClient implements SignalingClient {
 
     }
 
+    private static Stream<Signal> expand(final RosterBroadcastSignal roster) {
+
+        final var joins = roster.getParticipants().stream().map(profileId -> {
+            final var join = new JoinBroadcastSignal();
+            join.setProfileId(profileId);
+            return (Signal) join;
+        });
+
+        final var connects = roster.getConnected().stream().map(profileId -> {
+            final var connect = new ConnectBroadcastSignal();
+            connect.setProfileId(profileId);
+            return (Signal) connect;
+        });
+
+        final var host = Stream.ofNullable(roster.getHost()).map(profileId -> {
+            final var signal = new HostBroadcastSignal();
+            signal.setProfileId(profileId);
+            return (Signal) signal;
+        });
+
+        return Stream.of(joins, connects, host).flatMap(s -> s);
+
+    }
+
     private void onMessageHandshakingPhase(final V10SignalingClientState state, final ProtocolMessage message) throws IOException {
         switch (message.getType().getCategory()) {
             case ERROR -> onErrorMessage((ProtocolError) message);
@@ -186,11 +302,17 @@ public class V10SignalingClient implements SignalingClient {
         switch (message.getType()) {
             case MATCHED, CREATED -> {
 
-                final var state = this.state.updateAndGet(s -> s.matched(message));
+                final var previous = this.state.getAndUpdate(s -> s.matched(message));
+                final var state = previous.matched(message);
 
                 switch (state.phase()) {
                     case SIGNALING -> {
 
+                        if (RECONNECTING.equals(previous.phase())) {
+                            onRejoined(message);
+                            return;
+                        }
+
                         onHandshake.publish(
                                 message,
                                 m -> logger.debug("Delivered handshake response: {}", message),
@@ -212,6 +334,16 @@ public class V10SignalingClient implements SignalingClient {
         }
     }
 
+    private void onRejoined(final HandshakeResponse message) {
+
+        final var attempts = reconnectAttempts.getAndSet(0);
+        final var elapsed = NANOSECONDS.toMillis(System.nanoTime() - reconnectStarted);
+
+        logger.info("Rejoined match {} after {} attempt(s) in {} ms.", message.getMatchId(), attempts, elapsed);
+        flush();
+
+    }
+
     private void onErrorMessage(final ProtocolError message) throws IOException {
 
         final var status = new DisconnectStatus(
@@ -220,16 +352,32 @@ public class V10SignalingClient implements SignalingClient {
                 true
         );
 
-        final var state = this.state.updateAndGet(s -> s.terminate(status));
-        state.closeSession();
+        final var previous = this.state.getAndUpdate(s -> s.terminate(status));
+        previous.terminate(status).closeSession();
         disconnectCountdownLatch.countDown();
 
+        // Peers were kept open through the outage on the expectation of rejoining, so they must learn that it failed.
+        if (RECONNECTING.equals(previous.phase())) {
+            logger.error("Unable to rejoin match: {} - {}", message.getCode(), message.getMessage());
+            onClientError.publish(new SignalingClientException(message.getMessage()));
+        }
+
     }
 
     @OnClose
     public void onSessionClose(final Session session,
                                final CloseReason closeReason) throws IOException {
 
+        if (isStale(state.get(), session)) {
+            logger.debug("Stale session {} closed: {}", session.getId(), closeReason);
+            return;
+        }
+
+        if (!NORMAL_CLOSURE.equals(closeReason.getCloseCode()) && reconnect(session)) {
+            logger.info("Connection lost: {}. Reconnecting.", closeReason);
+            return;
+        }
+
         final var status = new DisconnectStatus(
                 closeReason.getReasonPhrase() == null ? "" : closeReason.getReasonPhrase(),
                 closeReason.getCloseCode().toString(),
@@ -246,6 +394,17 @@ public class V10SignalingClient implements SignalingClient {
     public void onSessionError(final Session session,
                                final Throwable throwable) throws IOException {
 
+        if (isStale(state.get(), session)) {
+            logger.debug("Error in stale session {}.", session.getId(), throwable);
+            return;
+        }
+
+        if (throwable instanceof IOException && reconnect(session)) {
+            logger.warn("Connection error. Reconnecting.", throwable);
+            closeQuietly(session);
+            return;
+        }
+
         final var status = new DisconnectStatus(
                 throwable.getMessage(),
                 throwable.getClass().getSimpleName(),
@@ -259,6 +418,104 @@ public class V10SignalingClient implements SignalingClient {
 
     }
 
+    private static boolean isStale(final V10SignalingClientState state, final Session session) {
+        // Reconnecting replaces the session, so events may still arrive from the one which dropped.
+        return switch (state.phase()) {
+            case SIGNALING, RECONNECTING -> state.session() != session;
+            default -> false;
+        };
+    }
+
+    /**
+     * Begins reconnecting if the policy allows it and the supplied session is the one the client is signaling on, or
+     * the one a previous attempt opened.
+     *
+     * @param session the session which dropped
+     * @return true if the client is reconnecting, false if it should terminate
+     */
+    private boolean reconnect(final Session session) {
+
+        if (!reconnectPolicy.isEnabled() || container == null || uri == null || handshakeRequest == null) {
+            return false;
+        }
+
+        final var previous = state.getAndUpdate(s -> isReconnectable(s, session) ? s.reconnecting() : s);
+
+        if (!isReconnectable(previous, session)) {
+            return false;
+        }
+
+        if (SIGNALING.equals(previous.phase())) {
+            reconnectStarted = System.nanoTime();
+        }
+
+        scheduleReconnect();
+        return true;
+
+    }
+
+    private static boolean isReconnectable(final V10SignalingClientState state, final Session session) {
+        return switch (state.phase()) {
+            case SIGNALING, RECONNECTING -> !isStale(state, session);
+            default -> false;
+        };
+    }
+
+    private void scheduleReconnect() {
+
+        final var attempt = reconnectAttempts.getAndIncrement();
+
+        if (attempt >= reconnectPolicy.maxAttempts()) {
+
+            final var status = new DisconnectStatus(
+                    "Unable to reconnect after " + attempt + " attempts.",
+                    "RECONNECT_FAILED",
+                    true
+            );
+
+            this.state.updateAndGet(s -> s.terminate(status));
+            disconnectCountdownLatch.countDown();
+            pending.clear();
+            logger.error("Giving up reconnecting after {} attempts.", attempt);
+            onClientError.publish(new SignalingClientException(status.message()));
+            return;
+
+        }
+
+        final var delay = reconnectPolicy.delay(attempt);
+        logger.debug("Reconnect attempt {} of {} in {}.", attempt + 1, reconnectPolicy.maxAttempts(), delay);
+
+        CompletableFuture.runAsync(
+                this::attemptReconnect,
+                CompletableFuture.delayedExecutor(delay.toMillis(), MILLISECONDS)
+        );
+
+    }
+
+    private void attemptReconnect() {
+
+        if (!RECONNECTING.equals(state.get().phase())) {
+            logger.debug("No longer reconnecting. Abandoning attempt.");
+            return;
+        }
+
+        try {
+            container.connectToServer(this, uri);
+        } catch (IOException | DeploymentException ex) {
+            logger.debug("Reconnect attempt failed.", ex);
+            scheduleReconnect();
+        }
+
+    }
+
+    private static void closeQuietly(final Session session) {
+        try {
+            session.close();
+        } catch (IOException ex) {
+            logger.debug("Error closing session {}.", session.getId(), ex);
+        }
+    }
+
     @Override
     public void handshake(final HandshakeRequest request) {
 
@@ -278,6 +535,7 @@ public class V10SignalingClient implements SignalingClient {
             default -> throw new IllegalArgumentException("Invalid handshake request type: " + request.getType());
         }
 
+        handshakeRequest = request;
         final var state = this.state.updateAndGet(V10SignalingClientState::handshaking);
 
         if (HANDSHAKING.equals(state.phase()))
@@ -318,6 +576,7 @@ public class V10SignalingClient implements SignalingClient {
 
         try {
             state.closeSession();
+            pending.clear();
             onSignal.clear();
             onHandshake.clear();
             onClientError.clear();
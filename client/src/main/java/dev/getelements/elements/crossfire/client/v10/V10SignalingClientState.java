@@ -39,10 +39,19 @@ record V10SignalingClientState(SignalingClientPhase phase,
         return switch (phase()) {
             case TERMINATED -> this;
             case READY -> new V10SignalingClientState(CONNECTED, session, handshake(), host(), profiles(), backlog(), disconnectStatus());
+            case RECONNECTING -> new V10SignalingClientState(RECONNECTING, session, handshake(), host(), profiles(), backlog(), disconnectStatus());
             default -> throw new ProtocolStateException("Invalid connection phase " + phase());
         };
     }
 
+    public V10SignalingClientState reconnecting() {
+        return switch (phase()) {
+            case TERMINATED -> this;
+            case SIGNALING, RECONNECTING -> new V10SignalingClientState(RECONNECTING, null, handshake(), host(), profiles(), backlog(), disconnectStatus());
+            default -> throw new ProtocolStateException("Invalid reconnection phase " + phase());
+        };
+    }
+
     public V10SignalingClientState terminate(final DisconnectStatus disconnectStatus) {
 
         final var replacement = disconnectStatus() == null ? disconnectStatus : disconnectStatus();
@@ -65,7 +74,7 @@ record V10SignalingClientState(SignalingClientPhase phase,
     public V10SignalingClientState matched(final HandshakeResponse handshake) {
         return switch (phase()) {
             case TERMINATED -> this;
-            case HANDSHAKING -> new V10SignalingClientState(SIGNALING, session(), handshake, host(), profiles(), backlog(), disconnectStatus());
+            case HANDSHAKING, RECONNECTING -> new V10SignalingClientState(SIGNALING, session(), handshake, host(), profiles(), backlog(), disconnectStatus());
             default -> throw new ProtocolStateException("Invalid handshake phase " + phase());
         };
     }
@@ -82,6 +91,12 @@ record V10SignalingClientState(SignalingClientPhase phase,
         return switch (phase()) {
             case TERMINATED -> this;
             case SIGNALING -> {
+
+                // A participant is announced again whenever this client rejoins the match, so it is recorded once.
+                if (profiles().contains(signal.getProfileId())) {
+                    yield this;
+                }
+
                 final var backlog = new ArrayList<>(backlog()) {{ add(signal); }};
                 final var profiles = new ArrayList<>(profiles()) {{ add(signal.getProfileId()); }};
                 yield new V10SignalingClientState(phase(), session(), handshake(), host(), profiles, backlog, disconnectStatus());
@@ -171,4 +186,14 @@ record V10SignalingClientState(SignalingClientPhase phase,
         return profiles();
     }
 
+    @Override
+    public long getLastSequence() {
+        return backlog()
+                .stream()
+                .filter(SequencedSignal.class::isInstance)
+                .mapToLong(s -> ((SequencedSignal) s).getSequence())
+                .max()
+                .orElse(0);
+    }
+
 }
@@ -0,0 +1,220 @@
+package dev.getelements.elements.crossfire.client.v10;
+
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.MatchedResponse;
+import dev.getelements.elements.crossfire.api.model.signal.StringBroadcastSignal;
+import dev.getelements.elements.crossfire.client.ReconnectPolicy;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle.MATCH;
+import static dev.getelements.elements.crossfire.client.SignalingClientPhase.*;
+import static jakarta.websocket.CloseReason.CloseCodes.CLOSED_ABNORMALLY;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Drives a {@link V10SignalingClient} through a dropped connection against in-process sessions. No WebSocket server.
+ */
+public class TestV10SignalingClientReconnect {
+
+    private static final URI MATCH_URI = URI.create("ws://localhost/app/ws/crossfire/match");
+
+    private static final ReconnectPolicy POLICY = new ReconnectPolicy(
+            5,
+            Duration.ofMillis(10),
+            Duration.ofMillis(50),
+            2.0
+    );
+
+    @Test
+    public void testRejoinsAfterDrop() throws Exception {
+
+        final var server = new FakeServer(2);
+        final var client = new V10SignalingClient(POLICY);
+        final var first = server.open(client);
+
+        final var find = new FindHandshakeRequest();
+        find.setProfileId("alice");
+        find.setSessionKey("session-key");
+        client.handshake(find);
+        client.onSessionMessage(first.session(), matched());
+
+        final var signal = new StringBroadcastSignal();
+        signal.setProfileId("bob");
+        signal.setLifecycle(MATCH);
+        signal.setSequence(42);
+        signal.setPayload("hello");
+        client.onSessionMessage(first.session(), signal);
+
+        client.onSessionClose(first.session(), new CloseReason(CLOSED_ABNORMALLY, "Server restarting."));
+        assertEquals(client.getPhase(), RECONNECTING);
+
+        final var queued = new StringBroadcastSignal();
+        queued.setProfileId("alice");
+        queued.setPayload("queued");
+        client.signal(queued);
+
+        final var second = server.awaitSession(2);
+        final var join = (JoinHandshakeRequest) second.sent().get(0);
+        assertEquals(join.getMatchId(), "match");
+        assertEquals(join.getProfileId(), "alice");
+        assertEquals(join.getSessionKey(), "session-key");
+        assertEquals(join.getLastSequence(), 42);
+
+        client.onSessionMessage(second.session(), matched());
+        assertEquals(client.getPhase(), SIGNALING);
+        assertEquals(second.sent(), List.of(join, queued));
+        assertEquals(server.attempts.get(), 4);
+
+        // The dropped session may still report its closure after the client has moved on.
+        client.onSessionClose(first.session(), new CloseReason(CLOSED_ABNORMALLY, "Late close."));
+        assertEquals(client.getPhase(), SIGNALING);
+
+    }
+
+    @Test
+    public void testTerminatesOnceAttemptsExhausted() throws Exception {
+
+        final var server = new FakeServer(Integer.MAX_VALUE);
+        final var client = new V10SignalingClient(POLICY);
+        final var first = server.open(client);
+
+        client.handshake(new FindHandshakeRequest());
+        client.onSessionMessage(first.session(), matched());
+        client.onSessionClose(first.session(), new CloseReason(CLOSED_ABNORMALLY, "Server gone."));
+
+        final var status = client.waitForDisconnect(10, SECONDS).orElseThrow();
+        assertEquals(client.getPhase(), TERMINATED);
+        assertEquals(status.code(), "RECONNECT_FAILED");
+        assertEquals(server.attempts.get(), 1 + POLICY.maxAttempts());
+
+    }
+
+    @Test
+    public void testDisabledPolicyTerminates() throws Exception {
+
+        final var server = new FakeServer(0);
+        final var client = new V10SignalingClient();
+        final var first = server.open(client);
+
+        client.handshake(new FindHandshakeRequest());
+        client.onSessionMessage(first.session(), matched());
+        client.onSessionClose(first.session(), new CloseReason(CLOSED_ABNORMALLY, "Dropped."));
+
+        assertEquals(client.getPhase(), TERMINATED);
+        assertEquals(server.attempts.get(), 1);
+
+    }
+
+    private static MatchedResponse matched() {
+        final var response = new MatchedResponse();
+        response.setMatchId("match");
+        response.setProfileId("alice");
+        return response;
+    }
+
+    private record FakeSession(Session session, List<Object> sent) {}
+
+    /**
+     * Opens in-process sessions for the client, refusing the supplied number of reconnect attempts first.
+     */
+    private static class FakeServer {
+
+        private final int refusals;
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final List<FakeSession> sessions = new CopyOnWriteArrayList<>();
+
+        private final WebSocketContainer container = (WebSocketContainer) Proxy.newProxyInstance(
+                WebSocketContainer.class.getClassLoader(),
+                new Class<?>[]{WebSocketContainer.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "connectToServer" -> connect((V10SignalingClient) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+
+        private FakeServer(final int refusals) {
+            this.refusals = refusals;
+        }
+
+        private FakeSession open(final V10SignalingClient client) throws IOException {
+            connect(client);
+            return sessions.get(0);
+        }
+
+        private Session connect(final V10SignalingClient client) throws IOException {
+
+            // The first connection is the one the application opened, so only the reconnects are refused.
+            final var attempt = attempts.getAndIncrement();
+
+            if (attempt > 0 && attempt <= refusals) {
+                throw new IOException("Connection refused.");
+            }
+
+            final var sent = new CopyOnWriteArrayList<>();
+
+            final var remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                    RemoteEndpoint.Async.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.Async.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "sendObject" -> {
+                            sent.add(args[0]);
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+            );
+
+            final var id = Integer.toString(sessions.size());
+
+            final var session = (Session) Proxy.newProxyInstance(
+                    Session.class.getClassLoader(),
+                    new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "getContainer" -> container;
+                        case "getRequestURI" -> MATCH_URI;
+                        case "getAsyncRemote" -> remote;
+                        case "setMaxIdleTimeout", "close" -> null;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+            );
+
+            client.onOpen(session);
+            sessions.add(new FakeSession(session, sent));
+
+            return session;
+
+        }
+
+        private FakeSession awaitSession(final int count) throws InterruptedException {
+
+            for (int i = 0; i < 500 && sessions.size() < count; ++i) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(sessions.size(), count);
+            return sessions.get(count - 1);
+
+        }
+
+    }
+
+}
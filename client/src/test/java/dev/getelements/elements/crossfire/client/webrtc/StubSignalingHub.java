@@ -117,6 +117,7 @@ public class StubSignalingHub {
                 @Override public String getMatchId() { return matchId; }
                 @Override public String getProfileId() { return profileId; }
                 @Override public List<String> getProfiles() { return allProfiles; }
+                @Override public long getLastSequence() { return 0; }
             };
         }
 
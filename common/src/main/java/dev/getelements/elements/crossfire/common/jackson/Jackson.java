@@ -2,6 +2,8 @@ package dev.getelements.elements.crossfire.common.jackson;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
 
 /**
  * A set of Jackson utility classes.
@@ -12,6 +14,8 @@ public class Jackson {
 
     static {
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.addMixIn(ProtocolMessage.class, ProtocolMessageMixin.class);
+        mapper.registerModule(new BlackbirdModule());
     }
 
     /**
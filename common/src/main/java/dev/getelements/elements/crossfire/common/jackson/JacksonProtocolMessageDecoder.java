@@ -1,5 +1,6 @@
 package dev.getelements.elements.crossfire.common.jackson;
 
+import com.fasterxml.jackson.core.JsonToken;
 import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
 import jakarta.websocket.DecodeException;
 import jakarta.websocket.Decoder;
@@ -12,9 +13,9 @@ public class JacksonProtocolMessageDecoder implements Decoder.Text<ProtocolMessa
     @Override
     public ProtocolMessage decode(final String s) throws DecodeException {
         try {
-            final var root = getMapper().readTree(s);
-            final var type = findType(root.get("type").asText()).get();
-            return getMapper().treeToValue(root, type.getMessageType());
+            // The mapper resolves the concrete type from the "type" property (see ProtocolMessageMixin) so this is a
+            // single pass over the message with no intermediate tree.
+            return getMapper().readValue(s, ProtocolMessage.class);
         } catch (Exception ex) {
             throw new DecodeException(s, "Unable to parse JSON.", ex);
         }
@@ -22,16 +23,29 @@ public class JacksonProtocolMessageDecoder implements Decoder.Text<ProtocolMessa
 
     @Override
     public boolean willDecode(final String s) {
-        try {
-
-            final var root = getMapper().readTree(s);
-            final var type = root.get("type");
+        try (var parser = getMapper().createParser(s)) {
 
-            if (type == null || !type.isTextual()) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
                 return false;
             }
 
-            return findType(type.asText()).isPresent();
+            // Scans only the top level fields and stops as soon as the type is found, skipping over any nested
+            // values without materializing them.
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                final var name = parser.currentName();
+                final var value = parser.nextToken();
+
+                if ("type".equals(name)) {
+                    return value == JsonToken.VALUE_STRING && findType(parser.getText()).isPresent();
+                }
+
+                parser.skipChildren();
+
+            }
+
+            return false;
 
         } catch (Exception e) {
             return false;
@@ -0,0 +1,18 @@
+package dev.getelements.elements.crossfire.common.jackson;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonTypeIdResolver;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+
+/**
+ * Mix-in for {@link ProtocolMessage} which keys polymorphic decoding off of the existing "type" property. This allows
+ * the mapper to resolve the concrete message class in a single streaming pass rather than reading the whole message
+ * into a tree first. The api module has no dependency on Jackson, so the annotations live here.
+ */
+@JsonTypeInfo(
+        use = JsonTypeInfo.Id.CUSTOM,
+        include = JsonTypeInfo.As.EXISTING_PROPERTY,
+        property = "type"
+)
+@JsonTypeIdResolver(ProtocolMessageTypeIdResolver.class)
+interface ProtocolMessageMixin {}
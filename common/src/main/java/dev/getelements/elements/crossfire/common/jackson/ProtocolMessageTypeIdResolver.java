@@ -0,0 +1,46 @@
+package dev.getelements.elements.crossfire.common.jackson;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageType;
+
+import static dev.getelements.elements.crossfire.api.model.ProtocolMessageType.findType;
+
+/**
+ * Resolves the concrete {@link ProtocolMessage} class using the {@link ProtocolMessageType} enumeration. Type ids are
+ * matched case-insensitively, consistent with {@link ProtocolMessageType#findType(String)}.
+ */
+public class ProtocolMessageTypeIdResolver extends TypeIdResolverBase {
+
+    @Override
+    public String idFromValue(final Object value) {
+        return ((ProtocolMessage) value).getType().name();
+    }
+
+    @Override
+    public String idFromValueAndType(final Object value, final Class<?> suggestedType) {
+        return idFromValue(value);
+    }
+
+    @Override
+    public JavaType typeFromId(final DatabindContext context, final String id) {
+        return findType(id)
+                .map(ProtocolMessageType::getMessageType)
+                .map(context::constructType)
+                .orElse(null);
+    }
+
+    @Override
+    public String getDescForKnownTypeIds() {
+        return "one of ProtocolMessageType";
+    }
+
+    @Override
+    public JsonTypeInfo.Id getMechanism() {
+        return JsonTypeInfo.Id.CUSTOM;
+    }
+
+}
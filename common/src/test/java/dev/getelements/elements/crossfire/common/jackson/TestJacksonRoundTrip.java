@@ -0,0 +1,130 @@
+package dev.getelements.elements.crossfire.common.jackson;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageType;
+import dev.getelements.elements.crossfire.api.model.Version;
+import dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.*;
+
+/**
+ * Checks that every {@link ProtocolMessageType} survives a round trip through the shared mapper and that the shared
+ * mapper produces the same JSON as a plain, reflective {@link ObjectMapper}.
+ */
+public class TestJacksonRoundTrip {
+
+    private final ObjectMapper reflective = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final JacksonEncoder encoder = new JacksonEncoder();
+
+    private final JacksonProtocolMessageDecoder decoder = new JacksonProtocolMessageDecoder();
+
+    @DataProvider
+    public Object[][] allTypes() {
+        return Stream.of(ProtocolMessageType.values())
+                .map(t -> new Object[]{t})
+                .toArray(Object[][]::new);
+    }
+
+    @Test(dataProvider = "allTypes")
+    public void testEncodingMatchesReflective(final ProtocolMessageType type) throws Exception {
+        final var message = populate(type);
+        final var expected = reflective.readTree(reflective.writeValueAsString(message));
+        final var actual = reflective.readTree(encoder.encode(message));
+        assertEquals(actual, expected);
+    }
+
+    @Test(dataProvider = "allTypes")
+    public void testRoundTrip(final ProtocolMessageType type) throws Exception {
+
+        final var message = populate(type);
+        final var encoded = encoder.encode(message);
+
+        assertTrue(decoder.willDecode(encoded));
+
+        final var decoded = decoder.decode(encoded);
+        assertEquals(decoded.getClass(), type.getMessageType());
+        assertEquals(decoded.getType(), type);
+
+        final var expected = reflective.readTree(reflective.writeValueAsString(message));
+        final var actual = reflective.readTree(reflective.writeValueAsString(decoded));
+        assertEquals(actual, expected);
+
+    }
+
+    @Test(dataProvider = "allTypes")
+    public void testDecodesWithTypeNotFirst(final ProtocolMessageType type) throws Exception {
+
+        final var message = populate(type);
+        final var tree = reflective.valueToTree(message);
+
+        // Moves the type to the end of the object to ensure decoding does not depend on field order.
+        final var reordered = reflective.createObjectNode();
+        tree.fields().forEachRemaining(e -> { if (!"type".equals(e.getKey())) reordered.set(e.getKey(), e.getValue()); });
+        reordered.put("type", type.name().toLowerCase());
+
+        final var decoded = decoder.decode(reflective.writeValueAsString(reordered));
+        assertEquals(decoded.getClass(), type.getMessageType());
+
+    }
+
+    @Test
+    public void testWillNotDecodeUnknownType() {
+        assertFalse(decoder.willDecode("{\"type\":\"NOT_A_TYPE\"}"));
+        assertFalse(decoder.willDecode("{\"payload\":{\"type\":\"FIND\"}}"));
+        assertFalse(decoder.willDecode("[]"));
+        assertFalse(decoder.willDecode("not json"));
+    }
+
+    private ProtocolMessage populate(final ProtocolMessageType type) throws Exception {
+
+        final var message = type.getMessageType().getConstructor().newInstance();
+
+        for (final Method method : type.getMessageType().getMethods()) {
+
+            if (!method.getName().startsWith("set") ||
+                method.getParameterCount() != 1 ||
+                Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+
+            final var parameter = method.getParameterTypes()[0];
+            final var name = method.getName().substring(3);
+
+            if (String.class.equals(parameter)) {
+                method.invoke(message, "test-" + name);
+            } else if (byte[].class.equals(parameter)) {
+                method.invoke(message, (Object) ("test-" + name).getBytes(UTF_8));
+            } else if (Version.class.equals(parameter)) {
+                method.invoke(message, Version.V_1_1);
+            } else if (SignalLifecycle.class.equals(parameter)) {
+                method.invoke(message, SignalLifecycle.MATCH);
+            } else if (int.class.equals(parameter)) {
+                method.invoke(message, name.length());
+            } else if (long.class.equals(parameter)) {
+                method.invoke(message, Long.MAX_VALUE - name.length());
+            } else if (List.class.equals(parameter)) {
+                method.invoke(message, List.of("test-" + name));
+            } else if (Map.class.equals(parameter)) {
+                method.invoke(message, Map.of("test-" + name, name.length()));
+            }
+
+        }
+
+        return message;
+
+    }
+
+}
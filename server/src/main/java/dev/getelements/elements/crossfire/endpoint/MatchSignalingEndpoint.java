@@ -58,9 +58,9 @@ public class MatchSignalingEndpoint {
     }
 
     @OnClose
-    public void onClose(final Session session) throws IOException {
-        logger.debug("Session {} closed.", session.getId());
-        handler.stop(session);
+    public void onClose(final Session session, final CloseReason reason) throws IOException {
+        logger.debug("Session {} closed: {}", session.getId(), reason);
+        handler.stop(session, reason);
     }
 
     @OnError
@@ -1,22 +1,44 @@
 package dev.getelements.elements.crossfire.guice;
 
 import com.google.inject.PrivateModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import dev.getelements.elements.crossfire.api.BatchMatchmaker;
 import dev.getelements.elements.crossfire.api.FindMatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.JoinCodeMatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.model.Version;
+import dev.getelements.elements.crossfire.matchmaker.BackfillQueue;
 import dev.getelements.elements.crossfire.matchmaker.FIFOMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.matchmaker.JoinCodeIndex;
+import dev.getelements.elements.crossfire.matchmaker.JoinCodePool;
+import dev.getelements.elements.crossfire.matchmaker.OpenMatchIndex;
+import dev.getelements.elements.crossfire.matchmaker.PartyReservations;
+import dev.getelements.elements.crossfire.matchmaker.RegionMatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.matchmaker.SimpleJoinCodeMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.matchmaker.SkillMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.matchmaker.StandardBatchMatchmaker;
+import dev.getelements.elements.crossfire.matchmaker.WarmMatchPool;
 import dev.getelements.elements.crossfire.protocol.*;
 import dev.getelements.elements.crossfire.protocol.v1.V10HandshakeHandler;
 import dev.getelements.elements.crossfire.protocol.v1.V11HandshakeHandler;
 import dev.getelements.elements.crossfire.protocol.v1.V1ProtocolMessageHandler;
 import dev.getelements.elements.crossfire.protocol.v1.V1SignalingHandler;
+import dev.getelements.elements.crossfire.service.AuthCacheService;
 import dev.getelements.elements.crossfire.service.ControlService;
+import dev.getelements.elements.crossfire.service.MatchReaper;
 import dev.getelements.elements.crossfire.service.MatchSignalingService;
+import dev.getelements.elements.crossfire.service.MatchmakingConfigurationService;
+import dev.getelements.elements.crossfire.service.MemoryAuthCacheService;
 import dev.getelements.elements.crossfire.service.MemoryMatchSignalingService;
+import dev.getelements.elements.crossfire.service.MemoryMatchmakingConfigurationService;
+import dev.getelements.elements.crossfire.service.OffHeapArena;
 import dev.getelements.elements.crossfire.service.StandardControlService;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
+import dev.getelements.elements.crossfire.util.RelaxationScheduler;
+import dev.getelements.elements.sdk.dao.Transaction;
+import jakarta.inject.Provider;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 
@@ -33,10 +55,16 @@ public class  CrossfireModule extends PrivateModule {
 
         expose(ControlService.class);
         expose(MatchSignalingService.class);
+        expose(AuthCacheService.class);
+        expose(MatchmakingConfigurationService.class);
         expose(ProtocolMessageHandler.class);
+        expose(BatchMatchmaker.class);
+        expose(RelaxationScheduler.class);
         expose(FindMatchmakingAlgorithm.class);
         expose(JoinCodeMatchmakingAlgorithm.class);
         expose(FindMatchmakingAlgorithm.class).annotatedWith(named(FIFOMatchmakingAlgorithm.NAME));
+        expose(FindMatchmakingAlgorithm.class).annotatedWith(named(SkillMatchmakingAlgorithm.NAME));
+        expose(FindMatchmakingAlgorithm.class).annotatedWith(named(RegionMatchmakingAlgorithm.NAME));
         expose(JoinCodeMatchmakingAlgorithm.class).annotatedWith(named(SimpleJoinCodeMatchmakingAlgorithm.NAME));
 
         bind(Pinger.class)
@@ -46,6 +74,14 @@ public class  CrossfireModule extends PrivateModule {
                 .to(MemoryMatchSignalingService.class)
                 .asEagerSingleton();
 
+        bind(AuthCacheService.class)
+                .to(MemoryAuthCacheService.class)
+                .asEagerSingleton();
+
+        bind(MatchmakingConfigurationService.class)
+                .to(MemoryMatchmakingConfigurationService.class)
+                .asEagerSingleton();
+
         bind(ControlService.class)
                 .to(StandardControlService.class);
 
@@ -71,6 +107,34 @@ public class  CrossfireModule extends PrivateModule {
                 .toProvider(Executors::newSingleThreadScheduledExecutor)
                 .asEagerSingleton();
 
+        bind(MatchReaper.class)
+                .asEagerSingleton();
+
+        bind(OffHeapArena.class)
+                .asEagerSingleton();
+
+        bind(OpenMatchIndex.class)
+                .asEagerSingleton();
+
+        bind(PartyReservations.class)
+                .asEagerSingleton();
+
+        bind(JoinCodePool.class)
+                .asEagerSingleton();
+
+        bind(JoinCodeIndex.class)
+                .asEagerSingleton();
+
+        bind(WarmMatchPool.class)
+                .asEagerSingleton();
+
+        bind(BackfillQueue.class)
+                .asEagerSingleton();
+
+        bind(BatchMatchmaker.class)
+                .to(StandardBatchMatchmaker.class)
+                .asEagerSingleton();
+
         bind(FindMatchmakingAlgorithm.class)
                 .to(FIFOMatchmakingAlgorithm.class);
 
@@ -78,6 +142,20 @@ public class  CrossfireModule extends PrivateModule {
                 .annotatedWith(named(FIFOMatchmakingAlgorithm.NAME))
                 .to(FIFOMatchmakingAlgorithm.class);
 
+        bind(SkillMatchmakingAlgorithm.class)
+                .asEagerSingleton();
+
+        bind(FindMatchmakingAlgorithm.class)
+                .annotatedWith(named(SkillMatchmakingAlgorithm.NAME))
+                .to(SkillMatchmakingAlgorithm.class);
+
+        bind(RegionMatchmakingAlgorithm.class)
+                .asEagerSingleton();
+
+        bind(FindMatchmakingAlgorithm.class)
+                .annotatedWith(named(RegionMatchmakingAlgorithm.NAME))
+                .to(RegionMatchmakingAlgorithm.class);
+
         bind(JoinCodeMatchmakingAlgorithm.class)
                 .to(SimpleJoinCodeMatchmakingAlgorithm.class);
 
@@ -95,4 +173,21 @@ public class  CrossfireModule extends PrivateModule {
 
     }
 
+    @Provides
+    @Singleton
+    RelaxationScheduler provideRelaxationScheduler(final ScheduledExecutorService scheduledExecutorService) {
+        return new RelaxationScheduler(scheduledExecutorService);
+    }
+
+    @Provides
+    @Singleton
+    MatchLifecycleWriter provideMatchLifecycleWriter(
+            final Provider<Transaction> transactionProvider,
+            final ExecutorService executorService,
+            final JoinCodeIndex joinCodeIndex) {
+        final var writer = new MatchLifecycleWriter(transactionProvider, executorService);
+        writer.addRetiredListener(joinCodeIndex::remove);
+        return writer;
+    }
+
 }
@@ -0,0 +1,158 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A node-local priority queue of matches which lost participants and have slots to refill. Matchmaking consults this
+ * queue before placing anyone in a fresh match, so that the node converges on fewer, fuller matches.
+ *
+ * Matches are ordered by how long they have been short plus a fixed weight for each missing slot, so a match missing
+ * several participants is refilled ahead of one which has been missing a single participant for slightly longer.
+ * Because every waiting match ages at the same rate, the order only changes when a match gains or loses a slot, and
+ * both offering and claiming take O(log n) in the number of queued matches.
+ *
+ * Like {@link OpenMatchIndex} the queue is advisory, so callers must persist the claim and {@link #remove(String)} the
+ * match if the database rejects it.
+ */
+public class BackfillQueue {
+
+    @ElementDefaultAttribute(value = "10", description = "The number of seconds of waiting each missing slot is worth when ordering backfill.")
+    public static final String SLOT_WEIGHT_SECONDS = "dev.getelements.elements.crossfire.matchmaking.backfill.slot.weight.seconds";
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentMap<String, NavigableSet<Entry>> queues = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private long slotWeightSeconds;
+
+    /**
+     * Records that the match lost a participant and has a slot to refill.
+     *
+     * @param match the match
+     */
+    public void offer(final MultiMatch match) {
+
+        final var queue = queue(match.getConfiguration().getId());
+
+        synchronized (queue) {
+
+            final var existing = entries.get(match.getId());
+
+            if (existing == null) {
+                final var entry = new Entry(match, System.nanoTime(), 1, sequence.incrementAndGet());
+                entries.put(match.getId(), entry);
+                queue.add(entry);
+            } else {
+                queue.remove(existing);
+                final var entry = existing.withMissing(existing.missing() + 1);
+                entries.put(match.getId(), entry);
+                queue.add(entry);
+            }
+
+        }
+
+    }
+
+    /**
+     * Claims a slot in the highest priority match for the configuration.
+     *
+     * @param configurationId the configuration id
+     * @return the match, or empty if no match needs backfill
+     */
+    public Optional<MultiMatch> claim(final String configurationId) {
+
+        final var queue = queues.get(configurationId);
+
+        if (queue == null) {
+            return Optional.empty();
+        }
+
+        synchronized (queue) {
+
+            final var first = queue.pollFirst();
+
+            if (first == null) {
+                return Optional.empty();
+            }
+
+            if (first.missing() > 1) {
+                final var entry = first.withMissing(first.missing() - 1);
+                entries.put(first.match().getId(), entry);
+                queue.add(entry);
+            } else {
+                entries.remove(first.match().getId());
+            }
+
+            return Optional.of(first.match());
+
+        }
+
+    }
+
+    /**
+     * Removes the match from the queue, for example when it closes, ends, or the database rejects a claim.
+     *
+     * @param matchId the match id
+     */
+    public void remove(final String matchId) {
+
+        final var entry = entries.get(matchId);
+
+        if (entry == null) {
+            return;
+        }
+
+        final var queue = queue(entry.match().getConfiguration().getId());
+
+        synchronized (queue) {
+            final var current = entries.remove(matchId);
+            if (current != null) queue.remove(current);
+        }
+
+    }
+
+    private NavigableSet<Entry> queue(final String configurationId) {
+        return queues.computeIfAbsent(configurationId, id -> new TreeSet<>(Comparator
+                .comparingLong(this::priority)
+                .thenComparingLong(Entry::sequence)
+        ));
+    }
+
+    private long priority(final Entry entry) {
+        // Lower sorts first. Subtracting the slot weight moves matches with more missing slots ahead.
+        return entry.shortSince() - entry.missing() * SECONDS.toNanos(getSlotWeightSeconds());
+    }
+
+    public long getSlotWeightSeconds() {
+        return slotWeightSeconds;
+    }
+
+    @Inject
+    public void setSlotWeightSeconds(@Named(SLOT_WEIGHT_SECONDS) long slotWeightSeconds) {
+        this.slotWeightSeconds = slotWeightSeconds;
+    }
+
+    private record Entry(MultiMatch match, long shortSince, int missing, long sequence) {
+
+        private Entry withMissing(final int missing) {
+            return new Entry(match, shortSince, missing, sequence);
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Estimates how many times per second something is requested, using a moving average which decays exponentially with
+ * time. Pools use the estimate to size themselves so that they cover the expected demand for a short lead time.
+ */
+class DemandEstimator {
+
+    private final double windowSeconds;
+
+    private final LongSupplier clock;
+
+    private double rate;
+
+    private long updatedAt;
+
+    /**
+     * Creates an estimator.
+     *
+     * @param windowSeconds the time constant of the moving average, in seconds
+     */
+    DemandEstimator(final double windowSeconds) {
+        this(windowSeconds, System::nanoTime);
+    }
+
+    /**
+     * Creates an estimator which reads the time from the supplied clock.
+     *
+     * @param windowSeconds the time constant of the moving average, in seconds
+     * @param clock supplies the current time, in nanoseconds
+     */
+    DemandEstimator(final double windowSeconds, final LongSupplier clock) {
+        this.windowSeconds = windowSeconds;
+        this.clock = clock;
+        this.updatedAt = clock.getAsLong();
+    }
+
+    /**
+     * Records one request.
+     */
+    synchronized void record() {
+        decay();
+        rate += 1.0 / windowSeconds;
+    }
+
+    /**
+     * Gets the current estimate.
+     *
+     * @return the estimated requests per second
+     */
+    synchronized double getRate() {
+        decay();
+        return rate;
+    }
+
+    /**
+     * Gets the number of items needed to cover the estimated demand for the lead time, bounded by the supplied limits.
+     *
+     * @param leadSeconds the lead time
+     * @param min the minimum
+     * @param max the maximum
+     * @return the target
+     */
+    int target(final int leadSeconds, final int min, final int max) {
+        final var target = (int) Math.round(getRate() * leadSeconds);
+        return Math.max(min, Math.min(max, target));
+    }
+
+    private void decay() {
+        final var now = clock.getAsLong();
+        final var elapsed = (double) (now - updatedAt) / SECONDS.toNanos(1);
+        rate *= Math.exp(-elapsed / windowSeconds);
+        updatedAt = now;
+    }
+
+}
@@ -4,19 +4,39 @@ import dev.getelements.elements.crossfire.api.*;
 import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
 import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
 import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
 import dev.getelements.elements.sdk.annotation.ElementServiceExport;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
 import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.BaseException;
+import dev.getelements.elements.sdk.model.exception.ForbiddenException;
 import dev.getelements.elements.sdk.model.match.MultiMatch;
 import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import dev.getelements.elements.sdk.model.profile.Profile;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
 /**
- * An implementation of the FindMatchmakingAlgorithm that matches participants based on a FIFO strategy.
+ * An implementation of the FindMatchmakingAlgorithm that matches participants based on a FIFO strategy. Open matches
+ * known to this node are tracked in the {@link OpenMatchIndex} so that most requests claim a slot without querying the
+ * database. The database is only queried when the index has no open match for the configuration which the profile is
+ * not already in, and a new match is only created when the database has none either and the {@link WarmMatchPool} is
+ * empty. A claimed slot whose write fails is returned to the index unless the match itself rejected the profile.
+ *
+ * Slots freed by participants leaving are tracked in the {@link BackfillQueue} once the departure has been written,
+ * and the queue is consulted before anything else so that matches which lost participants are refilled first.
+ *
+ * A participant may bring a party. Every member lists the others in their own FIND, and {@link PartyReservations} holds
+ * them until the whole party has arrived. The last member to arrive adds the whole party to one match in a single
+ * transaction and hands that match to the others.
  */
 @ElementServiceExport(value = FindMatchmakingAlgorithm.class)
 @ElementServiceExport(value = FindMatchmakingAlgorithm.class, name = FIFOMatchmakingAlgorithm.NAME)
@@ -26,8 +46,23 @@ public class FIFOMatchmakingAlgorithm implements FindMatchmakingAlgorithm {
 
     public static final String NAME = "FIFO";
 
+    /**
+     * The number of indexed matches to try before falling back to querying the database.
+     */
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private OpenMatchIndex openMatchIndex;
+
+    private PartyReservations partyReservations;
+
+    private WarmMatchPool warmMatchPool;
+
+    private BackfillQueue backfillQueue;
+
     private Provider<Transaction> transactionProvider;
 
+    private MatchLifecycleWriter lifecycleWriter;
+
     @Override
     public String getName() {
         return NAME;
@@ -40,7 +75,7 @@ public class FIFOMatchmakingAlgorithm implements FindMatchmakingAlgorithm {
 
     @Override
     public MatchHandle<JoinHandshakeRequest> resume(final MatchmakingRequest<JoinHandshakeRequest> request) {
-        return new StandardJoinMatchHandle(this, request, getTransactionProvider());
+        return new StandardJoinMatchHandle(this, request, getTransactionProvider(), getLifecycleWriter());
     }
 
     public Provider<Transaction> getTransactionProvider() {
@@ -52,37 +87,346 @@ public class FIFOMatchmakingAlgorithm implements FindMatchmakingAlgorithm {
         this.transactionProvider = transactionProvider;
     }
 
+    public MatchLifecycleWriter getLifecycleWriter() {
+        return lifecycleWriter;
+    }
+
+    @Inject
+    public void setLifecycleWriter(MatchLifecycleWriter lifecycleWriter) {
+        this.lifecycleWriter = lifecycleWriter;
+    }
+
+    public OpenMatchIndex getOpenMatchIndex() {
+        return openMatchIndex;
+    }
+
+    @Inject
+    public void setOpenMatchIndex(final OpenMatchIndex openMatchIndex) {
+        this.openMatchIndex = openMatchIndex;
+    }
+
+    public PartyReservations getPartyReservations() {
+        return partyReservations;
+    }
+
+    @Inject
+    public void setPartyReservations(final PartyReservations partyReservations) {
+        this.partyReservations = partyReservations;
+    }
+
+    public WarmMatchPool getWarmMatchPool() {
+        return warmMatchPool;
+    }
+
+    @Inject
+    public void setWarmMatchPool(final WarmMatchPool warmMatchPool) {
+        this.warmMatchPool = warmMatchPool;
+    }
+
+    public BackfillQueue getBackfillQueue() {
+        return backfillQueue;
+    }
+
+    @Inject
+    public void setBackfillQueue(final BackfillQueue backfillQueue) {
+        this.backfillQueue = backfillQueue;
+    }
+
     private class FIFOMatchHandle extends StandardCancelableMatchHandle<FindHandshakeRequest> {
 
         public FIFOMatchHandle(final MatchmakingRequest<FindHandshakeRequest> request) {
-            super(FIFOMatchmakingAlgorithm.this, request, FIFOMatchmakingAlgorithm.this.getTransactionProvider());
+            super(
+                    FIFOMatchmakingAlgorithm.this,
+                    request,
+                    FIFOMatchmakingAlgorithm.this.getTransactionProvider(),
+                    FIFOMatchmakingAlgorithm.this.getLifecycleWriter()
+            );
         }
 
         @Override
         protected void onMatching(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
-            getRequest().getServer().submit(() -> {
-                final var result = getTransactionProvider().get().performAndClose(txn -> {
+            getRequest().getServer().submit(this::doMatch);
+        }
 
-                    final var dao = txn.getDao(MultiMatchDao.class);
-                    final var profile = getRequest().getProfile();
-                    final var configuration = getRequest().getApplicationConfiguration();
+        private void doMatch() {
+
+            final var configuration = getRequest().getApplicationConfiguration();
+            final var party = getRequest().getHandshakeRequest().getParty();
+
+            if (party != null && party.stream().anyMatch(id -> !getRequest().getProfile().getId().equals(id))) {
+                doMatchParty(configuration, party);
+                return;
+            }
+
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; ++attempt) {
+
+                final var backfill = getBackfillQueue().claim(configuration.getId());
+
+                if (backfill.isEmpty()) {
+                    break;
+                }
+
+                final var matchId = backfill.get().getId();
+
+                if (isLeaving(matchId)) {
+                    // The profile's departure from this match is still queued, so the slot is left for someone else.
+                    getBackfillQueue().offer(backfill.get());
+                    break;
+                }
+
+                try {
+                    final var result = getTransactionProvider().get().performAndClose(txn -> txn
+                            .getDao(MultiMatchDao.class)
+                            .addProfile(matchId, getRequest().getProfile())
+                    );
+                    setResult(result);
+                    return;
+                } catch (BaseException ex) {
+                    logger.debug("Backfill match {} rejected profile. Removing from queue.", matchId, ex);
+                    getBackfillQueue().remove(matchId);
+                }
+
+            }
+
+            final var profile = getRequest().getProfile();
+
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; ++attempt) {
+
+                final var claimed = getOpenMatchIndex().claim(configuration, profile.getId());
+
+                if (claimed.isEmpty()) {
+                    break;
+                }
+
+                final var matchId = claimed.get().getMatch().getId();
+
+                if (isLeaving(matchId)) {
+                    claimed.get().complete();
+                    release(configuration, claimed.get(), 1);
+                    break;
+                }
+
+                MultiMatch result = null;
+                boolean rejected = false;
+
+                try {
+                    result = getTransactionProvider().get().performAndClose(txn -> txn
+                            .getDao(MultiMatchDao.class)
+                            .addProfile(matchId, profile)
+                    );
+                } catch (BaseException ex) {
+                    logger.debug("Indexed match {} rejected profile. Removing from index.", matchId, ex);
+                    getOpenMatchIndex().remove(matchId);
+                    rejected = true;
+                } finally {
+                    claimed.get().complete();
+                    if (result == null && !rejected) release(configuration, claimed.get(), 1);
+                }
+
+                if (result != null) {
+                    claimed.get().addProfile(profile.getId());
+                    setResult(result);
+                    return;
+                }
 
-                    final var multiMatch =  dao
-                            .findOldestAvailableMultiMatchCandidate(configuration, profile.getId(), "")
-                            .orElseGet(() -> {
-                                final var m = new MultiMatch();
-                                m.setConfiguration(getRequest().getApplicationConfiguration());
-                                m.setStatus(MultiMatchStatus.OPEN);
-                                return dao.createMultiMatch(m);
-                            });
+            }
 
-                    return dao.addProfile(multiMatch.getId(), profile);
+            final var candidate = getTransactionProvider().get().performAndClose(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                return dao
+                        .findOldestAvailableMultiMatchCandidate(configuration, profile.getId(), "")
+                        .filter(m -> !isLeaving(m.getId()))
+                        .map(m -> dao.addProfile(m.getId(), profile));
+            });
 
+            // Taken outside any transaction, so that a retried transaction never takes a second pooled match and the
+            // pool's refill is not scheduled while the transaction is open.
+            final var result = candidate.orElseGet(() -> {
+                final var warm = getWarmMatchPool().take(configuration);
+                return getTransactionProvider().get().performAndClose(txn -> {
+                    final var dao = txn.getDao(MultiMatchDao.class);
+                    final var match = warm.orElseGet(() -> createMatch(dao, configuration));
+                    return dao.addProfile(match.getId(), profile);
                 });
+            });
+
+            getOpenMatchIndex().offer(result, configuration.getMaxProfiles() - result.getCount(), Set.of(profile.getId()));
+            setResult(result);
+
+        }
+
+        private void doMatchParty(final MatchmakingApplicationConfiguration configuration, final List<String> party) {
+
+            final var leader = getRequest().getProfile();
+            final var slots = party.stream().filter(id -> !leader.getId().equals(id)).distinct().count() + 1;
+
+            if (slots > configuration.getMaxProfiles()) {
+                throw new ForbiddenException(
+                        "Party of " + slots + " exceeds the maximum of " + configuration.getMaxProfiles() + " profiles."
+                );
+            }
+
+            // Only the last member of the party to arrive places it. Everyone before waits to be attached.
+            final var formed = getPartyReservations().reserve(
+                    configuration,
+                    leader,
+                    party,
+                    this::onPartyAttached,
+                    this::onPartyReleased
+            );
+
+            if (formed.isEmpty()) {
+                return;
+            }
+
+            final MultiMatch result;
+
+            try {
+                result = placeParty(configuration, leader, formed.get().getMembers());
+            } catch (RuntimeException ex) {
+                formed.get().release(ex);
+                throw ex;
+            }
+
+            formed.get().attach(result);
+            setResult(result);
+
+        }
+
+        private MultiMatch placeParty(
+                final MatchmakingApplicationConfiguration configuration,
+                final Profile leader,
+                final List<Profile> members) {
+
+            final var slots = members.size() + 1;
+            final var profileIds = Stream.concat(members.stream(), Stream.of(leader)).map(Profile::getId).toList();
+
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; ++attempt) {
+
+                final var claimed = getOpenMatchIndex().claim(configuration.getId(), 0, slots, profileIds);
+
+                if (claimed.isEmpty()) {
+                    break;
+                }
+
+                final var matchId = claimed.get().getMatch().getId();
+
+                MultiMatch result = null;
+                boolean rejected = false;
+
+                try {
+                    result = getTransactionProvider().get().performAndClose(txn -> addParty(
+                            txn.getDao(MultiMatchDao.class),
+                            matchId,
+                            leader,
+                            members
+                    ));
+                } catch (BaseException ex) {
+                    logger.debug("Indexed match {} rejected party. Removing from index.", matchId, ex);
+                    getOpenMatchIndex().remove(matchId);
+                    rejected = true;
+                } finally {
+                    claimed.get().complete();
+                    if (result == null && !rejected) release(configuration, claimed.get(), slots);
+                }
+
+                if (result != null) {
+                    profileIds.forEach(claimed.get()::addProfile);
+                    return result;
+                }
+
+            }
 
-                setResult(result);
+            // Existing matches found in the database may not have room for the whole party, so a party which does not
+            // fit any indexed match always starts a new one.
+            final var warm = getWarmMatchPool().take(configuration);
 
+            final var result = getTransactionProvider().get().performAndClose(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                final var match = warm.orElseGet(() -> createMatch(dao, configuration));
+                return addParty(dao, match.getId(), leader, members);
             });
+
+            getOpenMatchIndex().offer(result, configuration.getMaxProfiles() - result.getCount(), profileIds);
+            return result;
+
+        }
+
+        /**
+         * Returns slots claimed from the index whose write failed for some reason other than the match rejecting it,
+         * such as the database being unavailable. The match itself may still have room, so it stays indexed.
+         */
+        private void release(
+                final MatchmakingApplicationConfiguration configuration,
+                final OpenMatchIndex.OpenMatch claimed,
+                final int slots) {
+            for (int slot = 0; slot < slots; ++slot) {
+                getOpenMatchIndex().release(configuration.getId(), claimed.getMatch());
+            }
+        }
+
+        /**
+         * Checks whether this request's profile is still leaving the match. A profile placed back into such a match
+         * would be removed from it again once the queued departure is written.
+         */
+        private boolean isLeaving(final String matchId) {
+            return getLifecycleWriter().isLeaving(matchId, getRequest().getProfile().getId());
+        }
+
+        private void onPartyAttached(final MultiMatch match) {
+            // The request may have terminated after the party formed, in which case its place is given up.
+            if (setResult(match).phase() != MatchPhase.MATCHED) {
+                getLifecycleWriter().leave(match.getId(), getRequest().getProfile());
+            }
+        }
+
+        private void onPartyReleased(final Throwable th) {
+            logger.debug("Party was not matched for request: {}", getRequest(), th);
+            getRequest().failure(th);
+        }
+
+        private MultiMatch createMatch(final MultiMatchDao dao, final MatchmakingApplicationConfiguration configuration) {
+            final var match = new MultiMatch();
+            match.setConfiguration(configuration);
+            match.setStatus(MultiMatchStatus.OPEN);
+            return dao.createMultiMatch(match);
+        }
+
+        private MultiMatch addParty(
+                final MultiMatchDao dao,
+                final String matchId,
+                final Profile leader,
+                final List<Profile> members) {
+            members.forEach(member -> dao.addProfile(matchId, member));
+            return dao.addProfile(matchId, leader);
+        }
+
+        @Override
+        protected void onTerminated(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            getPartyReservations().withdraw(getRequest().getApplicationConfiguration(), getRequest().getProfile());
+            super.onTerminated(state);
+        }
+
+        @Override
+        protected void onCloseMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            getOpenMatchIndex().remove(state.result().getId());
+            getBackfillQueue().remove(state.result().getId());
+            super.onCloseMatch(state);
+        }
+
+        @Override
+        protected void onEndMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            getOpenMatchIndex().remove(state.result().getId());
+            getBackfillQueue().remove(state.result().getId());
+            super.onEndMatch(state);
+        }
+
+        @Override
+        protected void onLeft(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            // The freed slot goes to the backfill queue rather than back into the open match index, so that it is
+            // refilled ahead of slots in matches which have never been full.
+            getBackfillQueue().offer(state.result());
+            super.onLeft(state);
         }
 
     }
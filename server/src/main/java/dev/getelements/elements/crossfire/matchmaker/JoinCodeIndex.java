@@ -0,0 +1,276 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A node-local index of join codes to matches, with the profiles known to be members of each match. Matches created
+ * on this node are registered with their creator, and matches created elsewhere are loaded from the database the first
+ * time their code is used. Concurrent lookups for the same code share a single load, so a burst of participants
+ * joining with one code reads the database at most once.
+ *
+ * Entries follow the match lifecycle: members are removed when they leave, and the entry is dropped when the match
+ * closes, ends or is deleted, whether by a handle, the lifecycle writer, the reaper or another node. An entry is also
+ * dropped once the configuration's timeout has passed since it was indexed, as its code may since have expired and been
+ * issued to another match. Like {@link OpenMatchIndex} the index is advisory, so callers should {@link #remove(String)}
+ * a match whose database write is rejected.
+ */
+public class JoinCodeIndex {
+
+    @ElementDefaultAttribute(value = "10000", description = "The maximum number of join codes held in the index.")
+    public static final String MAX_ENTRIES = "dev.getelements.elements.crossfire.matchmaker.join.code.index.max.entries";
+
+    private final ConcurrentMap<String, CompletableFuture<Entry>> byJoinCode = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Entry> byMatchId = new ConcurrentHashMap<>();
+
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private int maxEntries;
+
+    private Provider<Transaction> transactionProvider;
+
+    /**
+     * Registers a match created on this node.
+     *
+     * @param match the match, which must have a join code
+     * @param members the IDs of the profiles already in the match
+     */
+    public void register(final MultiMatch match, final Collection<String> members) {
+        final var entry = new Entry(match);
+        entry.members.addAll(members);
+        entry.future = CompletableFuture.completedFuture(entry);
+        byJoinCode.put(entry.joinCode, entry.future);
+        track(entry);
+    }
+
+    /**
+     * Finds the entry for the join code, loading it from the database if this node has not seen the code.
+     *
+     * @param joinCode the join code
+     * @return the entry
+     */
+    public Entry find(final String joinCode) {
+
+        while (true) {
+
+            final var pending = new CompletableFuture<Entry>();
+            final var existing = byJoinCode.putIfAbsent(joinCode, pending);
+
+            if (existing == null) {
+                return load(joinCode, pending);
+            }
+
+            final Entry entry;
+
+            try {
+                entry = existing.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException rex ? rex : ex;
+            }
+
+            if (!entry.isExpired()) {
+                return entry;
+            }
+
+            evict(entry);
+
+        }
+
+    }
+
+    /**
+     * Records that the profile left the match. Has no effect if the match is not indexed.
+     *
+     * @param matchId the match id
+     * @param profileId the profile id
+     */
+    public void leave(final String matchId, final String profileId) {
+
+        final var entry = byMatchId.get(matchId);
+
+        if (entry != null) {
+            entry.removeMember(profileId);
+        }
+
+    }
+
+    /**
+     * Removes the match from the index, for example when it closes, ends, or the database rejects a write.
+     *
+     * @param matchId the match id
+     */
+    public void remove(final String matchId) {
+
+        final var entry = byMatchId.remove(matchId);
+
+        if (entry != null) {
+            // The code may already map to a newer entry, loaded after this one expired.
+            byJoinCode.remove(entry.joinCode, entry.future);
+        }
+
+    }
+
+    private Entry load(final String joinCode, final CompletableFuture<Entry> pending) {
+
+        final Entry entry;
+
+        try (final var transaction = getTransactionProvider().get()) {
+
+            final var dao = transaction.getDao(MultiMatchDao.class);
+            entry = new Entry(dao.getMultiMatchByJoinCode(joinCode));
+
+            dao.getProfiles(entry.match.getId())
+                    .stream()
+                    .map(Profile::getId)
+                    .forEach(entry.members::add);
+
+        } catch (RuntimeException ex) {
+            byJoinCode.remove(joinCode, pending);
+            pending.completeExceptionally(ex);
+            throw ex;
+        }
+
+        entry.future = pending;
+        pending.complete(entry);
+        track(entry);
+
+        return entry;
+
+    }
+
+    private void evict(final Entry entry) {
+        byMatchId.remove(entry.match.getId(), entry);
+        byJoinCode.remove(entry.joinCode, entry.future);
+    }
+
+    private void track(final Entry entry) {
+
+        final var previous = byMatchId.put(entry.match.getId(), entry);
+
+        if (previous != null) {
+            insertionOrder.remove(previous);
+        }
+
+        insertionOrder.add(entry);
+
+        while (byMatchId.size() > getMaxEntries()) {
+
+            final var eldest = insertionOrder.poll();
+
+            if (eldest == null) {
+                break;
+            } else {
+                evict(eldest);
+            }
+
+        }
+
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Inject
+    public void setMaxEntries(@Named(MAX_ENTRIES) int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    /**
+     * A match in the index.
+     */
+    public static final class Entry {
+
+        private final String joinCode;
+
+        private final MultiMatch match;
+
+        private final Set<String> members = ConcurrentHashMap.newKeySet();
+
+        private final long expiresAt;
+
+        private volatile CompletableFuture<Entry> future;
+
+        private Entry(final MultiMatch match) {
+
+            final var configuration = match.getConfiguration();
+            final var timeoutSeconds = configuration == null ? 0 : configuration.getTimeoutSeconds();
+
+            this.joinCode = match.getJoinCode().getId();
+            this.match = match;
+            this.expiresAt = timeoutSeconds > 0 ? System.nanoTime() + SECONDS.toNanos(timeoutSeconds) : Long.MAX_VALUE;
+
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+
+        /**
+         * Gets the match as it was when it was indexed.
+         *
+         * @return the match
+         */
+        public MultiMatch getMatch() {
+            return match;
+        }
+
+        /**
+         * Checks if the profile is known to be a member of the match.
+         *
+         * @param profileId the profile id
+         * @return true if the profile is a member
+         */
+        public boolean isMember(final String profileId) {
+            return members.contains(profileId);
+        }
+
+        /**
+         * Records the profile as a member of the match.
+         *
+         * @param profileId the profile id
+         * @return true if the profile was not already a member, in which case the caller must persist the membership
+         */
+        public boolean addMember(final String profileId) {
+            return members.add(profileId);
+        }
+
+        /**
+         * Records that the profile is no longer a member of the match.
+         *
+         * @param profileId the profile id
+         */
+        public void removeMember(final String profileId) {
+            members.remove(profileId);
+        }
+
+    }
+
+}
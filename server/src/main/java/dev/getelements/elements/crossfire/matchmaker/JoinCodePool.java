@@ -0,0 +1,266 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.dao.UniqueCodeDao;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.ucode.UniqueCode;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A pool of unique join codes reserved ahead of time, so that creating a match does not have to search the code space
+ * for a free code while the participant waits. There is one pool per {@link MatchmakingApplicationConfiguration}
+ * because the configuration determines each code's timeout and linger.
+ *
+ * Each pool tracks how quickly its codes are taken and is refilled in the background to cover that rate for the
+ * configured lead time. Codes are reserved without an owner and are handed out only while they are fresh, meaning no
+ * older than the configured maximum age nor half the configuration's timeout, so that every code handed out leaves its
+ * match most of its timeout. Older codes are discarded and released in the background rather than left to expire.
+ */
+public class JoinCodePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(JoinCodePool.class);
+
+    @ElementDefaultAttribute(value = "64", description = "The maximum number of pre-reserved join codes per configuration.")
+    public static final String MAX_SIZE = "dev.getelements.elements.crossfire.matchmaker.join.code.pool.max.size";
+
+    @ElementDefaultAttribute(value = "5", description = "The number of seconds of match creation the join code pool should cover.")
+    public static final String LEAD_SECONDS = "dev.getelements.elements.crossfire.matchmaker.join.code.pool.lead.seconds";
+
+    @ElementDefaultAttribute(value = "30", description = "The age, in seconds, after which a pre-reserved join code is discarded.")
+    public static final String MAX_AGE_SECONDS = "dev.getelements.elements.crossfire.matchmaker.join.code.pool.max.age.seconds";
+
+    /**
+     * The fraction of the configuration's timeout after which a pre-reserved join code is discarded.
+     */
+    private static final double MAX_AGE_TIMEOUT_FRACTION = 0.5;
+
+    /**
+     * The time constant, in seconds, of the moving average used to estimate how quickly codes are taken.
+     */
+    private static final double RATE_WINDOW_SECONDS = 10.0;
+
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    private int maxSize;
+
+    private int leadSeconds;
+
+    private int maxAgeSeconds;
+
+    private int joinCodeLength;
+
+    private int maxAttempts;
+
+    private ExecutorService executorService;
+
+    private Provider<Transaction> transactionProvider;
+
+    /**
+     * Takes a reserved code for a new match under the supplied configuration and schedules a refill if the pool has
+     * fallen below its target.
+     *
+     * @param configuration the configuration
+     * @return the code, or empty if the pool had no fresh code
+     */
+    public Optional<UniqueCode> take(final MatchmakingApplicationConfiguration configuration) {
+        final var pool = pools.computeIfAbsent(configuration.getId(), id -> new Pool());
+        final var code = pool.take(configuration);
+        pool.refill(configuration);
+        return code;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Inject
+    public void setMaxSize(@Named(MAX_SIZE) int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getLeadSeconds() {
+        return leadSeconds;
+    }
+
+    @Inject
+    public void setLeadSeconds(@Named(LEAD_SECONDS) int leadSeconds) {
+        this.leadSeconds = leadSeconds;
+    }
+
+    public int getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    @Inject
+    public void setMaxAgeSeconds(@Named(MAX_AGE_SECONDS) int maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    public int getJoinCodeLength() {
+        return joinCodeLength;
+    }
+
+    @Inject
+    public void setJoinCodeLength(@Named(SimpleJoinCodeMatchmakingAlgorithm.JOIN_CODE_LENGTH) int joinCodeLength) {
+        this.joinCodeLength = joinCodeLength;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Inject
+    public void setMaxAttempts(@Named(SimpleJoinCodeMatchmakingAlgorithm.MAX_ATTEMPTS) int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    private record Reserved(UniqueCode code, long reservedAt) {}
+
+    private class Pool {
+
+        private final Queue<Reserved> codes = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private final DemandEstimator demand = new DemandEstimator(RATE_WINDOW_SECONDS);
+
+        private Optional<UniqueCode> take(final MatchmakingApplicationConfiguration configuration) {
+
+            final var now = System.nanoTime();
+            final var maxAge = Math.min(
+                    SECONDS.toNanos(getMaxAgeSeconds()),
+                    (long) (SECONDS.toNanos(configuration.getTimeoutSeconds()) * MAX_AGE_TIMEOUT_FRACTION)
+            );
+
+            demand.record();
+
+            final var stale = new ArrayList<UniqueCode>();
+
+            try {
+
+                Reserved reserved;
+
+                while ((reserved = codes.poll()) != null) {
+
+                    size.decrementAndGet();
+
+                    if (now - reserved.reservedAt() < maxAge) {
+                        return Optional.of(reserved.code());
+                    }
+
+                    logger.debug("Discarding stale join code reserved {}s ago.",
+                            NANOSECONDS.toSeconds(now - reserved.reservedAt())
+                    );
+
+                    stale.add(reserved.code());
+
+                }
+
+                return Optional.empty();
+
+            } finally {
+                if (!stale.isEmpty()) {
+                    getExecutorService().submit(() -> release(stale));
+                }
+            }
+
+        }
+
+        private void release(final List<UniqueCode> stale) {
+            try {
+                getTransactionProvider().get().performAndCloseV(txn -> {
+                    final var dao = txn.getDao(UniqueCodeDao.class);
+                    stale.forEach(dao::releaseCode);
+                });
+            } catch (Exception ex) {
+                logger.warn("Unable to release {} stale join codes. They will expire instead.", stale.size(), ex);
+            }
+        }
+
+        private int target() {
+            return demand.target(getLeadSeconds(), 1, getMaxSize());
+        }
+
+        private void refill(final MatchmakingApplicationConfiguration configuration) {
+            if (size.get() < target() && refilling.compareAndSet(false, true)) {
+                getExecutorService().submit(() -> {
+                    try {
+                        doRefill(configuration);
+                    } catch (Exception ex) {
+                        logger.warn("Unable to refill join code pool for {}.", configuration.getId(), ex);
+                    } finally {
+                        refilling.set(false);
+                    }
+                });
+            }
+        }
+
+        private void doRefill(final MatchmakingApplicationConfiguration configuration) {
+
+            final var parameters = new UniqueCodeDao.GenerationParameters(
+                    configuration.getTimeoutSeconds(),
+                    configuration.getLingerSeconds(),
+                    getJoinCodeLength(),
+                    getMaxAttempts(),
+                    null,
+                    null
+            );
+
+            final var deficit = target() - size.get();
+
+            for (int i = 0; i < deficit; ++i) {
+
+                final var code = getTransactionProvider().get().performAndClose(txn -> txn
+                        .getDao(UniqueCodeDao.class)
+                        .generateCode(parameters)
+                );
+
+                codes.add(new Reserved(code, System.nanoTime()));
+                size.incrementAndGet();
+
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,489 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A node-local index of open matches with free slots, organized as FIFO queues. By default there is one queue per
+ * {@link MatchmakingApplicationConfiguration}, though callers may partition matches further using their own keys.
+ * Claiming a slot takes constant time and never touches the database. The index is advisory: another node may fill or
+ * end a match this node still considers open, so callers must persist the claim and {@link #remove(String)} the match
+ * if the database rejects it.
+ *
+ * Each queue may be split into shards so that concurrent requesters do not all claim slots in the same match and then
+ * contend for the same database document. Every claim starts at a randomly chosen shard, and new matches are spread
+ * across the shards in the same way. Claims first skip matches which already have a write in flight, and only settle
+ * for a busy match if every shard is busy, so concurrent writes land on different documents whenever possible. Callers
+ * report the end of each write with {@link OpenMatch#complete()}. Ordering is therefore FIFO within each shard and only
+ * approximately FIFO across the whole queue. An index created outside of injection has a single shard per queue.
+ *
+ * A match is dropped from the index as soon as a claim takes its last slot. Matches are often ended elsewhere, by the
+ * reaper or by another node, and a full match would otherwise stay indexed forever because no claim ever reaches it.
+ * Returning a slot to a dropped match with {@link #release(String, MultiMatch)} indexes it again.
+ *
+ * The index remembers the profiles placed in each match through it, so that a claim on behalf of a profile never
+ * lands in a match the profile already holds a slot in. A shard whose oldest match holds the profile is passed over, as
+ * is the whole index if every shard is in that state, leaving the caller to query the database instead.
+ */
+public class OpenMatchIndex {
+
+    @ElementDefaultAttribute(value = "4", description = "The number of shards per open match queue.")
+    public static final String SHARDS = "dev.getelements.elements.crossfire.matchmaking.open.match.index.shards";
+
+    /**
+     * The number of in-flight writes after which a match is only claimed if no idle match is available.
+     */
+    private static final int MAX_IN_FLIGHT = 1;
+
+    private final ConcurrentMap<String, List<Queue<OpenMatch>>> queues = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, OpenMatch> matches = new ConcurrentHashMap<>();
+
+    private int shards = 1;
+
+    /**
+     * Claims a slot in the oldest open match for the configuration.
+     *
+     * @param configuration the configuration
+     * @return the claimed match, or empty if no open match has a free slot
+     */
+    public Optional<OpenMatch> claim(final MatchmakingApplicationConfiguration configuration) {
+        return claim(configuration.getId(), 0);
+    }
+
+    /**
+     * Claims a slot for the profile in the oldest open match for the configuration which the profile is not already in.
+     *
+     * @param configuration the configuration
+     * @param profileId the profile id
+     * @return the claimed match, or empty if no open match has a free slot
+     */
+    public Optional<OpenMatch> claim(final MatchmakingApplicationConfiguration configuration, final String profileId) {
+        return claim(configuration.getId(), 0, 1, Set.of(profileId));
+    }
+
+    /**
+     * Claims a slot in the oldest open match in the queue, provided that match has been indexed for at least the
+     * supplied time.
+     *
+     * @param key the queue key
+     * @param minAgeMillis the minimum age, in milliseconds, of the match
+     * @return the claimed match, or empty if no sufficiently old open match has a free slot
+     */
+    public Optional<OpenMatch> claim(final String key, final long minAgeMillis) {
+        return claim(key, minAgeMillis, 1);
+    }
+
+    /**
+     * Claims several slots at once in the oldest open match in the queue, provided that match has been indexed for at
+     * least the supplied time. Either all slots are claimed or none are. If the oldest match in a shard has some free
+     * slots, but too few, it is left in place for smaller claims and the next shard is tried.
+     *
+     * @param key the queue key
+     * @param minAgeMillis the minimum age, in milliseconds, of the match
+     * @param slots the number of slots to claim
+     * @return the claimed match, or empty if the oldest open match cannot take all the slots
+     */
+    public Optional<OpenMatch> claim(final String key, final long minAgeMillis, final int slots) {
+        return claim(key, minAgeMillis, slots, Set.of());
+    }
+
+    /**
+     * Claims several slots at once for the supplied profiles, as {@link #claim(String, long, int)} does, skipping any
+     * match which already holds one of the profiles.
+     *
+     * @param key the queue key
+     * @param minAgeMillis the minimum age, in milliseconds, of the match
+     * @param slots the number of slots to claim
+     * @param profileIds the profiles the slots are claimed for
+     * @return the claimed match, or empty if the oldest open match cannot take all the slots
+     */
+    public Optional<OpenMatch> claim(
+            final String key,
+            final long minAgeMillis,
+            final int slots,
+            final Collection<String> profileIds) {
+
+        final var sharded = queues.get(key);
+
+        if (sharded == null) {
+            return Optional.empty();
+        }
+
+        final var home = ThreadLocalRandom.current().nextInt(sharded.size());
+
+        for (var maxInFlight : new int[] {MAX_IN_FLIGHT, Integer.MAX_VALUE}) {
+            for (int i = 0; i < sharded.size(); ++i) {
+
+                final var shard = sharded.get((home + i) % sharded.size());
+                final var claimed = claim(shard, minAgeMillis, slots, profileIds, maxInFlight);
+
+                if (claimed.isPresent()) {
+                    return claimed;
+                }
+
+            }
+        }
+
+        return Optional.empty();
+
+    }
+
+    private Optional<OpenMatch> claim(
+            final Queue<OpenMatch> queue,
+            final long minAgeMillis,
+            final int slots,
+            final Collection<String> profileIds,
+            final int maxInFlight) {
+
+        OpenMatch head;
+
+        while ((head = queue.peek()) != null) {
+
+            if (!head.removed.get() && head.getAgeMillis() < minAgeMillis) {
+                return Optional.empty();
+            } else if (!head.removed.get() && head.inFlight.get() >= maxInFlight) {
+                return Optional.empty();
+            } else if (!head.removed.get() && head.holdsAny(profileIds)) {
+                return Optional.empty();
+            }
+
+            if (head.claim(slots)) {
+
+                head.inFlight.incrementAndGet();
+
+                if (head.available.get() == 0) {
+                    retire(queue, head);
+                }
+
+                return Optional.of(head);
+
+            } else if (head.removed.get() || head.available.get() == 0) {
+                dequeue(queue, head);
+            } else {
+                return Optional.empty();
+            }
+
+        }
+
+        return Optional.empty();
+
+    }
+
+    /**
+     * Adds a match to the index with the supplied number of free slots.
+     *
+     * @param match the match
+     * @param available the number of free slots
+     */
+    public void offer(final MultiMatch match, final int available) {
+        offer(match.getConfiguration().getId(), match, available);
+    }
+
+    /**
+     * Adds a match to the named queue with the supplied number of free slots.
+     *
+     * @param key the queue key
+     * @param match the match
+     * @param available the number of free slots
+     */
+    public void offer(final String key, final MultiMatch match, final int available) {
+        offer(key, match, available, Set.of());
+    }
+
+    /**
+     * Adds a match to the index with the supplied number of free slots, recording the profiles already placed in it.
+     *
+     * @param match the match
+     * @param available the number of free slots
+     * @param profileIds the profiles in the match
+     */
+    public void offer(final MultiMatch match, final int available, final Collection<String> profileIds) {
+        offer(match.getConfiguration().getId(), match, available, profileIds);
+    }
+
+    /**
+     * Adds a match to the named queue with the supplied number of free slots, recording the profiles already placed in
+     * it.
+     *
+     * @param key the queue key
+     * @param match the match
+     * @param available the number of free slots
+     * @param profileIds the profiles in the match
+     */
+    public void offer(
+            final String key,
+            final MultiMatch match,
+            final int available,
+            final Collection<String> profileIds) {
+
+        if (available <= 0) {
+            return;
+        }
+
+        final var sharded = shards(key);
+        final var shard = sharded.get(ThreadLocalRandom.current().nextInt(sharded.size()));
+        final var open = new OpenMatch(shard, match, available);
+
+        open.profileIds.addAll(profileIds);
+
+        if (matches.putIfAbsent(match.getId(), open) == null) {
+            open.queued.set(true);
+            open.queue.add(open);
+        }
+
+    }
+
+    /**
+     * Returns a slot to the match, for example when a participant leaves. Has no effect if the match is not indexed,
+     * which is the case once the match has filled.
+     *
+     * @param matchId the match id
+     * @return true if the match was indexed and the slot returned
+     */
+    public boolean release(final String matchId) {
+
+        final var released = new AtomicBoolean();
+
+        // Holding the entry while the slot is returned keeps it from being retired in between.
+        matches.computeIfPresent(matchId, (id, open) -> {
+            open.available.incrementAndGet();
+            enqueue(open);
+            released.set(true);
+            return open;
+        });
+
+        return released.get();
+
+    }
+
+    /**
+     * Returns a slot to the match, indexing it again with a single free slot if it was dropped when it filled.
+     *
+     * @param match the match
+     */
+    public void release(final MultiMatch match) {
+        release(match.getConfiguration().getId(), match);
+    }
+
+    /**
+     * Returns a slot to the match in the named queue, indexing it again with a single free slot if it was dropped when
+     * it filled.
+     *
+     * @param key the queue key
+     * @param match the match
+     */
+    public void release(final String key, final MultiMatch match) {
+        if (!release(match.getId())) {
+            offer(key, match, 1);
+        }
+    }
+
+    /**
+     * Moves the match to the back of the named queue, keeping its free slots and the profiles recorded in it. Claims
+     * already in flight against the match complete as usual. Has no effect if the match is not indexed.
+     *
+     * @param matchId the match id
+     * @param key the queue key
+     * @return true if the match was indexed and moved
+     */
+    public boolean move(final String matchId, final String key) {
+
+        final var moved = new AtomicBoolean();
+
+        matches.computeIfPresent(matchId, (id, open) -> {
+
+            // The old entry is dropped lazily, as removed entries are, once it reaches the head of its queue.
+            open.removed.set(true);
+
+            final var sharded = shards(key);
+            final var shard = sharded.get(ThreadLocalRandom.current().nextInt(sharded.size()));
+            final var target = new OpenMatch(shard, open.match, open.available.get());
+
+            target.profileIds.addAll(open.profileIds);
+            enqueue(target);
+            moved.set(true);
+
+            return target;
+
+        });
+
+        return moved.get();
+
+    }
+
+    /**
+     * Removes the match from the index, for example when it closes, ends, or the database rejects a claim.
+     *
+     * @param matchId the match id
+     */
+    public void remove(final String matchId) {
+
+        final var open = matches.remove(matchId);
+
+        if (open != null) {
+            // Removed entries are dropped lazily as they reach the head of their queue.
+            open.removed.set(true);
+        }
+
+    }
+
+    private List<Queue<OpenMatch>> shards(final String key) {
+        return queues.computeIfAbsent(key, k -> Stream
+                .<Queue<OpenMatch>>generate(ConcurrentLinkedQueue::new)
+                .limit(Math.max(1, getShards()))
+                .toList()
+        );
+    }
+
+    private void enqueue(final OpenMatch open) {
+        if (open.available.get() > 0 && open.queued.compareAndSet(false, true)) {
+            open.queue.add(open);
+        }
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    @Inject
+    public void setShards(@Named(SHARDS) int shards) {
+        this.shards = shards;
+    }
+
+    private void retire(final Queue<OpenMatch> queue, final OpenMatch open) {
+
+        queue.remove(open);
+        open.queued.set(false);
+
+        matches.computeIfPresent(open.match.getId(), (id, existing) -> {
+
+            if (existing != open || open.available.get() > 0) {
+                // Either the match was indexed again or a slot was released since it filled.
+                enqueue(existing);
+                return existing;
+            }
+
+            open.removed.set(true);
+            return null;
+
+        });
+
+    }
+
+    private void dequeue(final Queue<OpenMatch> queue, final OpenMatch open) {
+
+        queue.remove(open);
+        open.queued.set(false);
+
+        // A slot may have been released between emptying the match and removing it from the queue.
+        if (!open.removed.get()) {
+            enqueue(open);
+        }
+
+    }
+
+    /**
+     * An open match in the index.
+     */
+    public static final class OpenMatch {
+
+        private final Queue<OpenMatch> queue;
+
+        private final MultiMatch match;
+
+        private final long indexedAt = System.nanoTime();
+
+        private final AtomicInteger available;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private final Set<String> profileIds = ConcurrentHashMap.newKeySet();
+
+        private OpenMatch(final Queue<OpenMatch> queue, final MultiMatch match, final int available) {
+            this.queue = queue;
+            this.match = match;
+            this.available = new AtomicInteger(available);
+        }
+
+        private boolean claim(final int slots) {
+
+            if (removed.get()) {
+                return false;
+            }
+
+            int current;
+
+            do {
+                current = available.get();
+                if (current < slots) return false;
+            } while (!available.compareAndSet(current, current - slots));
+
+            return true;
+
+        }
+
+        private boolean holdsAny(final Collection<String> profileIds) {
+            return profileIds.stream().anyMatch(this.profileIds::contains);
+        }
+
+        /**
+         * Records a profile placed in the match with this claim, so that later claims for the profile skip the match.
+         *
+         * @param profileId the profile id
+         */
+        public void addProfile(final String profileId) {
+            profileIds.add(profileId);
+        }
+
+        /**
+         * Signals that the caller has finished writing its claim to the database, whether or not the write succeeded.
+         * Every claim should be completed exactly once.
+         */
+        public void complete() {
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Gets the match as it was when it was indexed.
+         *
+         * @return the match
+         */
+        public MultiMatch getMatch() {
+            return match;
+        }
+
+        /**
+         * Gets the time since the match was first indexed.
+         *
+         * @return the age in milliseconds
+         */
+        public long getAgeMillis() {
+            return NANOSECONDS.toMillis(System.nanoTime() - indexedAt);
+        }
+
+    }
+
+}
@@ -0,0 +1,283 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.model.error.TimeoutException;
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.ForbiddenException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Holds party members until the whole party has asked to be matched together. Every member sends their own FIND
+ * listing the other members, and a member's listing is the only consent the server accepts for adding that member to
+ * a match on another member's behalf. The party forms when the last member arrives and finds every other member
+ * waiting with a matching party. That member places the whole party in one match and attaches the waiting members to
+ * it. A member whose party does not form before the reservation expires is released.
+ *
+ * Reservations are node-local, so every member of a party must reach the same node. A deployment which spreads
+ * clients across nodes cannot guarantee that, and members would wait out their reservations without ever meeting. Such
+ * deployments are configured as not being single node, in which case every party request is rejected immediately.
+ */
+public class PartyReservations {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartyReservations.class);
+
+    @ElementDefaultAttribute(value = "60", description = "The time, in seconds, party members wait for the rest of the party.")
+    public static final String RESERVATION_SECONDS = "dev.getelements.elements.crossfire.matchmaking.party.reservation.seconds";
+
+    @ElementDefaultAttribute(value = "true", description = "Whether every client reaches the same node. Party requests are rejected when false.")
+    public static final String SINGLE_NODE = "dev.getelements.elements.crossfire.matchmaking.party.single.node";
+
+    private final Map<String, Reservation> reservations = new HashMap<>();
+
+    private long reservationSeconds;
+
+    private boolean singleNode = true;
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * Reserves a place for the profile in its party. If every other member is already waiting with the same party, the
+     * party forms and their reservations are handed to the caller, which must place the whole party in one match and
+     * then either attach or release it. Otherwise, the profile waits until another member forms the party or the
+     * reservation expires.
+     *
+     * @param configuration the configuration the profile is matching under
+     * @param profile the profile
+     * @param party the profile IDs of the other members of the party
+     * @param onAttached called with the match if another member forms the party
+     * @param onReleased called if the reservation expires or is replaced before the party forms
+     * @return the formed party, or empty if the profile must wait for the other members
+     * @throws ForbiddenException if the deployment is not single node, so the party could never form
+     */
+    public Optional<Party> reserve(
+            final MatchmakingApplicationConfiguration configuration,
+            final Profile profile,
+            final Collection<String> party,
+            final Consumer<MultiMatch> onAttached,
+            final Consumer<Throwable> onReleased) {
+
+        if (!isSingleNode()) {
+            throw new ForbiddenException("Parties require every member to reach the same node.");
+        }
+
+        final var members = new HashSet<>(party);
+        members.remove(profile.getId());
+
+        final Reservation previous;
+        final Reservation reservation;
+
+        synchronized (this) {
+
+            final var waiting = members.stream()
+                    .map(member -> reservations.get(key(configuration.getId(), member)))
+                    .filter(r -> r != null && r.agrees(profile.getId(), members))
+                    .toList();
+
+            if (!members.isEmpty() && waiting.size() == members.size()) {
+                waiting.forEach(r -> reservations.remove(r.key, r));
+                waiting.forEach(Reservation::cancel);
+                return Optional.of(new Party(waiting));
+            }
+
+            final var key = key(configuration.getId(), profile.getId());
+            reservation = new Reservation(key, profile, members, onAttached, onReleased);
+            previous = reservations.put(key, reservation);
+
+        }
+
+        if (previous != null) {
+            logger.debug("Profile {} reserved a place again. Releasing previous reservation.", profile.getId());
+            previous.cancel();
+            previous.onReleased.accept(new IllegalStateException("Replaced by a newer party request."));
+        }
+
+        reservation.schedule();
+        return Optional.empty();
+
+    }
+
+    /**
+     * Withdraws the profile's reservation, if it is still waiting for the party to form.
+     *
+     * @param configuration the configuration the profile is matching under
+     * @param profile the profile
+     * @return true if a reservation was withdrawn
+     */
+    public boolean withdraw(final MatchmakingApplicationConfiguration configuration, final Profile profile) {
+
+        final Reservation reservation;
+
+        synchronized (this) {
+            reservation = reservations.remove(key(configuration.getId(), profile.getId()));
+        }
+
+        if (reservation == null) {
+            return false;
+        }
+
+        reservation.cancel();
+        return true;
+
+    }
+
+    private static String key(final String configurationId, final String profileId) {
+        return configurationId + "/" + profileId;
+    }
+
+    public long getReservationSeconds() {
+        return reservationSeconds;
+    }
+
+    @Inject
+    public void setReservationSeconds(@Named(RESERVATION_SECONDS) long reservationSeconds) {
+        this.reservationSeconds = reservationSeconds;
+    }
+
+    public boolean isSingleNode() {
+        return singleNode;
+    }
+
+    @Inject
+    public void setSingleNode(@Named(SINGLE_NODE) boolean singleNode) {
+        this.singleNode = singleNode;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
+    @Inject
+    public void setScheduledExecutorService(ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    /**
+     * The waiting members of a party which has formed. They are no longer reserved, so the member which formed the
+     * party must either attach them to a match or release them.
+     */
+    public static class Party {
+
+        private final List<Reservation> waiting;
+
+        private Party(final List<Reservation> waiting) {
+            this.waiting = waiting;
+        }
+
+        /**
+         * Gets the waiting members of the party, excluding the member which formed it.
+         *
+         * @return the members
+         */
+        public List<Profile> getMembers() {
+            return waiting.stream().map(r -> r.profile).toList();
+        }
+
+        /**
+         * Hands the match to every waiting member.
+         *
+         * @param match the match holding the whole party
+         */
+        public void attach(final MultiMatch match) {
+            waiting.forEach(r -> r.onAttached.accept(match));
+        }
+
+        /**
+         * Releases every waiting member without a match.
+         *
+         * @param th the reason the party could not be matched
+         */
+        public void release(final Throwable th) {
+            waiting.forEach(r -> r.onReleased.accept(th));
+        }
+
+    }
+
+    private class Reservation {
+
+        private final String key;
+
+        private final Profile profile;
+
+        private final Set<String> members;
+
+        private final Consumer<MultiMatch> onAttached;
+
+        private final Consumer<Throwable> onReleased;
+
+        private volatile ScheduledFuture<?> future;
+
+        private Reservation(
+                final String key,
+                final Profile profile,
+                final Set<String> members,
+                final Consumer<MultiMatch> onAttached,
+                final Consumer<Throwable> onReleased) {
+            this.key = key;
+            this.profile = profile;
+            this.members = members;
+            this.onAttached = onAttached;
+            this.onReleased = onReleased;
+        }
+
+        private boolean agrees(final String profileId, final Set<String> others) {
+            // This member listed the arriving profile and everyone the arriving profile listed, and nobody else.
+            return members.size() == others.size()
+                    && members.contains(profileId)
+                    && others.stream().allMatch(id -> id.equals(profile.getId()) || members.contains(id));
+        }
+
+        private void schedule() {
+            future = getScheduledExecutorService().schedule(
+                    () -> getExecutorService().submit(this::onTimeout),
+                    getReservationSeconds(),
+                    SECONDS
+            );
+        }
+
+        private void cancel() {
+            final var future = this.future;
+            if (future != null) future.cancel(false);
+        }
+
+        private void onTimeout() {
+
+            final boolean removed;
+
+            synchronized (PartyReservations.this) {
+                removed = reservations.remove(key, this);
+            }
+
+            if (removed) {
+                logger.debug("Party for profile {} did not form in time. Releasing reservation.", profile.getId());
+                onReleased.accept(new TimeoutException("The rest of the party did not arrive in time."));
+            }
+
+        }
+
+    }
+
+}
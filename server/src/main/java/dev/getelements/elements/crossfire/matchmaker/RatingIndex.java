@@ -0,0 +1,249 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sorted, concurrent index of entries with free slots keyed by rating. Finding and claiming the entry nearest to a
+ * rating takes O(log n) regardless of how many entries are waiting. Entries with no free slots leave the index and
+ * return when a slot is released.
+ *
+ * An entry may be {@link Entry#widen(double) widened} so that it accepts ratings beyond a requester's own tolerance, for
+ * example once it has waited a while without filling. Only the nearest entry on either side of the requested rating is
+ * considered, so a widened entry further away than a nearer, narrower one is passed over.
+ *
+ * @param <E> the type of value held by each entry
+ */
+public class RatingIndex<E> {
+
+    private static final Comparator<Key> KEY_COMPARATOR = Comparator
+            .comparingDouble(Key::rating)
+            .thenComparingLong(Key::sequence);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentSkipListMap<Key, Entry<E>> entries = new ConcurrentSkipListMap<>(KEY_COMPARATOR);
+
+    /**
+     * Adds a value to the index.
+     *
+     * @param rating the rating
+     * @param value the value
+     * @param available the number of free slots
+     * @return the entry
+     */
+    public Entry<E> add(final double rating, final E value, final int available) {
+
+        final var key = new Key(rating, sequence.getAndIncrement());
+        final var entry = new Entry<>(this, key, value, available);
+
+        if (available > 0) {
+            entry.indexed.set(true);
+            entries.put(key, entry);
+        }
+
+        return entry;
+
+    }
+
+    /**
+     * Claims a slot in the entry whose rating is nearest to the supplied rating, provided it lies within the tolerance
+     * or within the distance to which the entry has been widened.
+     *
+     * @param rating the rating
+     * @param tolerance the maximum distance between the ratings
+     * @return the claimed entry, or empty if there is none within the tolerance
+     */
+    public Optional<Entry<E>> claimNearest(final double rating, final double tolerance) {
+
+        while (true) {
+
+            final var lower = entries.floorEntry(new Key(rating, Long.MAX_VALUE));
+            final var higher = entries.ceilingEntry(new Key(rating, Long.MIN_VALUE));
+            final var nearest = nearest(rating, lower, higher);
+            final var other = nearest == lower ? higher : lower;
+
+            final Map.Entry<Key, Entry<E>> accepted;
+
+            if (accepts(nearest, rating, tolerance)) {
+                accepted = nearest;
+            } else if (accepts(other, rating, tolerance)) {
+                accepted = other;
+            } else {
+                return Optional.empty();
+            }
+
+            final var entry = accepted.getValue();
+
+            if (entry.claim()) {
+
+                if (entry.available.get() == 0) {
+                    entry.unindex();
+                }
+
+                return Optional.of(entry);
+
+            }
+
+            // Full or removed while we looked. Drop it and look again.
+            entry.unindex();
+
+        }
+
+    }
+
+    /**
+     * Gets the number of entries with free slots.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static <E> Map.Entry<Key, Entry<E>> nearest(
+            final double rating,
+            final Map.Entry<Key, Entry<E>> lower,
+            final Map.Entry<Key, Entry<E>> higher) {
+        if (lower == null) return higher;
+        if (higher == null) return lower;
+        final var toLower = rating - lower.getKey().rating();
+        final var toHigher = higher.getKey().rating() - rating;
+        return toLower <= toHigher ? lower : higher;
+    }
+
+    private static <E> boolean accepts(
+            final Map.Entry<Key, Entry<E>> candidate,
+            final double rating,
+            final double tolerance) {
+        return candidate != null &&
+               Math.abs(candidate.getKey().rating() - rating) <= Math.max(tolerance, candidate.getValue().tolerance);
+    }
+
+    private record Key(double rating, long sequence) {}
+
+    /**
+     * An entry in the index.
+     *
+     * @param <E> the type of value
+     */
+    public static final class Entry<E> {
+
+        private final RatingIndex<E> index;
+
+        private final Key key;
+
+        private final E value;
+
+        private final AtomicInteger available;
+
+        private final AtomicBoolean indexed = new AtomicBoolean();
+
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private volatile double tolerance;
+
+        private Entry(final RatingIndex<E> index, final Key key, final E value, final int available) {
+            this.index = index;
+            this.key = key;
+            this.value = value;
+            this.available = new AtomicInteger(available);
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @return the value
+         */
+        public E getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the rating under which the entry is indexed.
+         *
+         * @return the rating
+         */
+        public double getRating() {
+            return key.rating();
+        }
+
+        /**
+         * Gets the number of free slots.
+         *
+         * @return the number of free slots
+         */
+        public int getAvailable() {
+            return available.get();
+        }
+
+        /**
+         * Widens the distance within which the entry accepts ratings, regardless of the requester's own tolerance.
+         * Narrower values are ignored.
+         *
+         * @param tolerance the maximum distance between the ratings
+         */
+        public synchronized void widen(final double tolerance) {
+            this.tolerance = Math.max(this.tolerance, tolerance);
+        }
+
+        /**
+         * Returns a slot to the entry, indexing it again if it had been full.
+         */
+        public void release() {
+            if (!removed.get()) {
+                available.incrementAndGet();
+                reindex();
+            }
+        }
+
+        /**
+         * Permanently removes the entry from the index.
+         */
+        public void remove() {
+            removed.set(true);
+            unindex();
+        }
+
+        private boolean claim() {
+
+            if (removed.get()) {
+                return false;
+            }
+
+            int current;
+
+            do {
+                current = available.get();
+                if (current <= 0) return false;
+            } while (!available.compareAndSet(current, current - 1));
+
+            return true;
+
+        }
+
+        private void unindex() {
+
+            if (indexed.compareAndSet(true, false)) {
+                index.entries.remove(key, this);
+            }
+
+            // A slot may have been released between emptying the entry and removing it from the index.
+            reindex();
+
+        }
+
+        private void reindex() {
+            if (!removed.get() && available.get() > 0 && indexed.compareAndSet(false, true)) {
+                index.entries.put(key, this);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,304 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.FindMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchHandle;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
+import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
+import dev.getelements.elements.crossfire.util.RelaxationScheduler;
+import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.exception.BaseException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+
+import static java.util.stream.Collectors.toUnmodifiableSet;
+
+/**
+ * A FindMatchmakingAlgorithm which groups participants by region. Each participant reports its latency to each region
+ * in {@link FindHandshakeRequest#getRegionLatencies()} and is placed in the oldest open match in its nearest region.
+ * Open matches in other regions are only considered once they have waited longer than the configured threshold
+ * without filling, after which they accept participants from any region. Participants which report no latencies may
+ * join any region immediately. Latencies to regions which are not configured are ignored.
+ *
+ * Open matches are held in an {@link OpenMatchIndex} with one queue per configuration and region, plus a fallback queue
+ * for matches which accept any region. The {@link RelaxationScheduler} moves a waiting match into the fallback queue
+ * once the threshold passes, so each assignment inspects its nearest region and the fallback queue rather than every
+ * region.
+ */
+@ElementServiceExport(value = FindMatchmakingAlgorithm.class, name = RegionMatchmakingAlgorithm.NAME)
+public class RegionMatchmakingAlgorithm implements FindMatchmakingAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegionMatchmakingAlgorithm.class);
+
+    public static final String NAME = "REGION";
+
+    /**
+     * The region used for participants which report no usable latencies.
+     */
+    public static final String ANY_REGION = "*";
+
+    @ElementDefaultAttribute(value = "", description = "Comma-separated region names. Leave empty to match without regard to region.")
+    public static final String REGIONS = "dev.getelements.elements.crossfire.matchmaking.region.regions";
+
+    @ElementDefaultAttribute(value = "10", description = "The time, in seconds, before an open match accepts other regions.")
+    public static final String CROSS_REGION_WAIT_SECONDS = "dev.getelements.elements.crossfire.matchmaking.region.cross.region.wait.seconds";
+
+    /**
+     * The number of indexed matches to try in each queue before moving on.
+     */
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final OpenMatchIndex openMatchIndex = new OpenMatchIndex();
+
+    private Set<String> regions = Set.of();
+
+    private int crossRegionWaitSeconds;
+
+    private RelaxationScheduler relaxationScheduler;
+
+    private Provider<Transaction> transactionProvider;
+
+    private MatchLifecycleWriter lifecycleWriter;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public MatchHandle<FindHandshakeRequest> initialize(final MatchmakingRequest<FindHandshakeRequest> request) {
+        return new RegionMatchHandle(request);
+    }
+
+    @Override
+    public MatchHandle<JoinHandshakeRequest> resume(final MatchmakingRequest<JoinHandshakeRequest> request) {
+        return new StandardJoinMatchHandle(this, request, getTransactionProvider(), getLifecycleWriter());
+    }
+
+    /**
+     * Lists the regions the participant may be matched in, nearest first. Only configured regions are included, so that
+     * the set of queues is fixed at startup however many region names clients report. If no regions are configured the
+     * list is always empty.
+     *
+     * @param request the request
+     * @return the regions, nearest first, which may be empty
+     */
+    public List<String> getRegionsByLatency(final FindHandshakeRequest request) {
+
+        final var latencies = request.getRegionLatencies();
+
+        if (latencies == null) {
+            return List.of();
+        }
+
+        return latencies.entrySet()
+                .stream()
+                .filter(e -> e.getKey() != null && e.getValue() != null && e.getValue() >= 0)
+                .filter(e -> getRegions().contains(e.getKey()))
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .toList();
+
+    }
+
+    private static String key(final String configurationId, final String region) {
+        return configurationId + "/" + region;
+    }
+
+    public Set<String> getRegions() {
+        return regions;
+    }
+
+    @Inject
+    public void setRegions(@Named(REGIONS) String regions) {
+        this.regions = Arrays.stream(regions.split(","))
+                .map(String::trim)
+                .filter(r -> !r.isEmpty() && !ANY_REGION.equals(r))
+                .collect(toUnmodifiableSet());
+    }
+
+    public int getCrossRegionWaitSeconds() {
+        return crossRegionWaitSeconds;
+    }
+
+    @Inject
+    public void setCrossRegionWaitSeconds(@Named(CROSS_REGION_WAIT_SECONDS) int crossRegionWaitSeconds) {
+        this.crossRegionWaitSeconds = crossRegionWaitSeconds;
+    }
+
+    public RelaxationScheduler getRelaxationScheduler() {
+        return relaxationScheduler;
+    }
+
+    @Inject
+    public void setRelaxationScheduler(RelaxationScheduler relaxationScheduler) {
+        this.relaxationScheduler = relaxationScheduler;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(final Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    public MatchLifecycleWriter getLifecycleWriter() {
+        return lifecycleWriter;
+    }
+
+    @Inject
+    public void setLifecycleWriter(MatchLifecycleWriter lifecycleWriter) {
+        this.lifecycleWriter = lifecycleWriter;
+    }
+
+    private class RegionMatchHandle extends StandardCancelableMatchHandle<FindHandshakeRequest> {
+
+        private volatile String key;
+
+        private volatile MultiMatch opened;
+
+        public RegionMatchHandle(final MatchmakingRequest<FindHandshakeRequest> request) {
+            super(
+                    RegionMatchmakingAlgorithm.this,
+                    request,
+                    RegionMatchmakingAlgorithm.this.getTransactionProvider(),
+                    RegionMatchmakingAlgorithm.this.getLifecycleWriter()
+            );
+        }
+
+        @Override
+        protected void onMatching(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            getRequest().getServer().submit(this::doMatch);
+        }
+
+        private void doMatch() {
+
+            final var configuration = getRequest().getApplicationConfiguration();
+            final var configurationId = configuration.getId();
+            final var byLatency = getRegionsByLatency(getRequest().getHandshakeRequest());
+            final var preferred = byLatency.isEmpty() ? ANY_REGION : byLatency.get(0);
+
+            final var order = new LinkedHashSet<String>();
+            order.add(preferred);
+            order.add(ANY_REGION);
+
+            // Without latencies there is no region to protect, so any open match will do.
+            if (byLatency.isEmpty()) {
+                order.addAll(getRegions());
+            }
+
+            for (var region : order) {
+
+                final var result = claim(key(configurationId, region));
+
+                if (result.isPresent()) {
+                    key = key(configurationId, region);
+                    setResult(result.get());
+                    return;
+                }
+
+            }
+
+            final var result = getTransactionProvider().get().performAndClose(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                final var match = new MultiMatch();
+                match.setConfiguration(configuration);
+                match.setStatus(MultiMatchStatus.OPEN);
+                return dao.addProfile(dao.createMultiMatch(match).getId(), getRequest().getProfile());
+            });
+
+            final var available = configuration.getMaxProfiles() - result.getCount();
+
+            key = key(configurationId, preferred);
+            openMatchIndex.offer(key, result, available);
+            setResult(result);
+
+            if (available > 0 && !ANY_REGION.equals(preferred)) {
+                opened = result;
+                relax(getRelaxationScheduler(), List.of(Duration.ofSeconds(getCrossRegionWaitSeconds())));
+            }
+
+        }
+
+        private Optional<MultiMatch> claim(final String key) {
+
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; ++attempt) {
+
+                final var claimed = openMatchIndex.claim(key, 0);
+
+                if (claimed.isEmpty()) {
+                    return Optional.empty();
+                }
+
+                final var matchId = claimed.get().getMatch().getId();
+
+                try {
+                    return Optional.of(getTransactionProvider().get().performAndClose(txn -> txn
+                            .getDao(MultiMatchDao.class)
+                            .addProfile(matchId, getRequest().getProfile())
+                    ));
+                } catch (BaseException ex) {
+                    logger.debug("Indexed match {} rejected profile. Removing from index.", matchId, ex);
+                    openMatchIndex.remove(matchId);
+                } finally {
+                    claimed.get().complete();
+                }
+
+            }
+
+            return Optional.empty();
+
+        }
+
+        @Override
+        protected void onCloseMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            openMatchIndex.remove(state.result().getId());
+            super.onCloseMatch(state);
+        }
+
+        @Override
+        protected void onEndMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            openMatchIndex.remove(state.result().getId());
+            super.onEndMatch(state);
+        }
+
+        @Override
+        protected void onLeft(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            openMatchIndex.release(key, state.result());
+            super.onLeft(state);
+        }
+
+        @Override
+        protected void onRelaxed(final int level) {
+
+            final var match = opened;
+            final var fallback = key(getRequest().getApplicationConfiguration().getId(), ANY_REGION);
+
+            // The match has waited out the threshold, so it now accepts participants from any region.
+            if (openMatchIndex.move(match.getId(), fallback)) {
+                key = fallback;
+            }
+
+            super.onRelaxed(level);
+
+        }
+
+    }
+
+}
@@ -8,25 +8,40 @@ import dev.getelements.elements.crossfire.api.model.handshake.CreatedHandshakeRe
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeResponse;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinCodeHandshakeRequest;
 import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
 import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
 import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.annotation.ElementEventConsumer;
 import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.annotation.ElementServiceReference;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
 import dev.getelements.elements.sdk.dao.Transaction;
 import dev.getelements.elements.sdk.dao.UniqueCodeDao;
+import dev.getelements.elements.sdk.model.exception.BaseException;
 import dev.getelements.elements.sdk.model.match.MultiMatch;
 import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static dev.getelements.elements.sdk.dao.MultiMatchDao.MULTI_MATCH_DELETED;
 
 /**
- * A simple implementation of the JoinCodeMatchmakingAlgorithm that uses simple join codes to determine matches.
+ * A simple implementation of the JoinCodeMatchmakingAlgorithm that uses simple join codes to determine matches. Matches
+ * are normally taken, with their codes, from the {@link WarmMatchPool}. Failing that, the code is taken from the
+ * {@link JoinCodePool}, and a code is only generated while the participant waits when both pools are empty. Created matches are registered in the {@link JoinCodeIndex} so that
+ * participants joining by code on this node need no database reads.
  */
 @ElementServiceExport(value = JoinCodeMatchmakingAlgorithm.class)
 @ElementServiceExport(value = JoinCodeMatchmakingAlgorithm.class, name = SimpleJoinCodeMatchmakingAlgorithm.NAME)
 public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAlgorithm {
 
+    private static final Logger logger = LoggerFactory.getLogger(SimpleJoinCodeMatchmakingAlgorithm.class);
+
     public static final String NAME = "SIMPLE_JOIN_CODE";
 
     @ElementDefaultAttribute(value = "4", description = "The length of the join code to be generated.")
@@ -39,8 +54,16 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
 
     private int joinCodeLength;
 
+    private JoinCodePool joinCodePool;
+
+    private WarmMatchPool warmMatchPool;
+
+    private JoinCodeIndex joinCodeIndex;
+
     private Provider<Transaction> transactionProvider;
 
+    private MatchLifecycleWriter lifecycleWriter;
+
     @Override
     public String getName() {
         return NAME;
@@ -53,7 +76,7 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
 
     @Override
     public MatchHandle<JoinCodeHandshakeRequest> resume(final MatchmakingRequest<JoinCodeHandshakeRequest> request) {
-        return new StandardJoinCodeMatchHandle(this, request, getTransactionProvider());
+        return new StandardJoinCodeMatchHandle(this, request, getTransactionProvider(), getLifecycleWriter(), getJoinCodeIndex());
     }
 
     public Provider<Transaction> getTransactionProvider() {
@@ -65,6 +88,42 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
         this.transactionProvider = transactionProvider;
     }
 
+    public MatchLifecycleWriter getLifecycleWriter() {
+        return lifecycleWriter;
+    }
+
+    @Inject
+    public void setLifecycleWriter(MatchLifecycleWriter lifecycleWriter) {
+        this.lifecycleWriter = lifecycleWriter;
+    }
+
+    public JoinCodePool getJoinCodePool() {
+        return joinCodePool;
+    }
+
+    @Inject
+    public void setJoinCodePool(JoinCodePool joinCodePool) {
+        this.joinCodePool = joinCodePool;
+    }
+
+    public WarmMatchPool getWarmMatchPool() {
+        return warmMatchPool;
+    }
+
+    @Inject
+    public void setWarmMatchPool(WarmMatchPool warmMatchPool) {
+        this.warmMatchPool = warmMatchPool;
+    }
+
+    public JoinCodeIndex getJoinCodeIndex() {
+        return joinCodeIndex;
+    }
+
+    @Inject
+    public void setJoinCodeIndex(JoinCodeIndex joinCodeIndex) {
+        this.joinCodeIndex = joinCodeIndex;
+    }
+
     public int getMaxAttempts() {
         return maxAttempts;
     }
@@ -83,10 +142,21 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
         this.joinCodeLength = joinCodeLength;
     }
 
+    @ElementEventConsumer(value = MULTI_MATCH_DELETED, via = @ElementServiceReference(JoinCodeMatchmakingAlgorithm.class))
+    public void onMatchDeleted(final MultiMatch multiMatch) {
+        // Deleted matches, including those deleted on other nodes, must not be found by their join codes.
+        getJoinCodeIndex().remove(multiMatch.getId());
+    }
+
     private class JoinCodeMatchHandle extends StandardCancelableMatchHandle<CreateHandshakeRequest> {
 
         public JoinCodeMatchHandle(final MatchmakingRequest<CreateHandshakeRequest> request) {
-            super(SimpleJoinCodeMatchmakingAlgorithm.this, request, SimpleJoinCodeMatchmakingAlgorithm.this.getTransactionProvider());
+            super(
+                    SimpleJoinCodeMatchmakingAlgorithm.this,
+                    request,
+                    SimpleJoinCodeMatchmakingAlgorithm.this.getTransactionProvider(),
+                    SimpleJoinCodeMatchmakingAlgorithm.this.getLifecycleWriter()
+            );
         }
 
         @Override
@@ -101,10 +171,52 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
         @Override
         protected void onMatching(final CancelableMatchStateRecord<CreateHandshakeRequest> state) {
             getRequest().getServer().submit(() -> {
+
+                final var configuration = getRequest().getApplicationConfiguration();
+                final var warm = getWarmMatchPool().takeWithJoinCode(configuration);
+
+                if (warm.isPresent()) {
+                    try {
+                        final var result = getTransactionProvider().get().performAndClose(txn -> txn
+                                .getDao(MultiMatchDao.class)
+                                .addProfile(warm.get().getId(), getRequest().getProfile())
+                        );
+                        onCreated(result);
+                        return;
+                    } catch (BaseException ex) {
+                        logger.debug("Warm match {} rejected profile. Creating a new match.", warm.get().getId(), ex);
+                    }
+                }
+
+                final var pooled = getJoinCodePool().take(configuration);
+
+                if (pooled.isPresent()) {
+                    try {
+                        final var result = getTransactionProvider().get().performAndClose(txn -> {
+
+                            final var dao = txn.getDao(MultiMatchDao.class);
+
+                            var match = new MultiMatch();
+                            match.setConfiguration(configuration);
+                            match.setStatus(MultiMatchStatus.OPEN);
+                            match.setJoinCode(pooled.get());
+
+                            match = dao.createMultiMatch(match);
+                            return dao.addProfile(match.getId(), getRequest().getProfile());
+
+                        });
+
+                        onCreated(result);
+                        return;
+
+                    } catch (BaseException ex) {
+                        logger.debug("Pooled join code rejected. Generating a new code.", ex);
+                    }
+                }
+
                 final var result = getTransactionProvider().get().performAndClose(txn -> {
 
                     final var dao = txn.getDao(MultiMatchDao.class);
-                    final var configuration = getRequest().getApplicationConfiguration();
 
                     final var parameters = new UniqueCodeDao.GenerationParameters(
                         configuration.getTimeoutSeconds(),
@@ -116,7 +228,7 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
                     );
 
                     var match = new MultiMatch();
-                    match.setConfiguration(getRequest().getApplicationConfiguration());
+                    match.setConfiguration(configuration);
                     match.setStatus(MultiMatchStatus.OPEN);
 
                     match = dao.createMultiMatch(match, parameters);
@@ -124,11 +236,34 @@ public class SimpleJoinCodeMatchmakingAlgorithm implements JoinCodeMatchmakingAl
 
                 });
 
-                setResult(result);
+                onCreated(result);
 
             });
         }
 
+        private void onCreated(final MultiMatch result) {
+            getJoinCodeIndex().register(result, List.of(getRequest().getProfile().getId()));
+            setResult(result);
+        }
+
+        @Override
+        protected void onCloseMatch(final CancelableMatchStateRecord<CreateHandshakeRequest> state) {
+            getJoinCodeIndex().remove(state.result().getId());
+            super.onCloseMatch(state);
+        }
+
+        @Override
+        protected void onEndMatch(final CancelableMatchStateRecord<CreateHandshakeRequest> state) {
+            getJoinCodeIndex().remove(state.result().getId());
+            super.onEndMatch(state);
+        }
+
+        @Override
+        protected void onLeaveMatch(final CancelableMatchStateRecord<CreateHandshakeRequest> state) {
+            getJoinCodeIndex().leave(state.result().getId(), getRequest().getProfile().getId());
+            super.onLeaveMatch(state);
+        }
+
     }
 
 }
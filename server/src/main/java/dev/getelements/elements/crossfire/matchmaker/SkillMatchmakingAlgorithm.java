@@ -0,0 +1,341 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.FindMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchHandle;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
+import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
+import dev.getelements.elements.crossfire.util.RelaxationScheduler;
+import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.exception.BaseException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A FindMatchmakingAlgorithm which places participants into the open match whose rating is nearest their own. Open
+ * matches on this node are kept in a {@link RatingIndex} per configuration, so finding the best-fitting match takes
+ * O(log n) in the number of waiting matches. When no open match lies within the tolerance, a new match is created and
+ * indexed under the participant's rating.
+ *
+ * Ratings are read from the profile's metadata. Profiles without a rating are treated as having the default rating.
+ *
+ * A match is dropped from the index once its last slot is claimed, since it may be ended elsewhere and would otherwise
+ * be tracked forever. When a participant leaves a dropped match it is indexed again under its original rating.
+ *
+ * A match which waits to fill is relaxed by the {@link RelaxationScheduler}. After each configured wait it accepts
+ * participants one further tolerance away from its rating, so that long waits trade match quality for a match.
+ */
+@ElementServiceExport(value = FindMatchmakingAlgorithm.class, name = SkillMatchmakingAlgorithm.NAME)
+public class SkillMatchmakingAlgorithm implements FindMatchmakingAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(SkillMatchmakingAlgorithm.class);
+
+    public static final String NAME = "SKILL";
+
+    @ElementDefaultAttribute(value = "rating", description = "The profile metadata key holding the skill rating.")
+    public static final String RATING_METADATA_KEY = "dev.getelements.elements.crossfire.matchmaking.skill.rating.key";
+
+    @ElementDefaultAttribute(value = "1500", description = "The rating assumed for profiles without one.")
+    public static final String DEFAULT_RATING = "dev.getelements.elements.crossfire.matchmaking.skill.rating.default";
+
+    @ElementDefaultAttribute(value = "100", description = "The maximum rating difference between a participant and a match.")
+    public static final String RATING_TOLERANCE = "dev.getelements.elements.crossfire.matchmaking.skill.rating.tolerance";
+
+    @ElementDefaultAttribute(value = "15,30,60", description = "Comma-separated waits, in seconds, after which an open match widens its rating tolerance by another step.")
+    public static final String RATING_RELAXATION_SECONDS = "dev.getelements.elements.crossfire.matchmaking.skill.rating.relaxation.seconds";
+
+    /**
+     * The number of indexed matches to try before creating a new match.
+     */
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final ConcurrentMap<String, RatingIndex<MultiMatch>> indexes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RatingIndex.Entry<MultiMatch>> entries = new ConcurrentHashMap<>();
+
+    private String ratingMetadataKey;
+
+    private double defaultRating;
+
+    private double ratingTolerance;
+
+    private List<Duration> ratingRelaxationSteps = List.of();
+
+    private RelaxationScheduler relaxationScheduler;
+
+    private Provider<Transaction> transactionProvider;
+
+    private MatchLifecycleWriter lifecycleWriter;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public MatchHandle<FindHandshakeRequest> initialize(final MatchmakingRequest<FindHandshakeRequest> request) {
+        return new SkillMatchHandle(request);
+    }
+
+    @Override
+    public MatchHandle<JoinHandshakeRequest> resume(final MatchmakingRequest<JoinHandshakeRequest> request) {
+        return new StandardJoinMatchHandle(this, request, getTransactionProvider(), getLifecycleWriter());
+    }
+
+    /**
+     * Gets the rating of the profile.
+     *
+     * @param profile the profile
+     * @return the rating
+     */
+    public double getRating(final Profile profile) {
+
+        final var metadata = profile.getMetadata();
+        final var rating = metadata == null ? null : metadata.get(getRatingMetadataKey());
+
+        if (rating instanceof Number number) {
+            return number.doubleValue();
+        } else if (rating != null) {
+            try {
+                return Double.parseDouble(rating.toString());
+            } catch (NumberFormatException ex) {
+                logger.warn("Profile {} has invalid rating {}. Using default.", profile.getId(), rating);
+            }
+        }
+
+        return getDefaultRating();
+
+    }
+
+    private RatingIndex<MultiMatch> index(final String configurationId) {
+        return indexes.computeIfAbsent(configurationId, id -> new RatingIndex<>());
+    }
+
+    private void remove(final String matchId) {
+        final var entry = entries.remove(matchId);
+        if (entry != null) entry.remove();
+    }
+
+    private void retire(final RatingIndex.Entry<MultiMatch> entry) {
+        // Checked under the map entry so that a slot released since the claim keeps the match indexed.
+        entries.computeIfPresent(entry.getValue().getId(), (id, existing) -> {
+            if (existing == entry && entry.getAvailable() == 0) {
+                entry.remove();
+                return null;
+            } else {
+                return existing;
+            }
+        });
+    }
+
+    private void release(final MultiMatch match, final double rating) {
+        entries.compute(match.getId(), (id, existing) -> {
+            if (existing == null) {
+                return index(match.getConfiguration().getId()).add(rating, match, 1);
+            } else {
+                existing.release();
+                return existing;
+            }
+        });
+    }
+
+    public String getRatingMetadataKey() {
+        return ratingMetadataKey;
+    }
+
+    @Inject
+    public void setRatingMetadataKey(@Named(RATING_METADATA_KEY) String ratingMetadataKey) {
+        this.ratingMetadataKey = ratingMetadataKey;
+    }
+
+    public double getDefaultRating() {
+        return defaultRating;
+    }
+
+    @Inject
+    public void setDefaultRating(@Named(DEFAULT_RATING) double defaultRating) {
+        this.defaultRating = defaultRating;
+    }
+
+    public double getRatingTolerance() {
+        return ratingTolerance;
+    }
+
+    @Inject
+    public void setRatingTolerance(@Named(RATING_TOLERANCE) double ratingTolerance) {
+        this.ratingTolerance = ratingTolerance;
+    }
+
+    public List<Duration> getRatingRelaxationSteps() {
+        return ratingRelaxationSteps;
+    }
+
+    @Inject
+    public void setRatingRelaxationSeconds(@Named(RATING_RELAXATION_SECONDS) String ratingRelaxationSeconds) {
+        this.ratingRelaxationSteps = Arrays.stream(ratingRelaxationSeconds.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> Duration.ofSeconds(Long.parseLong(s)))
+                .sorted()
+                .toList();
+    }
+
+    public RelaxationScheduler getRelaxationScheduler() {
+        return relaxationScheduler;
+    }
+
+    @Inject
+    public void setRelaxationScheduler(RelaxationScheduler relaxationScheduler) {
+        this.relaxationScheduler = relaxationScheduler;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(final Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    public MatchLifecycleWriter getLifecycleWriter() {
+        return lifecycleWriter;
+    }
+
+    @Inject
+    public void setLifecycleWriter(MatchLifecycleWriter lifecycleWriter) {
+        this.lifecycleWriter = lifecycleWriter;
+    }
+
+    private class SkillMatchHandle extends StandardCancelableMatchHandle<FindHandshakeRequest> {
+
+        private volatile double matchRating;
+
+        private volatile RatingIndex.Entry<MultiMatch> opened;
+
+        public SkillMatchHandle(final MatchmakingRequest<FindHandshakeRequest> request) {
+            super(
+                    SkillMatchmakingAlgorithm.this,
+                    request,
+                    SkillMatchmakingAlgorithm.this.getTransactionProvider(),
+                    SkillMatchmakingAlgorithm.this.getLifecycleWriter()
+            );
+        }
+
+        @Override
+        protected void onMatching(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            getRequest().getServer().submit(this::doMatch);
+        }
+
+        private void doMatch() {
+
+            final var profile = getRequest().getProfile();
+            final var configuration = getRequest().getApplicationConfiguration();
+            final var index = index(configuration.getId());
+            final var rating = getRating(profile);
+
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; ++attempt) {
+
+                final var claimed = index.claimNearest(rating, getRatingTolerance());
+
+                if (claimed.isEmpty()) {
+                    break;
+                }
+
+                final var matchId = claimed.get().getValue().getId();
+
+                if (claimed.get().getAvailable() == 0) {
+                    retire(claimed.get());
+                }
+
+                try {
+                    final var result = getTransactionProvider().get().performAndClose(txn -> txn
+                            .getDao(MultiMatchDao.class)
+                            .addProfile(matchId, profile)
+                    );
+                    matchRating = claimed.get().getRating();
+                    setResult(result);
+                    return;
+                } catch (BaseException ex) {
+                    logger.debug("Indexed match {} rejected profile. Removing from index.", matchId, ex);
+                    remove(matchId);
+                }
+
+            }
+
+            final var result = getTransactionProvider().get().performAndClose(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                final var match = new MultiMatch();
+                match.setConfiguration(configuration);
+                match.setStatus(MultiMatchStatus.OPEN);
+                return dao.addProfile(dao.createMultiMatch(match).getId(), profile);
+            });
+
+            final var available = configuration.getMaxProfiles() - result.getCount();
+
+            if (available > 0) {
+                opened = index.add(rating, result, available);
+                entries.put(result.getId(), opened);
+            }
+
+            matchRating = rating;
+            setResult(result);
+
+            if (available > 0) {
+                relax(getRelaxationScheduler(), getRatingRelaxationSteps());
+            }
+
+        }
+
+        @Override
+        protected void onCloseMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            remove(state.result().getId());
+            super.onCloseMatch(state);
+        }
+
+        @Override
+        protected void onEndMatch(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            remove(state.result().getId());
+            super.onEndMatch(state);
+        }
+
+        @Override
+        protected void onLeft(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            release(state.result(), matchRating);
+            super.onLeft(state);
+        }
+
+        @Override
+        protected void onRelaxed(final int level) {
+
+            final var entry = opened;
+
+            if (entry != null) {
+                entry.widen(getRatingTolerance() * (level + 1));
+            }
+
+            super.onRelaxed(level);
+
+        }
+
+    }
+
+}
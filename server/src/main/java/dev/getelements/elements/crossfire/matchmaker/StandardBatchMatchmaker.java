@@ -0,0 +1,359 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.BatchMatchmaker;
+import dev.getelements.elements.crossfire.api.BatchMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Implements {@link BatchMatchmaker}. Each (algorithm, configuration) pair has its own queue of pending requests and
+ * its own tick, which is scheduled when the first request arrives and cancelled once the queue drains. Ticks are
+ * triggered by the shared {@link ScheduledExecutorService} and run on the {@link ExecutorService} so that slow
+ * transactions do not delay other timers. It is exported so that batch algorithms defined in other Elements share the
+ * same ticks.
+ */
+@ElementServiceExport(value = BatchMatchmaker.class)
+public class StandardBatchMatchmaker implements BatchMatchmaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StandardBatchMatchmaker.class);
+
+    @ElementDefaultAttribute(value = "100", description = "The interval, in milliseconds, between batch matchmaking ticks.")
+    public static final String TICK_MILLIS = "dev.getelements.elements.crossfire.matchmaking.batch.tick.millis";
+
+    private static final int PENDING = 0;
+
+    private static final int CLAIMED = 1;
+
+    private static final int CANCELLED = 2;
+
+    private final ConcurrentMap<BatchKey, Batch<?>> batches = new ConcurrentHashMap<>();
+
+    private long tickMillis;
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private Provider<Transaction> transactionProvider;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RequestT extends HandshakeRequest> Ticket enqueue(
+            final BatchMatchmakingAlgorithm<RequestT, ?> algorithm,
+            final MatchmakingRequest<RequestT> request,
+            final Consumer<MultiMatch> onMatched,
+            final Consumer<Throwable> onError) {
+
+        final var configuration = request.getApplicationConfiguration();
+        final var key = new BatchKey(algorithm, configuration.getId());
+        final var pending = new Pending<>(request, onMatched, onError);
+        final var created = new AtomicBoolean();
+
+        final var batch = batches.compute(key, (k, existing) -> {
+
+            final Batch<RequestT> b;
+
+            if (existing == null) {
+                b = new Batch<>(k, algorithm, configuration);
+                created.set(true);
+            } else {
+                b = (Batch<RequestT>) existing;
+            }
+
+            b.queue.add(pending);
+            return b;
+
+        });
+
+        // The tick is scheduled outside of the map so that the batch is fully constructed and published first. A batch
+        // is only retired by its own tick, so it cannot be retired before this.
+        if (created.get()) {
+            batch.schedule();
+        }
+
+        return pending::cancel;
+
+    }
+
+    private void tick(final Batch<?> batch) {
+        if (batches.get(batch.key) != batch) {
+            // Retired before its future was assigned, so the retiring tick could not cancel it.
+            batch.cancel();
+        } else if (batch.running.compareAndSet(false, true)) {
+            getExecutorService().submit(() -> {
+                try {
+                    run(batch);
+                } catch (Exception ex) {
+                    logger.error("Batch matchmaking failed for configuration {}.", batch.configuration.getId(), ex);
+                } finally {
+                    batch.running.set(false);
+                }
+            });
+        }
+    }
+
+    private <RequestT extends HandshakeRequest> void run(final Batch<RequestT> batch) {
+
+        final var pending = new ArrayList<Pending<RequestT>>();
+
+        for (var p = batch.queue.poll(); p != null; p = batch.queue.poll()) {
+            if (p.isPending()) {
+                pending.add(p);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            retire(batch);
+            return;
+        }
+
+        final List<Group<RequestT>> groups;
+
+        try {
+            groups = assign(batch, pending);
+        } catch (Exception ex) {
+            logger.error("Batch algorithm failed for configuration {}.", batch.configuration.getId(), ex);
+            pending.stream().filter(Pending::claim).forEach(p -> p.onError.accept(ex));
+            return;
+        }
+
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        final var results = new ArrayList<Map.Entry<Pending<RequestT>, MultiMatch>>();
+
+        try {
+            getTransactionProvider().get().performAndCloseV(txn -> {
+
+                final var dao = txn.getDao(MultiMatchDao.class);
+                results.clear();
+
+                for (var group : groups) {
+                    commit(dao, batch.configuration, group, results);
+                }
+
+            });
+        } catch (Exception ex) {
+            logger.error("Unable to commit batch for configuration {}.", batch.configuration.getId(), ex);
+            groups.forEach(g -> g.members().forEach(p -> p.onError.accept(ex)));
+            return;
+        }
+
+        results.forEach(e -> e.getKey().onMatched.accept(e.getValue()));
+
+    }
+
+    private <RequestT extends HandshakeRequest> List<Group<RequestT>> assign(
+            final Batch<RequestT> batch,
+            final List<Pending<RequestT>> pending) {
+
+        final var byRequest = new IdentityHashMap<MatchmakingRequest<RequestT>, Pending<RequestT>>();
+        pending.forEach(p -> byRequest.put(p.request, p));
+
+        final var requests = pending.stream().map(p -> p.request).toList();
+        final var groups = new ArrayList<Group<RequestT>>();
+
+        for (var assignment : batch.algorithm.match(batch.configuration, requests)) {
+
+            final var members = new ArrayList<Pending<RequestT>>();
+
+            for (var request : assignment.requests()) {
+
+                final var p = byRequest.remove(request);
+
+                if (p == null) {
+                    throw new IllegalArgumentException("Assignment contains a request which is not pending.");
+                }
+
+                members.add(p);
+
+            }
+
+            groups.add(new Group<>(assignment.matchId(), members));
+
+        }
+
+        // Unassigned requests go back to the front of the queue, in their original order, for the next tick.
+        final var unassigned = pending.stream().filter(p -> byRequest.containsKey(p.request)).toList();
+
+        for (int i = unassigned.size() - 1; i >= 0; --i) {
+            batch.queue.addFirst(unassigned.get(i));
+        }
+
+        groups.forEach(g -> g.members().removeIf(p -> !p.claim()));
+        groups.removeIf(g -> g.members().isEmpty());
+
+        return groups;
+
+    }
+
+    private <RequestT extends HandshakeRequest> void commit(
+            final MultiMatchDao dao,
+            final MatchmakingApplicationConfiguration configuration,
+            final Group<RequestT> group,
+            final List<Map.Entry<Pending<RequestT>, MultiMatch>> results) {
+
+        final String matchId;
+
+        if (group.matchId() == null) {
+            final var match = new MultiMatch();
+            match.setConfiguration(configuration);
+            match.setStatus(MultiMatchStatus.OPEN);
+            matchId = dao.createMultiMatch(match).getId();
+        } else {
+            matchId = group.matchId();
+        }
+
+        for (var p : group.members()) {
+            final var result = dao.addProfile(matchId, p.request.getProfile());
+            results.add(Map.entry(p, result));
+        }
+
+    }
+
+    private void retire(final Batch<?> batch) {
+        batches.compute(batch.key, (k, existing) -> {
+            if (existing == batch && batch.queue.isEmpty()) {
+                batch.cancel();
+                return null;
+            } else {
+                return existing;
+            }
+        });
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    @Inject
+    public void setTickMillis(@Named(TICK_MILLIS) long tickMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be > 0: " + tickMillis);
+        this.tickMillis = tickMillis;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
+    @Inject
+    public void setScheduledExecutorService(ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    private record BatchKey(BatchMatchmakingAlgorithm<?, ?> algorithm, String configurationId) {}
+
+    private record Group<RequestT extends HandshakeRequest>(String matchId, List<Pending<RequestT>> members) {}
+
+    private class Batch<RequestT extends HandshakeRequest> {
+
+        private final BatchKey key;
+
+        private final BatchMatchmakingAlgorithm<RequestT, ?> algorithm;
+
+        private final MatchmakingApplicationConfiguration configuration;
+
+        private final Deque<Pending<RequestT>> queue = new ConcurrentLinkedDeque<>();
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private volatile ScheduledFuture<?> future;
+
+        private Batch(
+                final BatchKey key,
+                final BatchMatchmakingAlgorithm<RequestT, ?> algorithm,
+                final MatchmakingApplicationConfiguration configuration) {
+            this.key = key;
+            this.algorithm = algorithm;
+            this.configuration = configuration;
+        }
+
+        private void schedule() {
+            future = getScheduledExecutorService().scheduleWithFixedDelay(
+                    () -> tick(this),
+                    getTickMillis(),
+                    getTickMillis(),
+                    MILLISECONDS
+            );
+        }
+
+        private void cancel() {
+            final var future = this.future;
+            if (future != null) future.cancel(false);
+        }
+
+    }
+
+    private static class Pending<RequestT extends HandshakeRequest> {
+
+        private final MatchmakingRequest<RequestT> request;
+
+        private final Consumer<MultiMatch> onMatched;
+
+        private final Consumer<Throwable> onError;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Pending(
+                final MatchmakingRequest<RequestT> request,
+                final Consumer<MultiMatch> onMatched,
+                final Consumer<Throwable> onError) {
+            this.request = request;
+            this.onMatched = onMatched;
+            this.onError = onError;
+        }
+
+        private boolean isPending() {
+            return state.get() == PENDING;
+        }
+
+        private boolean claim() {
+            return state.compareAndSet(PENDING, CLAIMED);
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+    }
+
+}
@@ -4,20 +4,25 @@ import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.MatchmakingRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinCodeHandshakeRequest;
 import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
 import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
 import dev.getelements.elements.sdk.dao.Transaction;
-import dev.getelements.elements.sdk.model.match.MultiMatch;
-import dev.getelements.elements.sdk.model.profile.Profile;
+import dev.getelements.elements.sdk.model.exception.BaseException;
 import jakarta.inject.Provider;
 
 public class StandardJoinCodeMatchHandle extends StandardCancelableMatchHandle<JoinCodeHandshakeRequest> {
 
+    private final JoinCodeIndex joinCodeIndex;
+
     public StandardJoinCodeMatchHandle(
             final MatchmakingAlgorithm<?,?> algorithm,
             final MatchmakingRequest<JoinCodeHandshakeRequest> request,
-            final Provider<Transaction> transactionProvider) {
-        super(algorithm, request, transactionProvider);
+            final Provider<Transaction> transactionProvider,
+            final MatchLifecycleWriter lifecycleWriter,
+            final JoinCodeIndex joinCodeIndex) {
+        super(algorithm, request, transactionProvider, lifecycleWriter);
+        this.joinCodeIndex = joinCodeIndex;
     }
 
     @Override
@@ -28,32 +33,43 @@ public class StandardJoinCodeMatchHandle extends StandardCancelableMatchHandle<J
 
     private void doFind() {
 
-        final MultiMatch multiMatchByJoinCode;
-
-        try (final var transaction = getTransactionProvider().get()) {
-
-            final var dao = transaction.getDao(MultiMatchDao.class);
-            final var handshakeRequest = getRequest().getHandshakeRequest();
-            multiMatchByJoinCode = dao.getMultiMatchByJoinCode(handshakeRequest.getJoinCode());
-
-            final var profileId = getRequest().getProfile().getId();
-
-            final var inMatch = dao
-                    .getProfiles(multiMatchByJoinCode.getId())
-                    .stream()
-                    .map(Profile::getId)
-                    .anyMatch(pid -> pid.equals(profileId));
-
-            if (!inMatch) {
-                dao.addProfile(multiMatchByJoinCode.getId(), getRequest().getProfile());
+        final var entry = joinCodeIndex.find(getRequest().getHandshakeRequest().getJoinCode());
+        final var match = entry.getMatch();
+        final var profile = getRequest().getProfile();
+
+        if (entry.addMember(profile.getId())) {
+            try {
+                getTransactionProvider().get().performAndCloseV(txn -> txn
+                        .getDao(MultiMatchDao.class)
+                        .addProfile(match.getId(), profile)
+                );
+            } catch (BaseException ex) {
+                // The match may have filled or ended on another node, so the index can no longer be trusted.
+                joinCodeIndex.remove(match.getId());
+                throw ex;
             }
+        }
 
-            transaction.commit();
+        setResult(match);
 
-        }
+    }
 
-        setResult(multiMatchByJoinCode);
+    @Override
+    protected void onCloseMatch(final CancelableMatchStateRecord<JoinCodeHandshakeRequest> state) {
+        joinCodeIndex.remove(state.result().getId());
+        super.onCloseMatch(state);
+    }
 
+    @Override
+    protected void onEndMatch(final CancelableMatchStateRecord<JoinCodeHandshakeRequest> state) {
+        joinCodeIndex.remove(state.result().getId());
+        super.onEndMatch(state);
+    }
+
+    @Override
+    protected void onLeaveMatch(final CancelableMatchStateRecord<JoinCodeHandshakeRequest> state) {
+        joinCodeIndex.leave(state.result().getId(), getRequest().getProfile().getId());
+        super.onLeaveMatch(state);
     }
 
 }
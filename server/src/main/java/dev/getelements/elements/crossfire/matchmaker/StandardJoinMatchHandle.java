@@ -3,6 +3,7 @@ package dev.getelements.elements.crossfire.matchmaker;
 import dev.getelements.elements.crossfire.util.CancelableMatchStateRecord;
 import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
 import dev.getelements.elements.crossfire.util.StandardCancelableMatchHandle;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
@@ -15,8 +16,9 @@ public class StandardJoinMatchHandle extends StandardCancelableMatchHandle<JoinH
     public StandardJoinMatchHandle(
             final MatchmakingAlgorithm<?,?> algorithm,
             final MatchmakingRequest<JoinHandshakeRequest> request,
-            final Provider<Transaction> transactionProvider) {
-        super(algorithm, request, transactionProvider);
+            final Provider<Transaction> transactionProvider,
+            final MatchLifecycleWriter lifecycleWriter) {
+        super(algorithm, request, transactionProvider, lifecycleWriter);
     }
 
     @Override
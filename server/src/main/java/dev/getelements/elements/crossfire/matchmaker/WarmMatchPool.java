@@ -0,0 +1,339 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.dao.UniqueCodeDao;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.BaseException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A pool of empty OPEN matches created ahead of time, so that the first participant to arrive for a configuration does
+ * not wait for the match to be created. There is one pool per {@link MatchmakingApplicationConfiguration}, and a
+ * separate one for matches which carry a join code.
+ *
+ * Each pool tracks how quickly its matches are taken and is refilled in the background to cover that rate for the
+ * configured lead time. A pool which is no longer used shrinks as the estimate decays. Each pool is swept
+ * periodically: matches older than the maximum age are deleted, provided nobody has joined them through another node,
+ * and an empty pool with no demand is retired.
+ */
+public class WarmMatchPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmMatchPool.class);
+
+    @ElementDefaultAttribute(value = "16", description = "The maximum number of pre-created matches per configuration.")
+    public static final String MAX_SIZE = "dev.getelements.elements.crossfire.matchmaker.warm.pool.max.size";
+
+    @ElementDefaultAttribute(value = "5", description = "The number of seconds of match creation the warm pool should cover.")
+    public static final String LEAD_SECONDS = "dev.getelements.elements.crossfire.matchmaker.warm.pool.lead.seconds";
+
+    @ElementDefaultAttribute(value = "60", description = "The age, in seconds, after which a pre-created match is deleted.")
+    public static final String MAX_AGE_SECONDS = "dev.getelements.elements.crossfire.matchmaker.warm.pool.max.age.seconds";
+
+    /**
+     * The time constant, in seconds, of the moving average used to estimate how quickly matches are taken.
+     */
+    private static final double RATE_WINDOW_SECONDS = 30.0;
+
+    private final ConcurrentMap<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+
+    private int maxSize;
+
+    private int leadSeconds;
+
+    private int maxAgeSeconds;
+
+    private int joinCodeLength;
+
+    private int maxAttempts;
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private Provider<Transaction> transactionProvider;
+
+    /**
+     * Takes a pre-created match without a join code.
+     *
+     * @param configuration the configuration
+     * @return the match, or empty if the pool had no fresh match
+     */
+    public Optional<MultiMatch> take(final MatchmakingApplicationConfiguration configuration) {
+        return take(configuration, false);
+    }
+
+    /**
+     * Takes a pre-created match with a join code.
+     *
+     * @param configuration the configuration
+     * @return the match, or empty if the pool had no fresh match
+     */
+    public Optional<MultiMatch> takeWithJoinCode(final MatchmakingApplicationConfiguration configuration) {
+        return take(configuration, true);
+    }
+
+    private Optional<MultiMatch> take(final MatchmakingApplicationConfiguration configuration, final boolean joinCode) {
+        final var key = new PoolKey(configuration.getId(), joinCode);
+        final var pool = pools.computeIfAbsent(key, k -> new Pool(k, configuration));
+
+        // Started outside the map so that scheduling the sweeper never runs under the map's lock. Only the first
+        // caller to see the new pool starts it.
+        pool.start();
+
+        final var match = pool.take();
+        pool.refill();
+        return match;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Inject
+    public void setMaxSize(@Named(MAX_SIZE) int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getLeadSeconds() {
+        return leadSeconds;
+    }
+
+    @Inject
+    public void setLeadSeconds(@Named(LEAD_SECONDS) int leadSeconds) {
+        this.leadSeconds = leadSeconds;
+    }
+
+    public int getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    @Inject
+    public void setMaxAgeSeconds(@Named(MAX_AGE_SECONDS) int maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    public int getJoinCodeLength() {
+        return joinCodeLength;
+    }
+
+    @Inject
+    public void setJoinCodeLength(@Named(SimpleJoinCodeMatchmakingAlgorithm.JOIN_CODE_LENGTH) int joinCodeLength) {
+        this.joinCodeLength = joinCodeLength;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Inject
+    public void setMaxAttempts(@Named(SimpleJoinCodeMatchmakingAlgorithm.MAX_ATTEMPTS) int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
+    @Inject
+    public void setScheduledExecutorService(ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    private record PoolKey(String configurationId, boolean joinCode) {}
+
+    private record Warm(MultiMatch match, long createdAt) {}
+
+    private class Pool {
+
+        private final PoolKey key;
+
+        private final MatchmakingApplicationConfiguration configuration;
+
+        private final Queue<Warm> matches = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private final DemandEstimator demand = new DemandEstimator(RATE_WINDOW_SECONDS);
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private volatile ScheduledFuture<?> sweeper;
+
+        private volatile boolean retired;
+
+        private Pool(final PoolKey key, final MatchmakingApplicationConfiguration configuration) {
+            this.key = key;
+            this.configuration = configuration;
+        }
+
+        private void start() {
+            if (started.compareAndSet(false, true)) {
+                final var interval = Math.max(1, getMaxAgeSeconds() / 2);
+                sweeper = getScheduledExecutorService().scheduleWithFixedDelay(
+                        () -> getExecutorService().submit(this::sweep),
+                        interval,
+                        interval,
+                        SECONDS
+                );
+            }
+        }
+
+        private Optional<MultiMatch> take() {
+
+            demand.record();
+
+            Warm warm;
+
+            while ((warm = matches.poll()) != null) {
+
+                size.decrementAndGet();
+
+                if (isFresh(warm)) {
+                    return Optional.of(warm.match());
+                }
+
+                final var stale = warm;
+                getExecutorService().submit(() -> delete(stale));
+
+            }
+
+            return Optional.empty();
+
+        }
+
+        private boolean isFresh(final Warm warm) {
+            return System.nanoTime() - warm.createdAt() < SECONDS.toNanos(getMaxAgeSeconds());
+        }
+
+        private int target() {
+            return demand.target(getLeadSeconds(), 0, getMaxSize());
+        }
+
+        private void refill() {
+            if (!retired && size.get() < target() && refilling.compareAndSet(false, true)) {
+                getExecutorService().submit(() -> {
+                    try {
+                        doRefill();
+                    } catch (BaseException ex) {
+                        logger.warn("Unable to refill warm match pool for {}.", key.configurationId(), ex);
+                    } finally {
+                        refilling.set(false);
+                    }
+                });
+            }
+        }
+
+        private void doRefill() {
+            for (int i = target() - size.get(); i > 0 && !retired; --i) {
+
+                final var match = getTransactionProvider().get().performAndClose(txn -> {
+
+                    final var dao = txn.getDao(MultiMatchDao.class);
+
+                    final var m = new MultiMatch();
+                    m.setConfiguration(configuration);
+                    m.setStatus(MultiMatchStatus.OPEN);
+
+                    if (!key.joinCode()) {
+                        return dao.createMultiMatch(m);
+                    }
+
+                    final var parameters = new UniqueCodeDao.GenerationParameters(
+                            configuration.getTimeoutSeconds(),
+                            configuration.getLingerSeconds(),
+                            getJoinCodeLength(),
+                            getMaxAttempts(),
+                            null,
+                            null
+                    );
+
+                    return dao.createMultiMatch(m, parameters);
+
+                });
+
+                matches.add(new Warm(match, System.nanoTime()));
+                size.incrementAndGet();
+
+            }
+        }
+
+        private void sweep() {
+
+            // Matches are queued in creation order, so the stale ones are always at the head.
+            for (var head = matches.peek(); head != null && !isFresh(head); head = matches.peek()) {
+                if (matches.remove(head)) {
+                    size.decrementAndGet();
+                    delete(head);
+                }
+            }
+
+            if (size.get() == 0 && target() == 0) {
+                retired = true;
+                sweeper.cancel(false);
+                pools.remove(key, this);
+            } else {
+                refill();
+            }
+
+        }
+
+        private void delete(final Warm warm) {
+
+            final var matchId = warm.match().getId();
+
+            try {
+                getTransactionProvider().get().performAndCloseV(txn -> {
+
+                    final var dao = txn.getDao(MultiMatchDao.class);
+
+                    // Other nodes may have found this match in the database and placed participants in it.
+                    if (dao.getProfiles(matchId).isEmpty()) {
+                        dao.deleteMultiMatch(matchId);
+                    }
+
+                });
+            } catch (BaseException ex) {
+                logger.debug("Unable to delete stale warm match {}.", matchId, ex);
+            }
+
+        }
+
+    }
+
+}
@@ -79,6 +79,18 @@ public interface ProtocolMessageHandler extends Server {
      */
     void stop(jakarta.websocket.Session session) throws IOException;
 
+    /**
+     * Stops the protocol message handler once the session has closed for the supplied reason. By default, this ignores
+     * the reason and behaves as {@link #stop(jakarta.websocket.Session)}.
+     *
+     * @param session the session
+     * @param reason the reason the session closed
+     * @throws IOException any IO exception if there was a problem writing
+     */
+    default void stop(jakarta.websocket.Session session, jakarta.websocket.CloseReason reason) throws IOException {
+        stop(session);
+    }
+
     /**
      * Handles all pong messages messages.
      *
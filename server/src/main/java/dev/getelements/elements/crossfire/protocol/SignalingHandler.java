@@ -4,6 +4,7 @@ import dev.getelements.elements.crossfire.api.model.control.ControlMessage;
 import dev.getelements.elements.crossfire.api.model.signal.BroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.DirectSignal;
 import dev.getelements.elements.sdk.annotation.ElementPublic;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 
 /**
@@ -31,6 +32,18 @@ public interface SignalingHandler {
      */
     void stop(ProtocolMessageHandler handler, Session session);
 
+    /**
+     * Stops the signaling handler once the session has closed for the supplied reason. By default, this ignores the
+     * reason and behaves as {@link #stop(ProtocolMessageHandler, Session)}.
+     *
+     * @param handler the protocol message handler
+     * @param session the session
+     * @param reason the reason the session closed
+     */
+    default void stop(ProtocolMessageHandler handler, Session session, CloseReason reason) {
+        stop(handler, session);
+    }
+
     /**
      * Handles the handshake message request.
      *
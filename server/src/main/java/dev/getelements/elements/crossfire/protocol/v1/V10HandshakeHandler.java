@@ -7,7 +7,6 @@ import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeReque
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
 import dev.getelements.elements.crossfire.protocol.ProtocolMessageHandler;
-import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
 import jakarta.inject.Inject;
 import jakarta.websocket.Session;
 
@@ -32,15 +31,7 @@ public class V10HandshakeHandler extends V1HandshakeHandler {
             final ProtocolMessageHandler handler,
             final Session session,
             final FindHandshakeRequest request) {
-        auth(handler, request, (auth) -> {
-
-            final var application = auth.profile().getApplication();
-
-            final var applicationConfiguration = getApplicationConfigurationDao().getApplicationConfiguration(
-                    MatchmakingApplicationConfiguration.class,
-                    application.getId(),
-                    request.getConfiguration()
-            );
+        auth(handler, request, configurationLookup(request.getConfiguration()), (auth, applicationConfiguration) -> {
 
             final var matchRequest = new V1MatchRequest<>(
                     handler,
@@ -66,9 +57,9 @@ public class V10HandshakeHandler extends V1HandshakeHandler {
             final ProtocolMessageHandler handler,
             final Session session,
             final JoinHandshakeRequest request) {
-        auth(handler, request, (auth) -> {
+        final var lookup = lookup(() -> getMultiMatchDao().getMultiMatch(request.getMatchId()));
+        auth(handler, request, lookup, (auth, match) -> {
 
-            final var match = getMultiMatchDao().getMultiMatch(request.getMatchId());
             final var applicationConfiguration = match.getConfiguration();
 
             final var matchRequest = new V1MatchRequest<>(
@@ -8,8 +8,8 @@ import dev.getelements.elements.crossfire.api.model.error.UnexpectedMessageExcep
 import dev.getelements.elements.crossfire.api.model.handshake.CreateHandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.JoinCodeHandshakeRequest;
+import dev.getelements.elements.crossfire.matchmaker.JoinCodeIndex;
 import dev.getelements.elements.crossfire.protocol.ProtocolMessageHandler;
-import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
 import jakarta.inject.Inject;
 import jakarta.websocket.Session;
 
@@ -19,6 +19,8 @@ public class V11HandshakeHandler extends V1HandshakeHandler {
 
     private JoinCodeMatchmakingAlgorithm joinCodeMatchmakingAlgorithm;
 
+    private JoinCodeIndex joinCodeIndex;
+
     @Override
     protected V1HandshakeStateRecord initStateRecord() {
         return V1HandshakeStateRecord.create(Version.V_1_1);
@@ -40,15 +42,7 @@ public class V11HandshakeHandler extends V1HandshakeHandler {
     private void onCreateMessage(final ProtocolMessageHandler handler,
                                  final Session session,
                                  final CreateHandshakeRequest request) {
-        auth(handler, request, (auth) -> {
-
-            final var application = auth.profile().getApplication();
-
-            final var applicationConfiguration = getApplicationConfigurationDao().getApplicationConfiguration(
-                    MatchmakingApplicationConfiguration.class,
-                    application.getId(),
-                    request.getConfiguration()
-            );
+        auth(handler, request, configurationLookup(request.getConfiguration()), (auth, applicationConfiguration) -> {
 
             final var matchRequest = new V1MatchRequest<>(
                     handler,
@@ -73,9 +67,9 @@ public class V11HandshakeHandler extends V1HandshakeHandler {
     private void onJoinCodeMessage(final ProtocolMessageHandler handler,
                                    final Session session,
                                    final JoinCodeHandshakeRequest request) {
-            auth(handler, request, (auth) -> {
+            final var lookup = lookup(() -> getJoinCodeIndex().find(request.getJoinCode()).getMatch());
+            auth(handler, request, lookup, (auth, match) -> {
 
-                final var match = getMultiMatchDao().getMultiMatchByJoinCode(request.getJoinCode());
                 final var applicationConfiguration = match.getConfiguration();
 
                 final var matchRequest = new V1MatchRequest<>(
@@ -107,4 +101,13 @@ public class V11HandshakeHandler extends V1HandshakeHandler {
         this.joinCodeMatchmakingAlgorithm = joinCodeMatchmakingAlgorithm;
     }
 
+    public JoinCodeIndex getJoinCodeIndex() {
+        return joinCodeIndex;
+    }
+
+    @Inject
+    public void setJoinCodeIndex(JoinCodeIndex joinCodeIndex) {
+        this.joinCodeIndex = joinCodeIndex;
+    }
+
 }
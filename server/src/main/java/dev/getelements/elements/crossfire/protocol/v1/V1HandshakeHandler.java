@@ -2,34 +2,33 @@ package dev.getelements.elements.crossfire.protocol.v1;
 
 import dev.getelements.elements.crossfire.api.MatchHandle;
 import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
-import dev.getelements.elements.crossfire.api.model.error.InvalidConfigurationException;
 import dev.getelements.elements.crossfire.api.model.error.ProtocolStateException;
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
 import dev.getelements.elements.crossfire.protocol.HandshakeHandler;
 import dev.getelements.elements.crossfire.protocol.ProtocolMessageHandler;
-import dev.getelements.elements.sdk.ElementRegistrySupplier;
-import dev.getelements.elements.sdk.dao.ApplicationConfigurationDao;
+import dev.getelements.elements.crossfire.service.AuthCacheService;
+import dev.getelements.elements.crossfire.service.MatchmakingConfigurationService;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
-import dev.getelements.elements.sdk.dao.ProfileDao;
-import dev.getelements.elements.sdk.model.application.ElementServiceReference;
 import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
 import dev.getelements.elements.sdk.model.exception.ForbiddenException;
 import dev.getelements.elements.sdk.model.profile.Profile;
-import dev.getelements.elements.sdk.service.auth.SessionService;
 import jakarta.inject.Inject;
-import jakarta.inject.Named;
 import jakarta.validation.Validator;
 import jakarta.websocket.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import static dev.getelements.elements.crossfire.protocol.HandshakePhase.MATCHING;
 import static dev.getelements.elements.crossfire.protocol.HandshakePhase.TERMINATED;
-import static dev.getelements.elements.sdk.service.Constants.UNSCOPED;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 
 public abstract class V1HandshakeHandler implements HandshakeHandler {
 
@@ -41,11 +40,9 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
 
     private MultiMatchDao multiMatchDao;
 
-    private ApplicationConfigurationDao applicationConfigurationDao;
+    private MatchmakingConfigurationService matchmakingConfigurationService;
 
-    private ProfileDao profileDao;
-
-    private SessionService sessionService;
+    private AuthCacheService authCacheService;
 
     @Override
     public void start(final ProtocolMessageHandler handler,
@@ -78,70 +75,17 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
             final Class<? extends AlgorithmT> algorithmClass,
             final MatchmakingApplicationConfiguration applicationConfiguration,
             final AlgorithmT defaultAlgorithm) {
-
-        final var matchmaker = applicationConfiguration.getMatchmaker();
-
-        return matchmaker == null
-                ? defaultAlgorithm
-                : algorithmFromConfiguration(algorithmClass, matchmaker);
-
+        return getMatchmakingConfigurationService().getAlgorithm(
+                algorithmClass,
+                applicationConfiguration,
+                defaultAlgorithm
+        );
     }
 
-    private <AlgorithmT extends MatchmakingAlgorithm<?, ?>>
-    AlgorithmT algorithmFromConfiguration(
-            final Class<? extends AlgorithmT> algorithmClass,
-            final ElementServiceReference matchmaker) {
-
-        final var elementOptional = ElementRegistrySupplier
-                .getElementLocal(getClass())
-                .get()
-                .stream()
-                .filter(e -> e.getElementRecord().definition().name().endsWith(matchmaker.getElementName()))
-                .findFirst();
-
-        if (elementOptional.isPresent()) {
-
-            logger.warn("Unable to find element with name {}.", matchmaker.getElementName());
-
-            throw new InvalidConfigurationException(
-                    "Unable to find element with name %s."
-                    .formatted(matchmaker.getElementName())
-            );
-
-        }
-
-        final var element = elementOptional.get();
-
-        final var type = (Class<? extends AlgorithmT>) Optional
-                .ofNullable(matchmaker.getServiceType())
-                .map(t -> {
-                    try {
-                        return element.getElementRecord()
-                                .classLoader()
-                                .loadClass(t);
-                    } catch (ClassNotFoundException e) {
-                        logger.error("Unable to load class {} for matchmaker service type.", t, e);
-                        return MatchmakingAlgorithm.class;
-                    }
-                })
-                .filter(t -> {
-                    if (algorithmClass.isAssignableFrom(t)) {
-                        return true;
-                    } else {
-                        logger.error("Matchmaking algoirthm {} is not assignable from class {}. Using default.",
-                                MatchmakingAlgorithm.class
-                        );
-                        return false;
-                    }
-                })
-                .orElse(algorithmClass);
-
-        final var name = matchmaker.getServiceName();
-
-        return name == null
-                ? element.getServiceLocator().getInstance(type)
-                : element.getServiceLocator().getInstance(type, name);
-
+    protected MatchmakingApplicationConfiguration getApplicationConfiguration(
+            final String applicationId,
+            final String configuration) {
+        return getMatchmakingConfigurationService().getConfiguration(applicationId, configuration);
     }
 
     protected void startMatching(final MatchHandle<?> matchHandle) {
@@ -156,9 +100,24 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
 
     }
 
-    protected void auth(final ProtocolMessageHandler handler,
-                        final HandshakeRequest request,
-                        final Consumer<ProtocolMessageHandler.AuthRecord> onAuthenticated) {
+    /**
+     * Authenticates the request while concurrently performing the supplied lookup. The session check, the profile
+     * lookup, and the lookup all run on the handler's executor. No lookup starts before the session key is known to be
+     * valid, so an unauthenticated client cannot cause any reads beyond the session check. Lookups which do not need the
+     * profile (such as fetching a match) then overlap with the profile lookup, while lookups which do need it (such as
+     * the application configuration) wait until the profile is authorized. The results of the lookup are only used once
+     * the request has been authorized, and an authentication failure takes precedence over a lookup failure.
+     *
+     * @param handler the handler
+     * @param request the request
+     * @param lookup the lookup to perform alongside authentication
+     * @param onAuthenticated called with the auth record and the lookup result once both are available
+     * @param <T> the type of the lookup result
+     */
+    protected <T> void auth(final ProtocolMessageHandler handler,
+                            final HandshakeRequest request,
+                            final Lookup<T> lookup,
+                            final BiConsumer<ProtocolMessageHandler.AuthRecord, T> onAuthenticated) {
 
         final var state = this.state.updateAndGet(V1HandshakeStateRecord::authenticating);
 
@@ -167,7 +126,7 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
                 logger.info("Handshake already terminated, cannot authenticate.");
                 state.leave();
             }
-            case AUTHENTICATING -> handler.submit(() -> doAuthenticate(handler, request, onAuthenticated));
+            case AUTHENTICATING -> doAuthenticate(handler, request, lookup, onAuthenticated);
             default -> {
                 logger.error("Unexpected handshake state: {}. Cannot authenticate.", state.phase());
                 state.leave();
@@ -177,25 +136,75 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
 
     }
 
-    private void doAuthenticate(final ProtocolMessageHandler handler,
-                                final HandshakeRequest request,
-                                final Consumer<ProtocolMessageHandler.AuthRecord> onAuthenticated) {
+    private <T> void doAuthenticate(final ProtocolMessageHandler handler,
+                                    final HandshakeRequest request,
+                                    final Lookup<T> lookup,
+                                    final BiConsumer<ProtocolMessageHandler.AuthRecord, T> onAuthenticated) {
 
-        final var session = getSessionService().checkAndRefreshSessionIfNecessary(request.getSessionKey());
+        final Executor executor = handler::submit;
 
-        Profile profile = session.getProfile();
+        final var session = supplyAsync(() -> getAuthCacheService().getSession(request.getSessionKey()), executor);
 
-        if (profile == null) {
-            logger.debug("No profile found for session. Attempting to find profile by session ID.");
-        }
+        final CompletableFuture<Profile> profile;
 
-        if (request.getProfileId() != null) {
-            logger.debug("Using profile ID from request: {}", request.getProfileId());
-            profile = getProfileDao().getActiveProfile(request.getProfileId());
-        } else {
+        if (request.getProfileId() == null) {
             logger.debug("No profile ID in request, using session profile (if available).");
+            profile = session.thenApply(s -> s.getProfile());
+        } else {
+            logger.debug("Using profile ID from request: {}", request.getProfileId());
+            profile = supplyAsync(() -> getAuthCacheService().getActiveProfile(request.getProfileId()), executor);
         }
 
+        final var authorized = session.thenCombine(profile, this::authorize);
+        final var result = lookup.start(session, authorized, executor);
+
+        authorized
+                .thenCombine(result, (record, value) -> {
+                    authenticated(handler, record, value, onAuthenticated);
+                    return null;
+                })
+                .whenComplete((v, th) -> {
+                    if (th != null) {
+                        final var cause = th instanceof CompletionException && th.getCause() != null
+                                ? th.getCause()
+                                : th;
+                        logger.debug("Handshake failed.", cause);
+                        handler.terminate(cause);
+                    }
+                });
+
+    }
+
+    /**
+     * Creates a {@link Lookup} which performs the supplied blocking operation once the session is valid, without waiting
+     * for the profile.
+     *
+     * @param supplier the operation
+     * @return the lookup
+     * @param <T> the result type
+     */
+    protected <T> Lookup<T> lookup(final Supplier<T> supplier) {
+        return (session, authorized, executor) -> session.thenApplyAsync(s -> supplier.get(), executor);
+    }
+
+    /**
+     * Creates a {@link Lookup} which fetches the named {@link MatchmakingApplicationConfiguration} for the profile's
+     * application once the profile is authorized.
+     *
+     * @param configuration the configuration name or id
+     * @return the lookup
+     */
+    protected Lookup<MatchmakingApplicationConfiguration> configurationLookup(final String configuration) {
+        return (session, authorized, executor) -> authorized.thenApplyAsync(
+                record -> getApplicationConfiguration(record.profile().getApplication().getId(), configuration),
+                executor
+        );
+    }
+
+    private ProtocolMessageHandler.AuthRecord authorize(
+            final dev.getelements.elements.sdk.model.session.Session session,
+            final Profile profile) {
+
         if (profile == null) {
             logger.debug("Unable to find profile for session and request.");
             throw new ForbiddenException();
@@ -206,7 +215,15 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
             throw new ForbiddenException();
         }
 
-        final var record = new ProtocolMessageHandler.AuthRecord(profile, session);
+        return new ProtocolMessageHandler.AuthRecord(profile, session);
+
+    }
+
+    private <T> void authenticated(final ProtocolMessageHandler handler,
+                                   final ProtocolMessageHandler.AuthRecord record,
+                                   final T value,
+                                   final BiConsumer<ProtocolMessageHandler.AuthRecord, T> onAuthenticated) {
+
         final var updated = this.state.updateAndGet(s -> s.authenticated(record));
 
         switch (updated.phase()) {
@@ -216,7 +233,7 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
             }
             case AUTHENTICATED -> {
                 handler.authenticated(record);
-                handler.submit(() -> onAuthenticated.accept(record));
+                onAuthenticated.accept(record, value);
             }
             default -> {
                 logger.error("Handshake not yet completed, attempting to authenticate.");
@@ -245,31 +262,46 @@ public abstract class V1HandshakeHandler implements HandshakeHandler {
         this.multiMatchDao = multiMatchDao;
     }
 
-    public ProfileDao getProfileDao() {
-        return profileDao;
+    public AuthCacheService getAuthCacheService() {
+        return authCacheService;
     }
 
     @Inject
-    public void setProfileDao(ProfileDao profileDao) {
-        this.profileDao = profileDao;
+    public void setAuthCacheService(AuthCacheService authCacheService) {
+        this.authCacheService = authCacheService;
     }
 
-    public SessionService getSessionService() {
-        return sessionService;
-    }
+    /**
+     * A lookup performed concurrently with authentication. Implementations must chain from one of the supplied stages
+     * rather than starting work immediately.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    protected interface Lookup<T> {
+
+        /**
+         * Starts the lookup.
+         *
+         * @param session the session, which completes once the session key is valid
+         * @param authorized the auth record, which completes once the profile is authorized for the session
+         * @param executor the executor on which to perform blocking work
+         * @return the result
+         */
+        CompletionStage<T> start(
+                CompletableFuture<dev.getelements.elements.sdk.model.session.Session> session,
+                CompletableFuture<ProtocolMessageHandler.AuthRecord> authorized,
+                Executor executor);
 
-    @Inject
-    public void setSessionService(@Named(UNSCOPED) SessionService sessionService) {
-        this.sessionService = sessionService;
     }
 
-    public ApplicationConfigurationDao getApplicationConfigurationDao() {
-        return applicationConfigurationDao;
+    public MatchmakingConfigurationService getMatchmakingConfigurationService() {
+        return matchmakingConfigurationService;
     }
 
     @Inject
-    public void setApplicationConfigurationDao(ApplicationConfigurationDao applicationConfigurationDao) {
-        this.applicationConfigurationDao = applicationConfigurationDao;
+    public void setMatchmakingConfigurationService(MatchmakingConfigurationService matchmakingConfigurationService) {
+        this.matchmakingConfigurationService = matchmakingConfigurationService;
     }
 
 }
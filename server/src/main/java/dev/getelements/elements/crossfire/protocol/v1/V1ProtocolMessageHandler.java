@@ -105,11 +105,16 @@ public class V1ProtocolMessageHandler implements ProtocolMessageHandler {
 
     @Override
     public void stop(final Session session) throws IOException {
+        stop(session, new CloseReason(NO_STATUS_CODE, "No reason given."));
+    }
+
+    @Override
+    public void stop(final Session session, final CloseReason reason) throws IOException {
         final var result = state.updateAndGet(V1ConnectionStateRecord::terminate);
         getPinger().stop();
         getV10HandshakeHandler().stop(this, session);
         getV11HandshakeHandler().stop(this, session);
-        getSignalingHandler().stop(this, session);
+        getSignalingHandler().stop(this, session, reason);
         terminate();
         logger.debug("{}: Stopping protocol message handler {}.", result.phase(), result.sessionId());
     }
@@ -123,8 +128,6 @@ public class V1ProtocolMessageHandler implements ProtocolMessageHandler {
     public void onMessage(final Session session, final ProtocolMessage message) throws IOException {
         perform(() -> {
 
-            final var violations = getValidator().validate(message);
-
             if (message.isServerOnly()) {
 
                 final var error = new StandardProtocolError();
@@ -134,8 +137,13 @@ public class V1ProtocolMessageHandler implements ProtocolMessageHandler {
 
                 final var reason = new CloseReason(NOT_CONSISTENT, "Invalid Message.");
                 doTerminate(reason, null);
+                return;
+
+            }
+
+            final var violation = validate(message);
 
-            } else if (violations.isEmpty()) {
+            if (violation == null) {
 
                 final var state = this.state.get();
                 logger.debug("{}: Session {} received protocol message {}", state, session.getId(), message.getType());
@@ -151,11 +159,7 @@ public class V1ProtocolMessageHandler implements ProtocolMessageHandler {
 
                 final var error = new StandardProtocolError();
                 error.setCode(INVALID_MESSAGE.toString());
-                error.setMessage("Invalid message: " + violations
-                        .stream()
-                        .map(ConstraintViolation::getMessage)
-                        .collect(Collectors.joining("\n"))
-                );
+                error.setMessage("Invalid message: " + violation);
 
                 session.getAsyncRemote().sendObject(error);
 
@@ -167,6 +171,28 @@ public class V1ProtocolMessageHandler implements ProtocolMessageHandler {
         });
     }
 
+    /**
+     * Validates the message. Signaling and control messages take the allocation-free path in
+     * {@link V1SignalValidator}, all others go through full bean validation.
+     *
+     * @param message the message
+     * @return null if valid, otherwise a description of the violations
+     */
+    private String validate(final ProtocolMessage message) {
+
+        if (V1SignalValidator.supports(message)) {
+            return V1SignalValidator.validate(message);
+        }
+
+        final var violations = getValidator().validate(message);
+
+        return violations.isEmpty() ? null : violations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining("\n"));
+
+    }
+
     private void onMessageReadyPhase(
             final V1ConnectionStateRecord state,
             final Session session,
@@ -0,0 +1,118 @@
+package dev.getelements.elements.crossfire.protocol.v1;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.control.ControlMessage;
+import dev.getelements.elements.crossfire.api.model.signal.*;
+
+/**
+ * Hand-written validation for the signaling and control messages. These messages make up nearly all the traffic once a
+ * match is underway, and the constraints on them are simple null checks. Running them through the full bean
+ * {@link jakarta.validation.Validator} walks the constraint metadata and allocates a violation set for every message,
+ * so this class performs the same checks directly and allocates nothing when the message is valid.
+ *
+ * Handshake requests, errors, and anything else not covered here are still validated by the full bean validator. The
+ * checks here must be kept in sync with the constraint annotations on the message types.
+ */
+final class V1SignalValidator {
+
+    private static final String NOT_NULL = " must not be null";
+
+    private V1SignalValidator() {}
+
+    /**
+     * Checks if the supplied message is covered by this validator.
+     *
+     * @param message the message
+     * @return true if this validator handles the message, false if full bean validation is necessary
+     */
+    static boolean supports(final ProtocolMessage message) {
+        return switch (message.getType().getCategory()) {
+            case SIGNALING, SIGNALING_DIRECT, CONTROL -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Validates the message. Only valid to call if {@link #supports(ProtocolMessage)} returned true.
+     *
+     * @param message the message
+     * @return null if the message is valid, otherwise a description of the first violation found
+     */
+    static String validate(final ProtocolMessage message) {
+        return switch (message.getType()) {
+            case SDP_OFFER -> validate((SdpOfferDirectSignal) message);
+            case SDP_ANSWER -> validate((SdpAnswerDirectSignal) message);
+            case CANDIDATE -> validate((CandidateDirectSignal) message);
+            case BINARY_RELAY -> validate((BinaryRelayDirectSignal) message);
+            case STRING_RELAY -> validate((StringRelayDirectSignal) message);
+            case BINARY_BROADCAST -> validate((BinaryBroadcastSignal) message);
+            case STRING_BROADCAST -> validate((StringBroadcastSignal) message);
+            case LEAVE, OPEN, CLOSE, END -> validate((ControlMessage) message);
+            // Server-only signals are rejected by the handler before validation matters.
+            case CONNECT, DISCONNECT, HOST, SIGNAL_JOIN, SIGNAL_LEAVE, ROSTER -> validate((BroadcastSignal) message);
+            default -> throw new IllegalArgumentException("Unsupported message type: " + message.getType());
+        };
+    }
+
+    private static String validate(final SdpOfferDirectSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getRecipientProfileId() == null) return "recipientProfileId" + NOT_NULL;
+        if (signal.getPeerSdp() == null) return "peerSdp" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final SdpAnswerDirectSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getRecipientProfileId() == null) return "recipientProfileId" + NOT_NULL;
+        if (signal.getPeerSdp() == null) return "peerSdp" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final CandidateDirectSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getRecipientProfileId() == null) return "recipientProfileId" + NOT_NULL;
+        if (signal.getMid() == null) return "mid" + NOT_NULL;
+        if (signal.getCandidate() == null) return "candidate" + NOT_NULL;
+        if (signal.getMidIndex() < 0) return "midIndex must be greater than or equal to 0";
+        return null;
+    }
+
+    private static String validate(final BinaryRelayDirectSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getRecipientProfileId() == null) return "recipientProfileId" + NOT_NULL;
+        if (signal.getPayload() == null) return "payload" + NOT_NULL;
+        if (signal.getLifecycle() == null) return "lifecycle" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final StringRelayDirectSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getRecipientProfileId() == null) return "recipientProfileId" + NOT_NULL;
+        if (signal.getPayload() == null) return "payload" + NOT_NULL;
+        if (signal.getLifecycle() == null) return "lifecycle" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final BinaryBroadcastSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getPayload() == null) return "payload" + NOT_NULL;
+        if (signal.getLifecycle() == null) return "lifecycle" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final StringBroadcastSignal signal) {
+        if (signal.getProfileId() == null) return "profileId" + NOT_NULL;
+        if (signal.getPayload() == null) return "payload" + NOT_NULL;
+        if (signal.getLifecycle() == null) return "lifecycle" + NOT_NULL;
+        return null;
+    }
+
+    private static String validate(final BroadcastSignal signal) {
+        return signal.getProfileId() == null ? "profileId" + NOT_NULL : null;
+    }
+
+    private static String validate(final ControlMessage message) {
+        return message.getProfileId() == null ? "profileId" + NOT_NULL : null;
+    }
+
+}
@@ -1,8 +1,10 @@
 package dev.getelements.elements.crossfire.protocol.v1;
 
+import dev.getelements.elements.crossfire.api.model.Version;
 import dev.getelements.elements.crossfire.api.model.control.ControlMessage;
 import dev.getelements.elements.crossfire.api.model.error.ProtocolStateException;
 import dev.getelements.elements.crossfire.api.model.error.UnexpectedMessageException;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
 import dev.getelements.elements.crossfire.api.model.signal.BroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.DirectSignal;
 import dev.getelements.elements.crossfire.protocol.ProtocolMessageHandler;
@@ -11,6 +13,7 @@ import dev.getelements.elements.crossfire.service.ControlService;
 import dev.getelements.elements.crossfire.service.MatchSignalingService;
 import dev.getelements.elements.sdk.model.exception.ForbiddenException;
 import jakarta.inject.Inject;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +25,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import static dev.getelements.elements.crossfire.protocol.v1.V1SignalingState.create;
+import static jakarta.websocket.CloseReason.CloseCodes.NORMAL_CLOSURE;
 
 public class V1SignalingHandler implements SignalingHandler {
 
@@ -49,9 +53,15 @@ public class V1SignalingHandler implements SignalingHandler {
             logger.debug("Already in match {}", matchId);
         }
 
+        final var request = match.matchHandle().getRequest().getHandshakeRequest();
+        final var version = request.getVersion();
+        final var lastSequence = request instanceof JoinHandshakeRequest join ? join.getLastSequence() : 0;
+
         final var subscription = getMatchSignalingService().connect(
                 matchId,
                 profileId,
+                version == null ? Version.V_1_0 : version,
+                lastSequence,
                 m -> session.getAsyncRemote().sendObject(m),
                 e -> logger.error("Error in signaling for match {} and profile {}", matchId, profileId, e)
         );
@@ -89,6 +99,27 @@ public class V1SignalingHandler implements SignalingHandler {
 
     }
 
+    @Override
+    public void stop(
+            final ProtocolMessageHandler handler,
+            final Session session,
+            final CloseReason reason) {
+
+        stop(handler, session);
+
+        final var state = this.state.get();
+
+        // A normal closure means the client went away deliberately and will not reconnect, so there is no need to
+        // hold its presence for the grace window.
+        if (state.match() != null && NORMAL_CLOSURE.equals(reason.getCloseCode())) {
+            final var matchId = state.match().getId();
+            final var profileId = state.auth().profile().getId();
+            getMatchSignalingService().disconnect(matchId, profileId);
+            logger.debug("Disconnected profile {} from match {} on normal closure.", profileId, matchId);
+        }
+
+    }
+
     @Override
     public void onMessage(
             final ProtocolMessageHandler handler,
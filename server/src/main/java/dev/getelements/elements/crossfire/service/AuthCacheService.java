@@ -0,0 +1,46 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import dev.getelements.elements.sdk.model.session.Session;
+
+/**
+ * Caches the results of authenticating handshakes. When a node restarts, many clients reconnect at once using the same
+ * session keys they held before. This service allows those handshakes to skip the database in the common case.
+ */
+@ElementPublic
+@ElementServiceExport
+public interface AuthCacheService {
+
+    /**
+     * Gets the {@link Session} for the supplied session key, checking and refreshing it if necessary.
+     *
+     * @param sessionKey the session key
+     * @return the session
+     */
+    Session getSession(String sessionKey);
+
+    /**
+     * Gets the active {@link Profile} with the supplied ID.
+     *
+     * @param profileId the profile id
+     * @return the profile
+     */
+    Profile getActiveProfile(String profileId);
+
+    /**
+     * Removes the session from the cache. Call this when a session is revoked so that subsequent handshakes fail.
+     *
+     * @param sessionKey the session key
+     */
+    void invalidateSession(String sessionKey);
+
+    /**
+     * Removes the profile from the cache. Call this when a profile is deactivated or otherwise changed.
+     *
+     * @param profileId the profile id
+     */
+    void invalidateProfile(String profileId);
+
+}
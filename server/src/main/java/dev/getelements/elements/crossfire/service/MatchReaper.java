@@ -0,0 +1,169 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.matchmaker.JoinCodeIndex;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.exception.BaseException;
+import dev.getelements.elements.sdk.model.exception.InvalidMultiMatchPhaseException;
+import dev.getelements.elements.sdk.model.exception.MultiMatchNotFoundException;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static dev.getelements.elements.sdk.model.match.MultiMatchStatus.ENDED;
+
+/**
+ * Ends matches which have no participants left in the background. Callers may reap a match while holding its lock, as
+ * reaping only queues the match id and never waits on the database.
+ *
+ * Queued matches are ended together in a single transaction. Matches which were deleted, or which were already ended
+ * elsewhere, are skipped. Should the transaction fail, each match is retried in a transaction of its own. Reaped
+ * matches are then dropped from the {@link JoinCodeIndex}, so their codes are looked up again should they be reused.
+ */
+public class MatchReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchReaper.class);
+
+    /**
+     * The maximum number of matches ended in a single transaction.
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final Set<String> pending = new LinkedHashSet<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private ExecutorService executorService;
+
+    private Provider<Transaction> transactionProvider;
+
+    private JoinCodeIndex joinCodeIndex;
+
+    /**
+     * Queues the match to be ended.
+     *
+     * @param matchId the match id
+     */
+    public void reap(final String matchId) {
+
+        synchronized (pending) {
+            pending.add(matchId);
+        }
+
+        drain();
+
+    }
+
+    private void drain() {
+        if (draining.compareAndSet(false, true)) {
+            getExecutorService().submit(this::doDrain);
+        }
+    }
+
+    private void doDrain() {
+
+        try {
+            for (var batch = take(); !batch.isEmpty(); batch = take()) {
+                end(batch);
+                batch.forEach(getJoinCodeIndex()::remove);
+            }
+        } finally {
+            draining.set(false);
+        }
+
+        // A match may have been queued after the last batch was taken but before the flag was cleared.
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+        }
+
+        drain();
+
+    }
+
+    private List<String> take() {
+        synchronized (pending) {
+
+            final var batch = new ArrayList<String>(Math.min(MAX_BATCH_SIZE, pending.size()));
+            final var iterator = pending.iterator();
+
+            while (iterator.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+
+            return batch;
+
+        }
+    }
+
+    private void end(final List<String> batch) {
+
+        try {
+            getTransactionProvider().get().performAndCloseV(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                batch.forEach(matchId -> end(dao, matchId));
+            });
+            return;
+        } catch (BaseException ex) {
+            logger.debug("Unable to end batch of {} matches. Retrying individually.", batch.size(), ex);
+        }
+
+        for (var matchId : batch) {
+            try {
+                getTransactionProvider().get().performAndCloseV(txn -> end(txn.getDao(MultiMatchDao.class), matchId));
+            } catch (MultiMatchNotFoundException ex) {
+                logger.debug("Could not end MultiMatch {} because it was not found.", matchId);
+            } catch (InvalidMultiMatchPhaseException ex) {
+                logger.debug("Could not end MultiMatch {} because it was in an invalid state: {}", matchId, ex.getActual());
+            } catch (BaseException ex) {
+                logger.warn("Could not end MultiMatch {}.", matchId, ex);
+            }
+        }
+
+    }
+
+    private void end(final MultiMatchDao dao, final String matchId) {
+        dao.findMultiMatch(matchId)
+                .filter(match -> !ENDED.equals(match.getStatus()))
+                .ifPresentOrElse(
+                        match -> dao.endMatch(match.getId()),
+                        () -> logger.debug("MultiMatch {} was not found or already ended.", matchId)
+                );
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public Provider<Transaction> getTransactionProvider() {
+        return transactionProvider;
+    }
+
+    @Inject
+    public void setTransactionProvider(Provider<Transaction> transactionProvider) {
+        this.transactionProvider = transactionProvider;
+    }
+
+    public JoinCodeIndex getJoinCodeIndex() {
+        return joinCodeIndex;
+    }
+
+    @Inject
+    public void setJoinCodeIndex(JoinCodeIndex joinCodeIndex) {
+        this.joinCodeIndex = joinCodeIndex;
+    }
+
+}
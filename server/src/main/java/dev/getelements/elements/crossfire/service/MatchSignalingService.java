@@ -1,6 +1,7 @@
 package dev.getelements.elements.crossfire.service;
 
 import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.Version;
 import dev.getelements.elements.crossfire.api.model.signal.BroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.DirectSignal;
 import dev.getelements.elements.sdk.Subscription;
@@ -66,6 +67,41 @@ public interface MatchSignalingService {
             Consumer<Throwable> onError
     );
 
+    /**
+     * Subscribes to updates as in {@link #connect(String, String, Consumer, Consumer)}, using the protocol version the
+     * client negotiated during the handshake. Clients at {@link Version#V_1_2} or later first receive a single
+     * {@link dev.getelements.elements.crossfire.api.model.signal.RosterBroadcastSignal} describing the match, while
+     * earlier clients receive the equivalent join, connect and host signals. Only the backlogged signals which followed
+     * the supplied sequence number are replayed. The default implementation ignores the version and sequence number
+     * and connects as {@link Version#V_1_0} clients always have.
+     *
+     * @param matchId the Match ID
+     * @param profileId the profile ID.
+     * @param version the protocol version of the client
+     * @param lastSequence the highest sequence number the client has processed, or zero to replay everything
+     * @param onMessage the message consumer
+     * @param onError the message error
+     */
+    default Subscription connect(
+            String matchId,
+            String profileId,
+            Version version,
+            long lastSequence,
+            Consumer<ProtocolMessage> onMessage,
+            Consumer<Throwable> onError) {
+        return connect(matchId, profileId, onMessage, onError);
+    }
+
+    /**
+     * Announces the disconnection of the given profile ID without waiting for the grace window to elapse. Called when
+     * the client closed its connection deliberately, as it will not be reconnecting. The default implementation does
+     * nothing, leaving the disconnection to be announced when the grace window elapses.
+     *
+     * @param matchId the match id
+     * @param profileId the profile id
+     */
+    default void disconnect(String matchId, String profileId) {}
+
     /**
      * Leaves the match for the given profile ID. If the profile ID is the host, then the host will be unassigned or
      * reassigned to another participant.
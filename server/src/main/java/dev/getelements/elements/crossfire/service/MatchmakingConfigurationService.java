@@ -0,0 +1,56 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
+import dev.getelements.elements.sdk.annotation.ElementPublic;
+import dev.getelements.elements.sdk.annotation.ElementServiceExport;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+
+/**
+ * Resolves {@link MatchmakingApplicationConfiguration} instances and the {@link MatchmakingAlgorithm} each one
+ * references. Resolved values are cached so that handshakes need not read the configuration or search the element
+ * registry each time.
+ */
+@ElementPublic
+@ElementServiceExport
+public interface MatchmakingConfigurationService {
+
+    /**
+     * Gets the {@link MatchmakingApplicationConfiguration} for the application.
+     *
+     * @param applicationId the application id
+     * @param configuration the configuration name or id
+     * @return the configuration
+     */
+    MatchmakingApplicationConfiguration getConfiguration(String applicationId, String configuration);
+
+    /**
+     * Gets the {@link MatchmakingAlgorithm} referenced by the configuration, or the default if the configuration does
+     * not specify a matchmaker.
+     *
+     * @param algorithmClass the algorithm type
+     * @param configuration the configuration
+     * @param defaultAlgorithm the default algorithm
+     * @return the algorithm
+     * @param <AlgorithmT> the algorithm type
+     */
+    <AlgorithmT extends MatchmakingAlgorithm<?, ?>> AlgorithmT getAlgorithm(
+            Class<? extends AlgorithmT> algorithmClass,
+            MatchmakingApplicationConfiguration configuration,
+            AlgorithmT defaultAlgorithm);
+
+    /**
+     * Removes the configuration from the cache, whether it was looked up by name or by id. Updates and deletions of
+     * configurations are picked up automatically, so call this only when the configuration changes some other way.
+     *
+     * @param applicationId the application id
+     * @param configuration the configuration name or id
+     */
+    void invalidateConfiguration(String applicationId, String configuration);
+
+    /**
+     * Removes all resolved algorithms from the cache. Algorithms resolved from an element which is loaded again are
+     * dropped automatically.
+     */
+    void invalidateAlgorithms();
+
+}
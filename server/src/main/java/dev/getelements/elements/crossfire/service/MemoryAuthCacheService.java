@@ -0,0 +1,132 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.dao.ProfileDao;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import dev.getelements.elements.sdk.model.session.Session;
+import dev.getelements.elements.sdk.service.auth.SessionService;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import java.util.concurrent.ExecutorService;
+
+import static dev.getelements.elements.sdk.service.Constants.UNSCOPED;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Implements {@link AuthCacheService} using in-memory {@link TtlCache}s. Sessions never outlive their own expiry, and
+ * any session or profile which fails to refresh is dropped from the cache.
+ *
+ * Entries are revalidated rather than refreshed in the background. Once a cached session is past half of its
+ * time-to-live, the next handshake presenting it checks and refreshes it with the {@link SessionService} before it is
+ * accepted. A session which was logged out or revoked therefore stops authenticating within half of the time-to-live,
+ * and a session in use is refreshed at least that often. Profiles are revalidated the same way, so a deactivated
+ * profile is turned away just as soon. Concurrent handshakes for the same key still share one lookup.
+ */
+public class MemoryAuthCacheService implements AuthCacheService {
+
+    @ElementDefaultAttribute(value = "30", description = "The time-to-live, in seconds, of cached sessions and profiles.")
+    public static final String TTL_SECONDS = "dev.getelements.elements.crossfire.auth.cache.ttl.seconds";
+
+    @ElementDefaultAttribute(value = "10000", description = "The maximum number of cached sessions and profiles.")
+    public static final String MAX_ENTRIES = "dev.getelements.elements.crossfire.auth.cache.max.entries";
+
+    private int ttlSeconds;
+
+    private int maxEntries;
+
+    private ProfileDao profileDao;
+
+    private SessionService sessionService;
+
+    private ExecutorService executorService;
+
+    private final TtlCache<String, Session> sessions = new TtlCache<>(
+            key -> getSessionService().checkAndRefreshSessionIfNecessary(key),
+            MemoryAuthCacheService::expiry,
+            this::getMaxEntries,
+            () -> SECONDS.toMillis(getTtlSeconds()),
+            this::getExecutorService,
+            true
+    );
+
+    private final TtlCache<String, Profile> profiles = new TtlCache<>(
+            key -> getProfileDao().getActiveProfile(key),
+            profile -> Long.MAX_VALUE,
+            this::getMaxEntries,
+            () -> SECONDS.toMillis(getTtlSeconds()),
+            this::getExecutorService,
+            true
+    );
+
+    private static long expiry(final Session session) {
+        final Long expiry = session.getExpiry();
+        return expiry == null || expiry <= 0 ? Long.MAX_VALUE : expiry;
+    }
+
+    @Override
+    public Session getSession(final String sessionKey) {
+        return sessions.get(sessionKey);
+    }
+
+    @Override
+    public Profile getActiveProfile(final String profileId) {
+        return profiles.get(profileId);
+    }
+
+    @Override
+    public void invalidateSession(final String sessionKey) {
+        sessions.invalidate(sessionKey);
+    }
+
+    @Override
+    public void invalidateProfile(final String profileId) {
+        profiles.invalidate(profileId);
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    @Inject
+    public void setTtlSeconds(@Named(TTL_SECONDS) int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Inject
+    public void setMaxEntries(@Named(MAX_ENTRIES) int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public ProfileDao getProfileDao() {
+        return profileDao;
+    }
+
+    @Inject
+    public void setProfileDao(ProfileDao profileDao) {
+        this.profileDao = profileDao;
+    }
+
+    public SessionService getSessionService() {
+        return sessionService;
+    }
+
+    @Inject
+    public void setSessionService(@Named(UNSCOPED) SessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+}
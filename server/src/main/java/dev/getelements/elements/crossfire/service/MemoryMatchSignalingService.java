@@ -1,6 +1,7 @@
 package dev.getelements.elements.crossfire.service;
 
 import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.Version;
 import dev.getelements.elements.crossfire.api.model.error.MatchDeletedException;
 import dev.getelements.elements.crossfire.api.model.signal.BroadcastSignal;
 import dev.getelements.elements.crossfire.api.model.signal.DirectSignal;
@@ -11,21 +12,25 @@ import dev.getelements.elements.sdk.annotation.ElementEventConsumer;
 import dev.getelements.elements.sdk.annotation.ElementServiceReference;
 import dev.getelements.elements.sdk.dao.MultiMatchDao;
 import dev.getelements.elements.sdk.model.exception.ForbiddenException;
-import dev.getelements.elements.sdk.model.exception.InvalidMultiMatchPhaseException;
-import dev.getelements.elements.sdk.model.exception.MultiMatchNotFoundException;
 import dev.getelements.elements.sdk.model.match.MultiMatch;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static dev.getelements.elements.sdk.dao.MultiMatchDao.MULTI_MATCH_DELETED;
 import static dev.getelements.elements.sdk.model.match.MultiMatchStatus.ENDED;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class MemoryMatchSignalingService implements MatchSignalingService {
 
@@ -34,12 +39,44 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
     @ElementDefaultAttribute("256")
     public static final String MAX_BACKLOG_SIZE = "elements.crossfire.match.signaling.max.backlog.size";
 
+    @ElementDefaultAttribute(value = "900", description = "The time, in seconds, without activity after which a match with no participants connected is ended and its state evicted.")
+    public static final String IDLE_TTL_SECONDS = "dev.getelements.elements.crossfire.match.signaling.idle.ttl.seconds";
+
+    @ElementDefaultAttribute(value = "5000", description = "The time, in milliseconds, a participant may reconnect within before its disconnection is announced.")
+    public static final String PRESENCE_GRACE_MILLIS = "dev.getelements.elements.crossfire.match.signaling.presence.grace.millis";
+
+    /**
+     * The maximum number of matches inspected by each pass of the idle sweeper.
+     */
+    private static final int SWEEP_BATCH_SIZE = 256;
+
+    /**
+     * The time, in seconds, between passes of the idle sweeper.
+     */
+    private static final int SWEEP_INTERVAL_SECONDS = 1;
+
     private final ConcurrentMap<String, MemoryMatchState> matches = new ConcurrentHashMap<>();
 
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private Iterator<MemoryMatchState> sweepCursor = Collections.emptyIterator();
+
+    private int idleTtlSeconds;
+
+    private long presenceGraceMillis;
+
     private int maxBacklogSize;
 
     private MultiMatchDao multiMatchDao;
 
+    private MatchReaper matchReaper;
+
+    private OffHeapArena offHeapArena;
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
     private ElementRegistry elementRegistry;
 
     @Override
@@ -116,6 +153,17 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
             final String profileId,
             final Consumer<ProtocolMessage> onMessage,
             final Consumer<Throwable> onError) {
+        return connect(matchId, profileId, Version.V_1_0, 0, onMessage, onError);
+    }
+
+    @Override
+    public Subscription connect(
+            final String matchId,
+            final String profileId,
+            final Version version,
+            final long lastSequence,
+            final Consumer<ProtocolMessage> onMessage,
+            final Consumer<Throwable> onError) {
 
         final var match = getSignalableMatch(matchId);
         final var profiles = getMongoMultiMatchDao().getProfiles(match.getId());
@@ -129,7 +177,7 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
 
         return matches
                 .computeIfAbsent(match.getId(), this::newMemoryMatchState)
-                .connect(profileId, onMessage, onError);
+                .connect(profileId, version, lastSequence, onMessage, onError);
 
     }
 
@@ -147,43 +195,94 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
 
     private MemoryMatchState newMemoryMatchState(final String matchId) {
 
+        startSweeping();
+
         final var parameters = new MemoryMatchState.Parameters(
                 matchId,
                 getMaxBacklogSize(),
                 getElementRegistry(),
                 this::onAllParticipantsLeft,
-                this::onnAllParticipantsDisconnected
+                this::onnAllParticipantsDisconnected,
+                getOffHeapArena().isEnabled() ? getOffHeapArena() : null,
+                getPresenceGraceMillis(),
+                getScheduledExecutorService()
         );
 
         return new MemoryMatchState(parameters);
     }
 
-    private void endAndRemove(final String matchId) {
-        try {
+    private void startSweeping() {
+        if (sweeping.compareAndSet(false, true)) {
+            getScheduledExecutorService().scheduleWithFixedDelay(
+                    () -> getExecutorService().submit(this::sweep),
+                    SWEEP_INTERVAL_SECONDS,
+                    SWEEP_INTERVAL_SECONDS,
+                    SECONDS
+            );
+        }
+    }
+
+    /**
+     * Inspects the next batch of matches and evicts those which have been idle for longer than the TTL and have no
+     * participants connected or within their grace window. Each pass resumes where the previous one stopped, so the
+     * cost of a pass does not grow with the number of matches.
+     */
+    private synchronized void sweep() {
+
+        final var ttlNanos = SECONDS.toNanos(getIdleTtlSeconds());
+
+        if (!sweepCursor.hasNext()) {
+            sweepCursor = matches.values().iterator();
+        }
+
+        for (int i = 0; i < SWEEP_BATCH_SIZE && sweepCursor.hasNext(); ++i) {
+
+            final var state = sweepCursor.next();
 
-            final var match = getMongoMultiMatchDao().endMatch(matchId);
+            final var matchId = state.getParameters().matchId();
 
-            if (matches.remove(match.getId()) == null) {
-                logger.debug("Could not find MultiMatchState for ended MultiMatch {}.", matchId);
+            if (state.getIdleNanos() > ttlNanos && !state.hasPresence() && matches.remove(matchId, state)) {
+                logger.info("Match {} has been idle for {} seconds. Removing.", matchId, getIdleTtlSeconds());
+                state.error(new MatchDeletedException("Match expired: %s".formatted(matchId)));
+                state.release();
+                getMatchReaper().reap(matchId);
             }
 
-        } catch (MultiMatchNotFoundException ex) {
-            logger.debug("Could not end MultiMatch {} because it was not found.", matchId);
-        } catch (InvalidMultiMatchPhaseException ex) {
-            logger.debug("Could not end MultiMatch {} because it was in an invalid state: {}", matchId, ex.getActual());
         }
+
     }
 
-    private void onAllParticipantsLeft(final MemoryMatchState memoryMatchState) {
+    private void endAndRemove(final MemoryMatchState memoryMatchState) {
+
+        // Called while holding the match's lock, so the match is only queued to be ended. Removing the state first
+        // ensures that anybody arriving in the meantime starts with a fresh state rather than the one being reaped.
+
         final var matchId = memoryMatchState.getParameters().matchId();
-        logger.info("All participants left {}. Removing.", matchId);
-        endAndRemove(matchId);
+
+        if (matches.remove(matchId, memoryMatchState)) {
+            memoryMatchState.release();
+        } else {
+            logger.debug("Could not find MultiMatchState for ended MultiMatch {}.", matchId);
+        }
+
+        getMatchReaper().reap(matchId);
+
+    }
+
+    private void onAllParticipantsLeft(final MemoryMatchState memoryMatchState) {
+        logger.info("All participants left {}. Removing.", memoryMatchState.getParameters().matchId());
+        endAndRemove(memoryMatchState);
     }
 
     private void onnAllParticipantsDisconnected(final MemoryMatchState memoryMatchState) {
-        final var matchId = memoryMatchState.getParameters().matchId();
-        logger.info("All participants disconnected {}. Removing.", matchId);
-        endAndRemove(matchId);
+        logger.info("All participants disconnected {}. Removing.", memoryMatchState.getParameters().matchId());
+        endAndRemove(memoryMatchState);
+    }
+
+    @Override
+    public void disconnect(final String matchId, final String profileId) {
+        final var state = matches.get(matchId);
+        if (state != null) state.disconnect(profileId);
     }
 
     @Override
@@ -211,6 +310,51 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
         this.maxBacklogSize = maxBacklogSize;
     }
 
+    public int getIdleTtlSeconds() {
+        return idleTtlSeconds;
+    }
+
+    @Inject
+    public void setIdleTtlSeconds(@Named(IDLE_TTL_SECONDS) int idleTtlSeconds) {
+        this.idleTtlSeconds = idleTtlSeconds;
+    }
+
+    public long getPresenceGraceMillis() {
+        return presenceGraceMillis;
+    }
+
+    @Inject
+    public void setPresenceGraceMillis(@Named(PRESENCE_GRACE_MILLIS) long presenceGraceMillis) {
+        this.presenceGraceMillis = presenceGraceMillis;
+    }
+
+    public OffHeapArena getOffHeapArena() {
+        return offHeapArena;
+    }
+
+    @Inject
+    public void setOffHeapArena(OffHeapArena offHeapArena) {
+        this.offHeapArena = offHeapArena;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
+    @Inject
+    public void setScheduledExecutorService(ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
     public ElementRegistry getElementRegistry() {
         return elementRegistry;
     }
@@ -229,6 +373,15 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
         this.multiMatchDao = mongoMultiMatchDao;
     }
 
+    public MatchReaper getMatchReaper() {
+        return matchReaper;
+    }
+
+    @Inject
+    public void setMatchReaper(MatchReaper matchReaper) {
+        this.matchReaper = matchReaper;
+    }
+
     @ElementEventConsumer(value = MULTI_MATCH_DELETED, via = @ElementServiceReference(MatchSignalingService.class))
     public void onMatchDeleted(final MultiMatch multiMatch) {
 
@@ -239,6 +392,7 @@ public class MemoryMatchSignalingService implements MatchSignalingService {
         } else {
             final var ex = new MatchDeletedException();
             existing.error(ex);
+            existing.release();
         }
 
     }
@@ -1,6 +1,7 @@
 package dev.getelements.elements.crossfire.service;
 
 import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.Version;
 import dev.getelements.elements.crossfire.api.model.error.DuplicateConnectionException;
 import dev.getelements.elements.crossfire.api.model.error.MessageBufferOverrunException;
 import dev.getelements.elements.crossfire.api.model.error.UnexpectedMessageException;
@@ -12,13 +13,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class MemoryMatchState {
 
@@ -30,12 +35,15 @@ public class MemoryMatchState {
 
     private final Parameters parameters;
 
+    private volatile long lastActivity = System.nanoTime();
+
     public MemoryMatchState(final Parameters parameters) {
         this.parameters = parameters;
         this.memoryMatchBacklog = new MemoryMatchBacklog();
     }
 
     public void send(final DirectSignal signal) {
+        touch();
         switch (signal.getLifecycle()) {
             case ONCE -> memoryMatchBacklog.publish(signal);
             case SESSION, MATCH -> memoryMatchBacklog.publishAndPersist(signal);
@@ -44,6 +52,7 @@ public class MemoryMatchState {
     }
 
     public void send(final BroadcastSignal signal) {
+        touch();
         switch (signal.getLifecycle()) {
             case ONCE -> memoryMatchBacklog.publish(signal);
             case SESSION, MATCH -> memoryMatchBacklog.publishAndPersist(signal);
@@ -60,31 +69,131 @@ public class MemoryMatchState {
     }
 
     public boolean join(final String profileId) {
+        touch();
         return memoryMatchBacklog.join(profileId);
     }
 
     public boolean leave(final String profileId) {
+        touch();
         return memoryMatchBacklog.leave(profileId);
     }
 
+    /**
+     * Announces the disconnection of a participant immediately, rather than once the grace window elapses. Called when
+     * the client closed its connection deliberately. This has no effect unless the participant is within its grace
+     * window.
+     *
+     * @param profileId the profile id
+     * @return true if the disconnection was announced
+     */
+    public boolean disconnect(final String profileId) {
+        touch();
+        return memoryMatchBacklog.disconnect(profileId);
+    }
+
+    /**
+     * Frees the backlogs of every participant, including any payloads held off-heap. Called once the match state has
+     * been discarded.
+     */
+    public void release() {
+        memoryMatchBacklog.release();
+    }
+
+    /**
+     * Gets the time elapsed since a participant last joined, left, connected, disconnected or sent a signal.
+     *
+     * @return the idle time, in nanoseconds
+     */
+    public long getIdleNanos() {
+        return System.nanoTime() - lastActivity;
+    }
+
+    /**
+     * Checks if any participant is connected, or has disconnected and may still reconnect within the grace window.
+     * Peers may exchange data directly once connected, so a match with participants present may be in play even if it
+     * has not signaled for some time.
+     *
+     * @return true if any participant is connected or lingering
+     */
+    public boolean hasPresence() {
+        return memoryMatchBacklog.hasPresence();
+    }
+
+    private void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    public Subscription connect(
+            final String profileId,
+            final Consumer<ProtocolMessage> onMessage,
+            final Consumer<Throwable> onError) {
+        return connect(profileId, Version.V_1_0, 0, onMessage, onError);
+    }
+
+    /**
+     * Connects the participant, replaying only the persisted signals which followed the supplied sequence number. A
+     * sequence number beyond any issued by this match, such as one issued before the match state was evicted, is
+     * ignored and everything is replayed.
+     *
+     * @param profileId the profile id
+     * @param version the protocol version of the client
+     * @param lastSequence the highest sequence number the client has processed, or zero
+     * @param onMessage the message consumer
+     * @param onError the error consumer
+     * @return the subscription
+     */
     public Subscription connect(
             final String profileId,
+            final Version version,
+            final long lastSequence,
             final Consumer<ProtocolMessage> onMessage,
             final Consumer<Throwable> onError) {
+        touch();
         return memoryMatchBacklog.connect(
                 profileId,
+                version.isCompatibleWithRequestedVersion(Version.V_1_2),
+                lastSequence,
                 onMessage,
                 onError
         );
     }
 
+    /**
+     * Holds the backlog and subscription of every participant. Each participant is assigned a dense index within the
+     * match, which is reused once they leave. The participants present, and those currently connected, are tracked as
+     * bit sets over those indices so that routing a broadcast, or checking whether anybody remains connected, visits
+     * only the participants concerned without comparing profile ids. The bit sets and the slots are only modified
+     * while holding the write lock.
+     *
+     * Presence (joins, connections and the host) is never persisted. It is published live as it changes, and a
+     * connecting participant is brought up to date from the current state instead, so the backlog holds only the
+     * signals sent by the participants themselves.
+     *
+     * A participant which disconnects lingers for a grace window before its disconnection is announced, so that a
+     * client flapping between networks does not cause a storm of presence signals. Until then it keeps its session
+     * backlog, and remains the host if it was, and is reported as connected to anybody connecting in the meantime.
+     */
     private class MemoryMatchBacklog {
 
         private final Lock read;
 
         private final Lock write;
 
-        private final Map<String, SessionState> sessionStates = new TreeMap<>();
+        private final Map<String, SessionState> sessionStates = new HashMap<>();
+
+        private final BitSet present = new BitSet();
+
+        private final BitSet connected = new BitSet();
+
+        private final BitSet lingering = new BitSet();
+
+        private SessionState[] slots = new SessionState[8];
+
+        /**
+         * Issues sequence numbers. These start from the wall clock, scaled well beyond any rate at which a match could
+         * issue them, so that a match state created after an earlier one was evicted issues only higher numbers.
+         */
+        private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
 
         private final BoundedList.Builder<Signal> backlogListBuilder = new BoundedList.Builder<>();
 
@@ -99,15 +208,65 @@ public class MemoryMatchState {
         }
 
         private int size() {
-            return sessionStates
-                    .values()
-                    .stream()
+            return present.stream()
+                    .mapToObj(i -> slots[i])
                     .mapToInt(SessionState::size)
                     .sum();
         }
 
+        private int allocate(final SessionState state) {
+
+            final var index = present.nextClearBit(0);
+
+            if (index >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(index + 1, slots.length * 2));
+            }
+
+            slots[index] = state;
+            present.set(index);
+
+            return index;
+
+        }
+
+        private void release(final SessionState state) {
+            slots[state.index] = null;
+            present.clear(state.index);
+            connected.clear(state.index);
+            lingering.clear(state.index);
+        }
+
+        /**
+         * Stamps the signal with the next sequence number. This must be called while holding either lock, which
+         * ensures that a persisted signal is delivered before any signal stamped after it.
+         *
+         * @param signal the signal
+         */
+        private void stamp(final Signal signal) {
+            if (signal instanceof SequencedSignal sequenced) {
+                sequenced.setSequence(sequence.incrementAndGet());
+            }
+        }
+
+        /**
+         * Gets the sequence number of a persisted signal. Signals which are not sequenced are always replayed, last.
+         *
+         * @param signal the signal
+         * @return the sequence number
+         */
+        private static long sequenceOf(final Signal signal) {
+            return signal instanceof SequencedSignal sequenced ? sequenced.getSequence() : Long.MAX_VALUE;
+        }
+
+        public boolean hasPresence() {
+            try (var mon = Monitor.enter(read)) {
+                return !connected.isEmpty() || !lingering.isEmpty();
+            }
+        }
+
         public void publish(final DirectSignal signal) {
             try (var mon = Monitor.enter(read)) {
+                stamp(signal);
                 Optional.ofNullable(sessionStates.get(signal.getRecipientProfileId()))
                         .map(SessionState::getSubscriptionRecord)
                         .ifPresent(subscriptionRecord -> subscriptionRecord.onMessage(signal));
@@ -116,23 +275,42 @@ public class MemoryMatchState {
 
         public void publish(final BroadcastSignal signal) {
             try (var mon = Monitor.enter(read)) {
+                stamp(signal);
                 doPublish(signal);
             }
         }
 
         private void doPublish(final BroadcastSignal signal) {
-            sessionStates
-                    .values()
-                    .stream()
-                    .filter(s -> signal.isFor(s.getProfileId()))
-                    .map(SessionState::getSubscriptionRecord)
-                    .filter(Objects::nonNull)
-                    .forEach(subscription -> subscription.onMessage(signal));
+
+            final int skip;
+
+            if (signal.isServerOnly()) {
+                skip = -1;
+            } else if (signal.getProfileId() == null) {
+                return;
+            } else {
+                // The originator never receives its own broadcast.
+                final var sender = sessionStates.get(signal.getProfileId());
+                skip = sender == null ? -1 : sender.index;
+            }
+
+            for (int i = connected.nextSetBit(0); i >= 0; i = connected.nextSetBit(i + 1)) {
+
+                final var subscription = i == skip ? null : slots[i].getSubscriptionRecord();
+
+                if (subscription != null) {
+                    subscription.onMessage(signal);
+                }
+
+            }
+
         }
 
         public void publishAndPersist(final DirectSignal signal) {
             try (var mon = Monitor.enter(write)) {
 
+                stamp(signal);
+
                 final var backlog = sessionStates.computeIfAbsent(signal.getProfileId(), SessionState::new);
                 backlog.append(signal);
 
@@ -145,6 +323,7 @@ public class MemoryMatchState {
 
         public void publishAndPersist(final BroadcastSignal signal) {
             try (var mon = Monitor.enter(write)) {
+                stamp(signal);
                 final var backlog = sessionStates.computeIfAbsent(signal.getProfileId(), SessionState::new);
                 backlog.append(signal);
                 doPublish(signal);
@@ -153,10 +332,8 @@ public class MemoryMatchState {
 
         public void error(final Throwable th) {
             try (var mon = Monitor.enter(read)) {
-                sessionStates
-                        .values()
-                        .stream()
-                        .map(SessionState::getSubscriptionRecord)
+                connected.stream()
+                        .mapToObj(i -> slots[i].getSubscriptionRecord())
                         .filter(Objects::nonNull)
                         .forEach(subscription -> subscription.onError(th));
             }
@@ -184,6 +361,8 @@ public class MemoryMatchState {
 
         public Subscription connect(
                 final String profileId,
+                final boolean roster,
+                final long lastSequence,
                 final Consumer<ProtocolMessage> onMessage,
                 final Consumer<Throwable> onError) {
 
@@ -195,6 +374,12 @@ public class MemoryMatchState {
 
                 final var state = sessionStates.computeIfAbsent(profileId, SessionState::new);
 
+                // A participant replacing an open connection, or returning within the grace window, never appeared to
+                // the others to have left. It is announced as resumed so that they keep their peer connections.
+
+                final var resumed = lingering.get(state.index) || state.getSubscriptionRecord() != null;
+                lingering.clear(state.index);
+
                 // We have to call this first here because it may clear out the existing session's backlog which would
                 // immediately eliminate the connection message from the backlog. Since this is happening in the
                 // exclusive lock, other clients trying to connect will be blocked until this is done so they will
@@ -204,26 +389,35 @@ public class MemoryMatchState {
 
                 final var connect = new ConnectBroadcastSignal();
                 connect.setProfileId(profileId);
-                state.append(connect);
+                connect.setResumed(resumed);
                 doPublish(connect);
 
-                // This happens next in case the new subscription is the host. This ensures that the host signal will
-                // be put into the queue as well when the call to "host" is made below.
+                // This happens next in case the new subscription is the host, so that the presence sent below already
+                // names it as such.
 
                 if (host == null) {
-                    state.host();
                     host = state;
+                    state.host();
+                }
+
+                // The new subscription is not yet connected, so it has received none of the above. It is brought up to
+                // date with the presence of the match as it stands, followed by the backlog of signals addressed to it.
+
+                if (roster) {
+                    onMessage.accept(roster(profileId));
+                } else {
+                    presence(profileId).forEach(onMessage);
                 }
 
-                // Process the full backlog for this profile which includes the connection message we just added above
-                // as well as the join message that was added when the profile first joined the match in this type's
-                // constructor.
+                final var after = lastSequence > sequence.get() ? 0 : lastSequence;
 
-                final var backlog = sessionStates
-                        .values()
-                        .stream()
+                final var backlog = present.stream()
+                        .mapToObj(i -> slots[i])
                         .flatMap(SessionState::stream)
                         .filter(s -> s.isFor(profileId))
+                        .filter(s -> sequenceOf(s) > after)
+                        .sorted(comparingLong(MemoryMatchBacklog::sequenceOf))
+                        .map(OffHeapSignal::materialize)
                         .toList();
 
                 backlog.forEach(onMessage);
@@ -234,12 +428,80 @@ public class MemoryMatchState {
 
         }
 
+        /**
+         * Describes the presence of the match in a single signal, for clients which support it.
+         *
+         * @param profileId the profile id of the recipient
+         * @return the roster
+         */
+        private RosterBroadcastSignal roster(final String profileId) {
+
+            final var roster = new RosterBroadcastSignal();
+            roster.setProfileId(profileId);
+            roster.setHost(host == null ? null : host.getProfileId());
+
+            roster.setParticipants(present.stream()
+                    .mapToObj(i -> slots[i].getProfileId())
+                    .toList());
+
+            // The recipient is counted as connected, as it is by the time the roster is delivered. So are participants
+            // within the grace window, as their disconnection has not yet been announced to anybody.
+            roster.setConnected(present.stream()
+                    .mapToObj(i -> slots[i])
+                    .filter(s -> connected.get(s.index) || lingering.get(s.index) || s.getProfileId().equals(profileId))
+                    .map(SessionState::getProfileId)
+                    .toList());
+
+            return roster;
+
+        }
+
+        /**
+         * Describes the presence of the match as the join, connect and host signals which older clients expect. These
+         * are synthesized from the current state, so participants which have since disconnected or left are omitted.
+         *
+         * @param profileId the profile id of the recipient
+         * @return the signals
+         */
+        private List<BroadcastSignal> presence(final String profileId) {
+
+            final var roster = roster(profileId);
+            final var signals = new ArrayList<BroadcastSignal>();
+
+            roster.getParticipants().forEach(participant -> {
+                final var join = new JoinBroadcastSignal();
+                join.setProfileId(participant);
+                signals.add(join);
+            });
+
+            roster.getConnected().forEach(participant -> {
+                final var connect = new ConnectBroadcastSignal();
+                connect.setProfileId(participant);
+                signals.add(connect);
+            });
+
+            if (roster.getHost() != null) {
+                final var host = new HostBroadcastSignal();
+                host.setProfileId(roster.getHost());
+                signals.add(host);
+            }
+
+            return signals;
+
+        }
+
         public boolean leave(final String profileId) {
 
             requireNonNull(profileId, "profileId cannot be null");
 
             try (var mon = Monitor.enter(write)) {
-                if (sessionStates.remove(profileId) != null) {
+
+                final var state = sessionStates.remove(profileId);
+
+                if (state != null) {
+
+                    release(state);
+                    state.free();
 
                     if (sessionStates.isEmpty()) {
                         getParameters().onAllParticipantsLeft().accept(MemoryMatchState.this);
@@ -254,6 +516,33 @@ public class MemoryMatchState {
 
         }
 
+        public boolean disconnect(final String profileId) {
+
+            requireNonNull(profileId, "profileId cannot be null");
+
+            try (var mon = Monitor.enter(write)) {
+
+                final var state = sessionStates.get(profileId);
+
+                if (state == null || !lingering.get(state.index)) {
+                    return false;
+                }
+
+                state.confirmDisconnect(state.disconnects);
+                return true;
+
+            }
+
+        }
+
+        public void release() {
+            try (var mon = Monitor.enter(write)) {
+                present.stream()
+                        .mapToObj(i -> slots[i])
+                        .forEach(SessionState::free);
+            }
+        }
+
         /**
          * Tracks all outgoing messages for a given profileId as well as the single active subscription. Depending on
          * the message's lifecycle, messages are stored in different outboxes. The outboxes are bounded lists that
@@ -261,6 +550,8 @@ public class MemoryMatchState {
          **/
         private class SessionState {
 
+            private final int index;
+
             private final String profileId;
 
             private final List<Signal> match = backlogListBuilder.build();
@@ -269,12 +560,14 @@ public class MemoryMatchState {
 
             private final AtomicReference<SubscriptionRecord> subscription = new AtomicReference<>();
 
+            private int disconnects;
+
             private SessionState(final String profileId) {
                 this.profileId = requireNonNull(profileId, "profileId cannot be null");
+                this.index = allocate(this);
 
                 final var join = new JoinBroadcastSignal();
                 join.setProfileId(profileId);
-                append(join);
                 doPublish(join);
 
             }
@@ -308,8 +601,8 @@ public class MemoryMatchState {
                 }
 
                 switch(signal.getLifecycle()) {
-                    case MATCH -> match.add(signal);
-                    case SESSION -> session.add(signal);
+                    case MATCH -> persist(match, signal);
+                    case SESSION -> persist(session, signal);
                     default -> throw new IllegalArgumentException("Unexpected value: " + signal.getLifecycle());
                 }
 
@@ -325,25 +618,43 @@ public class MemoryMatchState {
                 }
 
                 switch(signal.getLifecycle()) {
-                    case MATCH -> match.add(signal);
-                    case SESSION -> session.add(signal);
+                    case MATCH -> persist(match, signal);
+                    case SESSION -> persist(session, signal);
                     default -> throw new IllegalArgumentException("Unexpected lifecycle value: " + signal.getLifecycle());
                 }
 
             }
 
             public void host() {
-
-                // Generates and buffers the signal in the appropriate outbox
+                // Informs the whole match that there is indeed a new host.
                 final var signal = new HostBroadcastSignal();
                 signal.setProfileId(profileId);
-                append(signal);
-
-                // Informs the whole match that there is indeed a new host.
                 doPublish(signal);
+            }
+
+            private void persist(final List<Signal> outbox, final Signal signal) {
+
+                final var stored = OffHeapSignal.store(parameters.payloadArena(), signal);
+
+                try {
+                    outbox.add(stored);
+                } catch (RuntimeException ex) {
+                    // The outbox is full, so the payload will never be replayed.
+                    OffHeapSignal.free(stored);
+                    throw ex;
+                }
 
             }
 
+            /**
+             * Clears both outboxes, freeing any payloads held off-heap.
+             */
+            private void free() {
+                stream().forEach(OffHeapSignal::free);
+                match.clear();
+                session.clear();
+            }
+
             public SubscriptionRecord getSubscriptionRecord() {
                 return subscription.get();
             }
@@ -355,52 +666,89 @@ public class MemoryMatchState {
                 requireNonNull(onError, "onError cannot be null");
                 requireNonNull(onMessage, "onMessage cannot be null");
 
-                final var updated = subscription.updateAndGet(existing -> {
-                    if (existing == null)
-                        return new SubscriptionRecord(onMessage, onError, this::disconnectCleanly);
-                    else
-                        throw new IllegalStateException("Subscription already exists. Did you forget to disconnect the old subscription first?");
-                });
+                // The unsubscribe is bound to the record it belongs to, so that a subscription replaced by a later
+                // connection cannot disconnect its replacement.
+                final var record = new SubscriptionRecord[1];
+                record[0] = new SubscriptionRecord(onMessage, onError, () -> disconnectCleanly(record[0]));
 
-                return updated.subscription();
+                if (!subscription.compareAndSet(null, record[0]))
+                    throw new IllegalStateException("Subscription already exists. Did you forget to disconnect the old subscription first?");
+
+                connected.set(index);
+                return record[0].subscription();
 
             }
 
             /**
              * Cleanly disconnects the current subscription and clears it from this session state. Clean disconnects
              * do not drive any sort of error of the existing subscription because we assume that the client is
-             * explicitly disconnecting.
+             * explicitly disconnecting. The disconnection is announced once the grace window elapses, unless the
+             * participant reconnects first. This has no effect if the supplied record is no longer the current
+             * subscription.
+             *
+             * @param record the subscription record being unsubscribed
              */
-            private void disconnectCleanly() {
+            private void disconnectCleanly(final SubscriptionRecord record) {
 
                 // This is protected by the outer write lock because we essentially call it directly from the
                 // calling code in MemoryMatchBacklog.connect() method as the subscription's onUnsubscribe handler.
 
+                touch();
+
                 try (var mon = Monitor.enter(write)) {
 
-                    session.clear();
+                    if (!subscription.compareAndSet(record, null)) {
+                        logger.debug("Subscription for profileId {} is no longer current.", profileId);
+                        return;
+                    }
 
-                    final var existing = subscription.getAndSet(null);
+                    connected.clear(index);
+                    lingering.set(index);
 
-                    if (existing == null) {
-                        logger.debug("No existing subscription to disconnect for profileId {}.", profileId);
+                    final var generation = ++disconnects;
+                    final var scheduler = parameters.scheduler();
+                    final var grace = parameters.presenceGraceMillis();
+
+                    if (scheduler == null || grace <= 0) {
+                        confirmDisconnect(generation);
                     } else {
+                        scheduler.schedule(() -> confirmDisconnect(generation), grace, MILLISECONDS);
+                    }
+
+                }
+
+            }
+
+            /**
+             * Announces the disconnection once the grace window has elapsed. This has no effect if the participant
+             * has since reconnected or left, or if it disconnected again and a later window is pending.
+             *
+             * @param generation the disconnection which started the grace window
+             */
+            private void confirmDisconnect(final int generation) {
+                try (var mon = Monitor.enter(write)) {
+
+                    if (slots[index] != this || !lingering.get(index) || generation != disconnects) {
+                        return;
+                    }
 
-                        final var hasConnections = sessionStates.values()
-                                .stream()
-                                .anyMatch(s -> s.subscription.get() != null);
+                    lingering.clear(index);
 
-                        if (hasConnections) {
-                            reassignHostIfNecessary();
-                        } else {
-                            parameters.onAllParticipantsDisconnected()
-                                    .accept(MemoryMatchState.this);
-                        }
+                    session.forEach(OffHeapSignal::free);
+                    session.clear();
+
+                    final var disconnect = new DisconnectBroadcastSignal();
+                    disconnect.setProfileId(profileId);
+                    doPublish(disconnect);
 
+                    if (connected.isEmpty() && lingering.isEmpty()) {
+                        parameters.onAllParticipantsDisconnected()
+                                .accept(MemoryMatchState.this);
+                    } else {
+                        reassignHostIfNecessary();
                     }
 
                 }
-
             }
 
             /**
@@ -412,6 +760,7 @@ public class MemoryMatchState {
             private void disconnectExistingIfNecessary() {
 
                 final var existing = subscription.getAndSet(null);
+                connected.clear(index);
 
                 if (existing != null)
                     existing.onError(new DuplicateConnectionException());
@@ -429,12 +778,9 @@ public class MemoryMatchState {
 
                 if (host == this) {
 
-                    host = MemoryMatchBacklog.this.sessionStates
-                            .values()
-                            .stream()
-                            .filter(s -> s != this && s.subscription.get() != null)
-                            .findFirst()
-                            .orElse(null);
+                    // Promote the connected participant holding the lowest index.
+                    final var next = connected.nextSetBit(0);
+                    host = next < 0 || next == index ? null : slots[next];
 
                     if (host != null)
                         host.host();
@@ -452,6 +798,9 @@ public class MemoryMatchState {
             int matchBacklogSize,
             ElementRegistry registry,
             Consumer<MemoryMatchState> onAllParticipantsLeft,
-            Consumer<MemoryMatchState> onAllParticipantsDisconnected) {}
+            Consumer<MemoryMatchState> onAllParticipantsDisconnected,
+            OffHeapArena payloadArena,
+            long presenceGraceMillis,
+            ScheduledExecutorService scheduler) {}
 
 }
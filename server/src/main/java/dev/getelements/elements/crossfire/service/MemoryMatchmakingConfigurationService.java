@@ -0,0 +1,297 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.model.error.InvalidConfigurationException;
+import dev.getelements.elements.sdk.Element;
+import dev.getelements.elements.sdk.ElementRegistrySupplier;
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import dev.getelements.elements.sdk.annotation.ElementEventConsumer;
+import dev.getelements.elements.sdk.annotation.ElementServiceReference;
+import dev.getelements.elements.sdk.dao.ApplicationConfigurationDao;
+import dev.getelements.elements.sdk.model.application.ApplicationConfiguration;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import static dev.getelements.elements.sdk.Element.SYSTEM_EVENT_ELEMENT_LOADED;
+import static dev.getelements.elements.sdk.dao.ApplicationConfigurationDao.APPLICATION_CONFIGURATION_DELETED;
+import static dev.getelements.elements.sdk.dao.ApplicationConfigurationDao.APPLICATION_CONFIGURATION_UPDATED;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Implements {@link MatchmakingConfigurationService} in memory. Configurations are held in a {@link TtlCache} keyed by
+ * application and the configuration name or id requested. The same configuration may therefore be cached under both
+ * its name and its id, so invalidation matches the id and name of each cached configuration as well as its key.
+ * Cached configurations are invalidated when a configuration is updated or deleted. Algorithms are keyed by the
+ * requested type and the matchmaker reference so that configurations sharing a matchmaker share the resolved instance.
+ *
+ * Algorithms hold the state of the matches they are filling, so a resolved algorithm is kept until the algorithms are
+ * invalidated rather than expiring or being refreshed. Replacing an instance while handles from the old one are still
+ * open would split those matches across two instances.
+ */
+public class MemoryMatchmakingConfigurationService implements MatchmakingConfigurationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryMatchmakingConfigurationService.class);
+
+    @ElementDefaultAttribute(value = "30", description = "The time-to-live, in seconds, of cached matchmaking configurations.")
+    public static final String TTL_SECONDS = "dev.getelements.elements.crossfire.configuration.cache.ttl.seconds";
+
+    @ElementDefaultAttribute(value = "1024", description = "The maximum number of cached matchmaking configurations.")
+    public static final String MAX_ENTRIES = "dev.getelements.elements.crossfire.configuration.cache.max.entries";
+
+    private int ttlSeconds;
+
+    private int maxEntries;
+
+    private ExecutorService executorService;
+
+    private ApplicationConfigurationDao applicationConfigurationDao;
+
+    private final TtlCache<ConfigurationKey, MatchmakingApplicationConfiguration> configurations = new TtlCache<>(
+            key -> getApplicationConfigurationDao().getApplicationConfiguration(
+                    MatchmakingApplicationConfiguration.class,
+                    key.applicationId(),
+                    key.configuration()
+            ),
+            configuration -> Long.MAX_VALUE,
+            this::getMaxEntries,
+            () -> SECONDS.toMillis(getTtlSeconds()),
+            this::getExecutorService
+    );
+
+    private final ConcurrentMap<AlgorithmKey, MatchmakingAlgorithm<?, ?>> algorithms = new ConcurrentHashMap<>();
+
+    @Override
+    public MatchmakingApplicationConfiguration getConfiguration(
+            final String applicationId,
+            final String configuration) {
+        return configurations.get(new ConfigurationKey(applicationId, configuration));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <AlgorithmT extends MatchmakingAlgorithm<?, ?>> AlgorithmT getAlgorithm(
+            final Class<? extends AlgorithmT> algorithmClass,
+            final MatchmakingApplicationConfiguration configuration,
+            final AlgorithmT defaultAlgorithm) {
+
+        final var matchmaker = configuration.getMatchmaker();
+
+        if (matchmaker == null) {
+            return defaultAlgorithm;
+        }
+
+        final var key = new AlgorithmKey(
+                algorithmClass,
+                matchmaker.getElementName(),
+                matchmaker.getServiceType(),
+                matchmaker.getServiceName()
+        );
+
+        final var cached = algorithms.get(key);
+
+        if (cached != null) {
+            return (AlgorithmT) cached;
+        }
+
+        // Resolution happens outside the map so that concurrent lookups of other matchmakers are not held up. Should
+        // two lookups race, both return whichever instance was stored first.
+        final var resolved = resolve(key);
+        final var existing = algorithms.putIfAbsent(key, resolved);
+
+        return (AlgorithmT) (existing == null ? resolved : existing);
+
+    }
+
+    @Override
+    public void invalidateConfiguration(final String applicationId, final String configuration) {
+        configurations.invalidateIf((key, cached) ->
+                key.applicationId().equals(applicationId) && refersTo(key, cached, configuration)
+        );
+    }
+
+    private static boolean refersTo(
+            final ConfigurationKey key,
+            final MatchmakingApplicationConfiguration cached,
+            final String configuration) {
+        return configuration.equals(key.configuration())
+                || configuration.equals(cached.getId())
+                || configuration.equals(cached.getName());
+    }
+
+    @Override
+    public void invalidateAlgorithms() {
+        algorithms.clear();
+    }
+
+    @ElementEventConsumer(
+            value = APPLICATION_CONFIGURATION_UPDATED,
+            via = @ElementServiceReference(MatchmakingConfigurationService.class)
+    )
+    public void onConfigurationUpdated(final ApplicationConfiguration configuration) {
+        logger.debug("Configuration {} updated. Invalidating.", configuration.getId());
+        configurations.invalidateIf((key, cached) -> refersTo(key, cached, configuration.getId()));
+    }
+
+    @ElementEventConsumer(
+            value = APPLICATION_CONFIGURATION_DELETED,
+            via = @ElementServiceReference(MatchmakingConfigurationService.class)
+    )
+    public void onConfigurationDeleted(final ApplicationConfiguration configuration) {
+        logger.debug("Configuration {} deleted. Invalidating.", configuration.getId());
+        configurations.invalidateIf((key, cached) -> refersTo(key, cached, configuration.getId()));
+    }
+
+    /**
+     * Drops the algorithms resolved from an element which was loaded again, as the instances resolved from its previous
+     * load are no longer live. Algorithms from other elements are kept, along with the matches they are filling.
+     *
+     * @param element the element
+     */
+    @ElementEventConsumer(
+            value = SYSTEM_EVENT_ELEMENT_LOADED,
+            via = @ElementServiceReference(MatchmakingConfigurationService.class)
+    )
+    public void onElementLoaded(final Element element) {
+        final var name = element.getElementRecord().definition().name();
+        logger.debug("Element {} loaded. Invalidating its algorithms.", name);
+        algorithms.keySet().removeIf(key -> key.elementName() != null && name.endsWith(key.elementName()));
+    }
+
+    private MatchmakingAlgorithm<?, ?> resolve(final AlgorithmKey key) {
+
+        final var elementOptional = findElement(key.elementName());
+
+        if (elementOptional.isEmpty()) {
+
+            logger.warn("Unable to find element with name {}.", key.elementName());
+
+            throw new InvalidConfigurationException(
+                    "Unable to find element with name %s."
+                    .formatted(key.elementName())
+            );
+
+        }
+
+        return resolve(elementOptional.get(), key);
+
+    }
+
+    /**
+     * Finds the element which provides the matchmaker.
+     *
+     * @param elementName the element name, or a suffix of it
+     * @return the element, or empty if no loaded element matches
+     */
+    Optional<Element> findElement(final String elementName) {
+        return ElementRegistrySupplier
+                .getElementLocal(getClass())
+                .get()
+                .stream()
+                .filter(e -> e.getElementRecord().definition().name().endsWith(elementName))
+                .findFirst();
+    }
+
+    /**
+     * Resolves the matchmaker from the element's service locator.
+     *
+     * @param element the element
+     * @param key the algorithm key
+     * @return the algorithm
+     */
+    @SuppressWarnings("unchecked")
+    MatchmakingAlgorithm<?, ?> resolve(final Element element, final AlgorithmKey key) {
+
+        final var algorithmClass = key.algorithmClass();
+
+        final var type = (Class<? extends MatchmakingAlgorithm<?, ?>>) Optional
+                .ofNullable(key.serviceType())
+                .map(t -> {
+                    try {
+                        return element.getElementRecord()
+                                .classLoader()
+                                .loadClass(t);
+                    } catch (ClassNotFoundException e) {
+                        logger.error("Unable to load class {} for matchmaker service type.", t, e);
+                        return MatchmakingAlgorithm.class;
+                    }
+                })
+                .filter(t -> {
+                    if (algorithmClass.isAssignableFrom(t)) {
+                        return true;
+                    } else {
+                        logger.error("Matchmaking algorithm {} is not assignable from class {}. Using default.",
+                                t,
+                                algorithmClass
+                        );
+                        return false;
+                    }
+                })
+                .orElse(algorithmClass);
+
+        final var name = key.serviceName();
+
+        return name == null
+                ? element.getServiceLocator().getInstance(type)
+                : element.getServiceLocator().getInstance(type, name);
+
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    @Inject
+    public void setTtlSeconds(@Named(TTL_SECONDS) int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Inject
+    public void setMaxEntries(@Named(MAX_ENTRIES) int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ApplicationConfigurationDao getApplicationConfigurationDao() {
+        return applicationConfigurationDao;
+    }
+
+    @Inject
+    public void setApplicationConfigurationDao(ApplicationConfigurationDao applicationConfigurationDao) {
+        this.applicationConfigurationDao = applicationConfigurationDao;
+    }
+
+    private record ConfigurationKey(String applicationId, String configuration) {
+        ConfigurationKey {
+            Objects.requireNonNull(applicationId, "applicationId");
+            Objects.requireNonNull(configuration, "configuration");
+        }
+    }
+
+    record AlgorithmKey(
+            Class<? extends MatchmakingAlgorithm<?, ?>> algorithmClass,
+            String elementName,
+            String serviceType,
+            String serviceName) {}
+
+}
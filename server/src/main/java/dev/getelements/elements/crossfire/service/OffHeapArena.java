@@ -0,0 +1,199 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.sdk.annotation.ElementDefaultAttribute;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Optional;
+
+/**
+ * Holds byte payloads in direct memory so that long-lived backlog data is not traced by the garbage collector. Memory
+ * is reserved from the operating system in fixed size slabs, which are carved into power-of-two blocks. Freed blocks
+ * are kept on a free list for their size and reused by later allocations, and slabs are never returned, so the arena
+ * only grows up to its configured maximum.
+ *
+ * Each allocation is returned as a {@link Lease} which must be freed explicitly once the payload is no longer needed.
+ * Should a lease become unreachable without being freed, its block is reclaimed when the lease is collected.
+ */
+public class OffHeapArena {
+
+    @ElementDefaultAttribute(value = "false", description = "Whether to hold persisted binary signal payloads in off-heap memory.")
+    public static final String ENABLED = "dev.getelements.elements.crossfire.match.signaling.off.heap.enabled";
+
+    @ElementDefaultAttribute(value = "268435456", description = "The maximum number of bytes of off-heap memory reserved for signal payloads.")
+    public static final String MAX_BYTES = "dev.getelements.elements.crossfire.match.signaling.off.heap.max.bytes";
+
+    /**
+     * The size of each slab reserved from the operating system. Payloads larger than this are kept on the heap.
+     */
+    static final int SLAB_SIZE = 1 << 20;
+
+    /**
+     * The size of the smallest block.
+     */
+    static final int MIN_BLOCK_SIZE = 1 << 6;
+
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(SLAB_SIZE / MIN_BLOCK_SIZE) + 1;
+
+    private final Cleaner cleaner = Cleaner.create();
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<ByteBuffer>[] free = new ArrayDeque[SIZE_CLASSES];
+
+    private ByteBuffer slab = ByteBuffer.allocateDirect(0);
+
+    private long reserved;
+
+    private boolean enabled;
+
+    private long maxBytes;
+
+    public OffHeapArena() {
+        for (int i = 0; i < SIZE_CLASSES; ++i) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Copies the payload into the arena.
+     *
+     * @param payload the payload
+     * @return the lease, or empty if the payload is too large or the arena is full
+     */
+    public Optional<Lease> allocate(final byte[] payload) {
+
+        if (payload.length > SLAB_SIZE) {
+            return Optional.empty();
+        }
+
+        final var sizeClass = sizeClass(payload.length);
+        final var block = take(sizeClass);
+
+        if (block == null) {
+            return Optional.empty();
+        }
+
+        // The block is ours alone until it is freed, so it may be written outside the lock.
+        block.put(0, payload);
+
+        return Optional.of(new Lease(block, sizeClass, payload.length));
+
+    }
+
+    private static int sizeClass(final int length) {
+        final var size = Math.max(MIN_BLOCK_SIZE, length);
+        final var rounded = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        return Integer.numberOfTrailingZeros(rounded / MIN_BLOCK_SIZE);
+    }
+
+    private synchronized ByteBuffer take(final int sizeClass) {
+
+        final var reused = free[sizeClass].poll();
+
+        if (reused != null) {
+            return reused;
+        }
+
+        final var size = MIN_BLOCK_SIZE << sizeClass;
+
+        if (slab.remaining() < size) {
+
+            if (reserved + SLAB_SIZE > getMaxBytes()) {
+                return null;
+            }
+
+            // The tail of the previous slab is abandoned, which wastes less than one block of this size.
+            slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+            reserved += SLAB_SIZE;
+
+        }
+
+        final var block = slab.slice(slab.position(), size);
+        slab.position(slab.position() + size);
+
+        return block;
+
+    }
+
+    private synchronized void release(final ByteBuffer block, final int sizeClass) {
+        free[sizeClass].push(block);
+    }
+
+    /**
+     * Gets the number of bytes reserved from the operating system.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getReserved() {
+        return reserved;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Inject
+    public void setEnabled(@Named(ENABLED) boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Inject
+    public void setMaxBytes(@Named(MAX_BYTES) long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A payload held in the arena.
+     */
+    public final class Lease {
+
+        private final ByteBuffer block;
+
+        private final int length;
+
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(final ByteBuffer block, final int sizeClass, final int length) {
+            this.block = block;
+            this.length = length;
+            this.cleanable = cleaner.register(this, new Release(OffHeapArena.this, block, sizeClass));
+        }
+
+        /**
+         * Copies the payload back onto the heap.
+         *
+         * @return the payload
+         */
+        public byte[] read() {
+            final var payload = new byte[length];
+            block.get(0, payload);
+            return payload;
+        }
+
+        /**
+         * Returns the block to the arena. Freeing a lease more than once has no effect.
+         */
+        public void free() {
+            cleanable.clean();
+        }
+
+    }
+
+    /**
+     * Returns a block to the arena. This must not refer to the {@link Lease}, or the lease would never be collected.
+     */
+    private record Release(OffHeapArena arena, ByteBuffer block, int sizeClass) implements Runnable {
+        @Override
+        public void run() {
+            arena.release(block, sizeClass);
+        }
+    }
+
+}
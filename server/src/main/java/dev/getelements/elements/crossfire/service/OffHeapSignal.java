@@ -0,0 +1,135 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageType;
+import dev.getelements.elements.crossfire.api.model.signal.BinaryBroadcastSignal;
+import dev.getelements.elements.crossfire.api.model.signal.BinaryRelayDirectSignal;
+import dev.getelements.elements.crossfire.api.model.signal.SequencedSignal;
+import dev.getelements.elements.crossfire.api.model.signal.Signal;
+import dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle;
+
+import java.util.function.Function;
+
+/**
+ * A persisted binary signal whose payload is held in an {@link OffHeapArena}. Only the routing fields stay on the
+ * heap. The full signal is rebuilt by {@link #materialize(Signal)} when it is replayed to a subscriber.
+ */
+final class OffHeapSignal implements SequencedSignal {
+
+    private final SequencedSignal header;
+
+    private final OffHeapArena.Lease lease;
+
+    private final Function<byte[], Signal> rebuild;
+
+    private OffHeapSignal(
+            final SequencedSignal header,
+            final OffHeapArena.Lease lease,
+            final Function<byte[], Signal> rebuild) {
+        this.header = header;
+        this.lease = lease;
+        this.rebuild = rebuild;
+    }
+
+    /**
+     * Moves the payload of a binary signal into the arena. Other signals, or payloads the arena cannot hold, are
+     * returned unchanged. The supplied signal is not modified as it may still be delivered to connected subscribers.
+     *
+     * @param arena the arena, or null to keep everything on the heap
+     * @param signal the signal
+     * @return the signal to persist
+     */
+    static Signal store(final OffHeapArena arena, final Signal signal) {
+
+        if (arena == null) {
+            return signal;
+        } else if (signal instanceof BinaryBroadcastSignal broadcast && broadcast.getPayload() != null) {
+
+            final var header = new BinaryBroadcastSignal();
+            header.setProfileId(broadcast.getProfileId());
+            header.setLifecycle(broadcast.getLifecycle());
+            header.setSequence(broadcast.getSequence());
+
+            return arena.allocate(broadcast.getPayload())
+                    .<Signal>map(lease -> new OffHeapSignal(header, lease, payload -> {
+                        final var copy = new BinaryBroadcastSignal();
+                        copy.setProfileId(header.getProfileId());
+                        copy.setLifecycle(header.getLifecycle());
+                        copy.setSequence(header.getSequence());
+                        copy.setPayload(payload);
+                        return copy;
+                    }))
+                    .orElse(signal);
+
+        } else if (signal instanceof BinaryRelayDirectSignal direct && direct.getPayload() != null) {
+
+            final var header = new BinaryRelayDirectSignal();
+            header.setProfileId(direct.getProfileId());
+            header.setRecipientProfileId(direct.getRecipientProfileId());
+            header.setLifecycle(direct.getLifecycle());
+            header.setSequence(direct.getSequence());
+
+            return arena.allocate(direct.getPayload())
+                    .<Signal>map(lease -> new OffHeapSignal(header, lease, payload -> {
+                        final var copy = new BinaryRelayDirectSignal();
+                        copy.setProfileId(header.getProfileId());
+                        copy.setRecipientProfileId(header.getRecipientProfileId());
+                        copy.setLifecycle(header.getLifecycle());
+                        copy.setSequence(header.getSequence());
+                        copy.setPayload(payload);
+                        return copy;
+                    }))
+                    .orElse(signal);
+
+        } else {
+            return signal;
+        }
+
+    }
+
+    /**
+     * Rebuilds the full signal, copying its payload back onto the heap if it was held off-heap.
+     *
+     * @param signal the persisted signal
+     * @return the signal to deliver
+     */
+    static Signal materialize(final Signal signal) {
+        return signal instanceof OffHeapSignal offHeap ? offHeap.rebuild.apply(offHeap.lease.read()) : signal;
+    }
+
+    /**
+     * Frees the payload if it was held off-heap.
+     *
+     * @param signal the persisted signal
+     */
+    static void free(final Signal signal) {
+        if (signal instanceof OffHeapSignal offHeap) {
+            offHeap.lease.free();
+        }
+    }
+
+    @Override
+    public ProtocolMessageType getType() {
+        return header.getType();
+    }
+
+    @Override
+    public SignalLifecycle getLifecycle() {
+        return header.getLifecycle();
+    }
+
+    @Override
+    public boolean isFor(final String profileId) {
+        return header.isFor(profileId);
+    }
+
+    @Override
+    public long getSequence() {
+        return header.getSequence();
+    }
+
+    @Override
+    public void setSequence(final long sequence) {
+        header.setSequence(sequence);
+    }
+
+}
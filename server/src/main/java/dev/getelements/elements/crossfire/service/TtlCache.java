@@ -0,0 +1,314 @@
+package dev.getelements.elements.crossfire.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A small, bounded, read-through cache with a time-to-live. Entries past half of their time-to-live are served from
+ * the cache while being reloaded in the background so that a steady stream of reads for the same key rarely hits the
+ * loader. Concurrent misses for the same key share a single load. When the cache exceeds its maximum size the oldest
+ * inserted entries are evicted first.
+ *
+ * A cache created to revalidate instead reloads an entry past half of its time-to-live before serving it, so that
+ * a value which the backing store no longer accepts is served for at most half of the time-to-live. Concurrent reads
+ * of the same key still share that single load.
+ *
+ * Values may also carry their own hard expiry (for example, the expiry of a session) which caps the time-to-live of
+ * the cached entry.
+ *
+ * Invalidating a key also discards the result of any load or refresh of that key which was in flight at the time, so
+ * a value read before the invalidation is never cached after it.
+ *
+ * The sizing and timing parameters are read on each operation so they may be supplied by setter injection.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class TtlCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TtlCache.class);
+
+    private final Function<? super K, ? extends V> loader;
+
+    private final ToLongFunction<? super V> hardExpiry;
+
+    private final IntSupplier maxSize;
+
+    private final LongSupplier ttlMillis;
+
+    private final Supplier<? extends Executor> executor;
+
+    private final boolean revalidate;
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<K, Load<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * The cached keys, oldest inserted first. This also guards every change to the entries and the stale flag of each
+     * in-flight load, while reads of the entries take no lock.
+     */
+    private final Set<K> insertionOrder = new LinkedHashSet<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param loader the loader which reads the value from the backing store, may throw to indicate no value
+     * @param hardExpiry supplies the absolute expiry, in epoch milliseconds, of a value or {@link Long#MAX_VALUE}
+     * @param maxSize supplies the maximum number of entries
+     * @param ttlMillis supplies the time-to-live of each entry in milliseconds
+     * @param executor supplies the executor used to refresh entries in the background
+     */
+    public TtlCache(final Function<? super K, ? extends V> loader,
+                    final ToLongFunction<? super V> hardExpiry,
+                    final IntSupplier maxSize,
+                    final LongSupplier ttlMillis,
+                    final Supplier<? extends Executor> executor) {
+        this(loader, hardExpiry, maxSize, ttlMillis, executor, false);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param loader the loader which reads the value from the backing store, may throw to indicate no value
+     * @param hardExpiry supplies the absolute expiry, in epoch milliseconds, of a value or {@link Long#MAX_VALUE}
+     * @param maxSize supplies the maximum number of entries
+     * @param ttlMillis supplies the time-to-live of each entry in milliseconds
+     * @param executor supplies the executor used to refresh entries in the background
+     * @param revalidate true to reload entries past half of their time-to-live before serving them
+     */
+    public TtlCache(final Function<? super K, ? extends V> loader,
+                    final ToLongFunction<? super V> hardExpiry,
+                    final IntSupplier maxSize,
+                    final LongSupplier ttlMillis,
+                    final Supplier<? extends Executor> executor,
+                    final boolean revalidate) {
+        this.revalidate = revalidate;
+        this.loader = requireNonNull(loader, "loader");
+        this.hardExpiry = requireNonNull(hardExpiry, "hardExpiry");
+        this.maxSize = requireNonNull(maxSize, "maxSize");
+        this.ttlMillis = requireNonNull(ttlMillis, "ttlMillis");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Gets the value for the key, loading it if it is not cached or if the cached value has expired.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public V get(final K key) {
+
+        requireNonNull(key, "key");
+
+        final var now = System.currentTimeMillis();
+        final var entry = entries.get(key);
+
+        if (entry != null && now < entry.expires()) {
+
+            if (now < entry.refreshAt()) {
+                return entry.value();
+            } else if (revalidate) {
+                return load(key, entry);
+            }
+
+            if (entry.refreshing().compareAndSet(false, true)) {
+                executor.get().execute(() -> refresh(key, entry));
+            }
+
+            return entry.value();
+
+        }
+
+        return load(key, null);
+
+    }
+
+    /**
+     * Removes the key from the cache.
+     *
+     * @param key the key
+     */
+    public void invalidate(final K key) {
+        synchronized (insertionOrder) {
+
+            final var load = loading.get(key);
+
+            if (load != null) {
+                load.stale = true;
+            }
+
+            entries.remove(key);
+            insertionOrder.remove(key);
+
+        }
+    }
+
+    /**
+     * Removes all entries matching the supplied key predicate.
+     *
+     * @param predicate the predicate
+     */
+    public void invalidateIf(final Predicate<? super K> predicate) {
+        synchronized (insertionOrder) {
+            loading.forEach((key, load) -> {
+                if (predicate.test(key)) load.stale = true;
+            });
+            entries.keySet().removeIf(predicate);
+            insertionOrder.removeIf(predicate);
+        }
+    }
+
+    /**
+     * Removes all entries whose key and cached value match the supplied predicate. The values of loads still in flight
+     * are not yet known, so every one of them is discarded rather than cached.
+     *
+     * @param predicate the predicate
+     */
+    public void invalidateIf(final BiPredicate<? super K, ? super V> predicate) {
+        synchronized (insertionOrder) {
+            loading.values().forEach(load -> load.stale = true);
+            entries.entrySet().removeIf(entry -> {
+                if (predicate.test(entry.getKey(), entry.getValue().value())) {
+                    insertionOrder.remove(entry.getKey());
+                    return true;
+                } else {
+                    return false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private V load(final K key, final Entry<V> previous) {
+
+        final var load = new Load<V>();
+        final var existing = loading.putIfAbsent(key, load);
+
+        if (existing != null) {
+            try {
+                return existing.future.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException rex ? rex : ex;
+            }
+        }
+
+        try {
+            final V value = loader.apply(key);
+            put(key, value, load);
+            load.future.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            load.future.completeExceptionally(ex);
+            if (previous != null) evict(key, previous);
+            throw ex;
+        } finally {
+            loading.remove(key, load);
+        }
+
+    }
+
+    private void refresh(final K key, final Entry<V> entry) {
+
+        final var load = new Load<V>();
+
+        // A load already in flight will replace the entry, so there is nothing for the refresh to do.
+        if (loading.putIfAbsent(key, load) != null) {
+            return;
+        }
+
+        try {
+            final V value = loader.apply(key);
+            put(key, value, load);
+            load.future.complete(value);
+        } catch (RuntimeException ex) {
+            logger.debug("Unable to refresh cache entry. Evicting.", ex);
+            load.future.completeExceptionally(ex);
+            evict(key, entry);
+        } finally {
+            loading.remove(key, load);
+        }
+
+    }
+
+    private void evict(final K key, final Entry<V> entry) {
+        synchronized (insertionOrder) {
+            if (entries.remove(key, entry)) {
+                insertionOrder.remove(key);
+            }
+        }
+    }
+
+    private void put(final K key, final V value, final Load<V> load) {
+
+        final var now = System.currentTimeMillis();
+        final var ttl = ttlMillis.getAsLong();
+        final var expires = Math.min(now + ttl, hardExpiry.applyAsLong(value));
+        final var entry = new Entry<V>(value, now + ttl / 2, expires, new AtomicBoolean());
+
+        synchronized (insertionOrder) {
+
+            if (load.stale) {
+                logger.debug("Key invalidated while loading. Discarding loaded value.");
+                return;
+            }
+
+            entries.put(key, entry);
+            insertionOrder.add(key);
+
+            final var max = maxSize.getAsInt();
+            final var iterator = insertionOrder.iterator();
+
+            while (entries.size() > max && iterator.hasNext()) {
+                entries.remove(iterator.next());
+                iterator.remove();
+            }
+
+        }
+
+    }
+
+    private record Entry<V>(V value, long refreshAt, long expires, AtomicBoolean refreshing) {}
+
+    /**
+     * A load or refresh in flight. Should the key be invalidated before the load completes, the load is marked stale
+     * and its value is returned to its callers but not cached.
+     */
+    private static final class Load<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private boolean stale;
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the ordering of the {@link BackfillQueue}.
+ */
+public class TestBackfillQueue {
+
+    private static final String CONFIGURATION = "configuration";
+
+    @Test
+    public void testMissingSlotsOutrankWaitTime() {
+
+        final var queue = new BackfillQueue();
+        queue.setSlotWeightSeconds(10);
+
+        final var older = match("older");
+        final var emptier = match("emptier");
+
+        queue.offer(older);
+        queue.offer(emptier);
+        queue.offer(emptier);
+
+        assertEquals(queue.claim(CONFIGURATION).orElseThrow().getId(), "emptier");
+        assertEquals(queue.claim(CONFIGURATION).orElseThrow().getId(), "older");
+        assertEquals(queue.claim(CONFIGURATION).orElseThrow().getId(), "emptier");
+        assertTrue(queue.claim(CONFIGURATION).isEmpty());
+
+    }
+
+    @Test
+    public void testRemove() {
+
+        final var queue = new BackfillQueue();
+        queue.setSlotWeightSeconds(10);
+
+        queue.offer(match("removed"));
+        queue.offer(match("kept"));
+        queue.remove("removed");
+
+        assertEquals(queue.claim(CONFIGURATION).orElseThrow().getId(), "kept");
+        assertTrue(queue.claim(CONFIGURATION).isEmpty());
+        assertTrue(queue.claim("other").isEmpty());
+
+    }
+
+    private static MultiMatch match(final String id) {
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId(CONFIGURATION);
+
+        final var match = new MultiMatch();
+        match.setId(id);
+        match.setConfiguration(configuration);
+
+        return match;
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks the moving average kept by the {@link DemandEstimator} against a clock controlled by the test.
+ */
+public class TestDemandEstimator {
+
+    private static final double WINDOW_SECONDS = 10.0;
+
+    private static final double EPSILON = 1e-9;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testRecordRaisesRate() {
+
+        final var estimator = new DemandEstimator(WINDOW_SECONDS, now::get);
+
+        assertEquals(estimator.getRate(), 0.0, EPSILON);
+
+        for (int i = 0; i < 10; ++i) {
+            estimator.record();
+        }
+
+        assertEquals(estimator.getRate(), 1.0, EPSILON);
+
+    }
+
+    @Test
+    public void testRateDecaysOverWindow() {
+
+        final var estimator = new DemandEstimator(WINDOW_SECONDS, now::get);
+
+        for (int i = 0; i < 10; ++i) {
+            estimator.record();
+        }
+
+        now.addAndGet(SECONDS.toNanos(10));
+        assertEquals(estimator.getRate(), Math.exp(-1), EPSILON);
+
+        now.addAndGet(SECONDS.toNanos(10));
+        assertEquals(estimator.getRate(), Math.exp(-2), EPSILON);
+
+    }
+
+    @Test
+    public void testTargetCoversLeadTimeWithinBounds() {
+
+        final var estimator = new DemandEstimator(WINDOW_SECONDS, now::get);
+
+        for (int i = 0; i < 10; ++i) {
+            estimator.record();
+        }
+
+        // One request per second covers three for a three second lead time.
+        assertEquals(estimator.target(3, 0, 16), 3);
+        assertEquals(estimator.target(3, 0, 2), 2);
+        assertEquals(estimator.target(3, 5, 16), 5);
+
+        now.addAndGet(SECONDS.toNanos(600));
+        assertEquals(estimator.target(3, 0, 16), 0);
+
+    }
+
+}
@@ -0,0 +1,428 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.MatchHandle;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.Server;
+import dev.getelements.elements.crossfire.api.model.error.TimeoutException;
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.crossfire.util.MatchLifecycleWriter;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.ForbiddenException;
+import dev.getelements.elements.sdk.model.exception.MultiMatchNotFoundException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Drives the {@link FIFOMatchmakingAlgorithm} end to end against an in memory stand-in for the database.
+ */
+public class TestFIFOMatchmakingAlgorithm {
+
+    private static final int MAX_PROFILES = 4;
+
+    private final Database database = new Database();
+
+    private final Queue<Runnable> lifecycleWrites = new ConcurrentLinkedQueue<>();
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private PartyReservations partyReservations;
+
+    private FIFOMatchmakingAlgorithm algorithm;
+
+    @BeforeMethod
+    public void setupAlgorithm() {
+
+        database.clear();
+        lifecycleWrites.clear();
+
+        executorService = Executors.newCachedThreadPool();
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+        partyReservations = new PartyReservations();
+        partyReservations.setReservationSeconds(60);
+        partyReservations.setExecutorService(executorService);
+        partyReservations.setScheduledExecutorService(scheduledExecutorService);
+
+        final var warmMatchPool = new WarmMatchPool();
+        warmMatchPool.setMaxSize(0);
+        warmMatchPool.setMaxAgeSeconds(60);
+        warmMatchPool.setExecutorService(executorService);
+        warmMatchPool.setScheduledExecutorService(scheduledExecutorService);
+        warmMatchPool.setTransactionProvider(database::transaction);
+
+        final var backfillQueue = new BackfillQueue();
+        backfillQueue.setSlotWeightSeconds(1);
+
+        algorithm = new FIFOMatchmakingAlgorithm();
+        algorithm.setTransactionProvider(database::transaction);
+        algorithm.setLifecycleWriter(new MatchLifecycleWriter(database::transaction, lifecycleWrites::add));
+        algorithm.setOpenMatchIndex(new OpenMatchIndex());
+        algorithm.setPartyReservations(partyReservations);
+        algorithm.setWarmMatchPool(warmMatchPool);
+        algorithm.setBackfillQueue(backfillQueue);
+
+    }
+
+    @AfterMethod
+    public void shutdownExecutors() {
+        scheduledExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testPartyPlacedOnceEveryMemberAsks() throws Exception {
+
+        final var alice = find("alice", "bob");
+
+        assertFalse(alice.matched.isDone());
+        assertTrue(database.members().isEmpty(), "Nobody may be placed before the whole party has asked.");
+
+        final var bob = find("bob", "alice");
+
+        final var matchId = bob.matched.get(5, SECONDS).getId();
+        assertEquals(alice.matched.get(5, SECONDS).getId(), matchId);
+        assertEquals(database.members(matchId), Set.of("alice", "bob"));
+
+    }
+
+    @Test
+    public void testMemberWhichDidNotAskNotPlaced() throws Exception {
+
+        partyReservations.setReservationSeconds(0);
+
+        final var alice = find("alice", "mallory");
+
+        assertTrue(alice.failed.get(5, SECONDS) instanceof TimeoutException);
+        assertFalse(alice.matched.isDone());
+        assertTrue(database.members().isEmpty());
+
+        // Mallory matches on their own, and is not handed a slot held for Alice's party.
+        final var mallory = find("mallory");
+        final var matchId = mallory.matched.get(5, SECONDS).getId();
+
+        assertEquals(database.members(matchId), Set.of("mallory"));
+
+    }
+
+    @Test
+    public void testMemberWhichLeftWhileWaitingNotPlaced() {
+
+        final var alice = find("alice", "bob");
+        alice.handle.leaveMatch();
+
+        final var bob = find("bob", "alice");
+
+        assertFalse(bob.matched.isDone());
+        assertFalse(alice.matched.isDone());
+        assertTrue(database.members().isEmpty());
+
+    }
+
+    @Test
+    public void testPartyTooLargeRejected() throws Exception {
+
+        final var alice = find("alice", "bob", "carol", "dave", "erin");
+
+        assertTrue(alice.failed.get(5, SECONDS) instanceof ForbiddenException);
+        assertTrue(database.members().isEmpty());
+
+    }
+
+    @Test
+    public void testLeftSlotOfferedOnlyOnceWritten() throws Exception {
+
+        final var alice = find("alice");
+        final var matchId = alice.matched.get(5, SECONDS).getId();
+
+        for (var profileId : List.of("bob", "carol", "dave")) {
+            assertEquals(find(profileId).matched.get(5, SECONDS).getId(), matchId);
+        }
+
+        alice.handle.leaveMatch();
+
+        // The database still counts Alice, so her slot must not be offered yet. Erin starts a new match rather than
+        // failing to join the full one, which would drop it from the backfill queue.
+        final var erin = find("erin");
+        final var newMatchId = erin.matched.get(5, SECONDS).getId();
+
+        assertNotEquals(newMatchId, matchId);
+        assertEquals(database.members(matchId), Set.of("alice", "bob", "carol", "dave"));
+
+        writeLifecycle();
+        assertEquals(database.members(matchId), Set.of("bob", "carol", "dave"));
+
+        // Once written, the freed slot is refilled ahead of the newer match with more room.
+        assertEquals(find("frank").matched.get(5, SECONDS).getId(), matchId);
+        assertEquals(database.members(matchId), Set.of("bob", "carol", "dave", "frank"));
+
+    }
+
+    @Test
+    public void testProfileNotPlacedBackInMatchItIsLeaving() throws Exception {
+
+        final var clients = new HashMap<String, Client>();
+
+        for (var profileId : List.of("alice", "bob", "carol", "dave")) {
+            clients.put(profileId, find(profileId));
+        }
+
+        final var matchId = clients.get("alice").matched.get(5, SECONDS).getId();
+
+        clients.get("bob").handle.leaveMatch();
+        writeLifecycle();
+
+        // Alice leaves while Bob's slot waits in the backfill queue, then asks again before her departure is written.
+        clients.get("alice").handle.leaveMatch();
+        final var again = find("alice").matched.get(5, SECONDS).getId();
+
+        assertNotEquals(again, matchId);
+
+        writeLifecycle();
+        assertEquals(database.members(matchId), Set.of("carol", "dave"));
+        assertEquals(database.members(again), Set.of("alice"));
+
+        // The slot Alice passed over is still there for someone else.
+        assertEquals(find("erin").matched.get(5, SECONDS).getId(), matchId);
+
+    }
+
+    @Test
+    public void testProfileNotPlacedInMatchItHolds() throws Exception {
+
+        final var matchId = find("alice").matched.get(5, SECONDS).getId();
+
+        // Asking again while still holding a slot must not hand Alice the match she is already in.
+        final var again = find("alice").matched.get(5, SECONDS).getId();
+
+        assertNotEquals(again, matchId);
+        assertEquals(database.members(matchId), Set.of("alice"));
+
+    }
+
+    @Test
+    public void testClaimReleasedWhenWriteFails() throws Exception {
+
+        final var matchId = find("alice").matched.get(5, SECONDS).getId();
+
+        database.failNextWrite();
+        assertTrue(find("bob").failed.get(5, SECONDS) instanceof IllegalStateException);
+
+        // The slot Bob claimed went back to the index, so every remaining slot is claimed without a query.
+        final var queries = database.queries.get();
+
+        for (var profileId : List.of("carol", "dave", "erin")) {
+            assertEquals(find(profileId).matched.get(5, SECONDS).getId(), matchId);
+        }
+
+        assertEquals(database.queries.get(), queries);
+        assertEquals(database.members(matchId), Set.of("alice", "carol", "dave", "erin"));
+
+    }
+
+    private void writeLifecycle() {
+        for (var write = lifecycleWrites.poll(); write != null; write = lifecycleWrites.poll()) {
+            write.run();
+        }
+    }
+
+    private Client find(final String profileId, final String ... party) {
+
+        final var profile = new Profile();
+        profile.setId(profileId);
+
+        final var findRequest = new FindHandshakeRequest();
+        findRequest.setParty(party.length == 0 ? null : List.of(party));
+
+        final var client = new Client();
+
+        final Server server = stub(Server.class, (proxy, method, args) -> {
+            try {
+                ((Runnable) args[0]).run();
+            } catch (Throwable th) {
+                client.failed.complete(th);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+
+        final MatchmakingRequest<FindHandshakeRequest> request = stub(
+                MatchmakingRequest.class,
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getProfile" -> profile;
+                    case "getApplicationConfiguration" -> database.configuration;
+                    case "getHandshakeRequest" -> findRequest;
+                    case "getServer" -> server;
+                    case "success" -> client.matched.complete(((MatchHandle<?>) args[0]).getResult());
+                    case "failure" -> client.failed.complete((Throwable) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+
+        client.handle = algorithm.initialize(request);
+        client.handle.startMatching();
+
+        return client;
+
+    }
+
+    private static class Client {
+
+        private final CompletableFuture<MultiMatch> matched = new CompletableFuture<>();
+
+        private final CompletableFuture<Throwable> failed = new CompletableFuture<>();
+
+        private MatchHandle<FindHandshakeRequest> handle;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+    /**
+     * Keeps the members of each match in memory. Every operation is applied immediately, as if each transaction
+     * committed on its own.
+     */
+    private static class Database {
+
+        private final MatchmakingApplicationConfiguration configuration = new MatchmakingApplicationConfiguration();
+
+        private final Map<String, Set<String>> matches = new LinkedHashMap<>();
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private final AtomicBoolean failing = new AtomicBoolean();
+
+        private final MultiMatchDao dao = stub(MultiMatchDao.class, (proxy, method, args) -> {
+            synchronized (this) {
+                return switch (method.getName()) {
+                    case "createMultiMatch" -> {
+                        final var id = "match-" + created.incrementAndGet();
+                        matches.put(id, new LinkedHashSet<>());
+                        yield snapshot(id);
+                    }
+                    case "addProfile" -> addProfile((String) args[0], (Profile) args[1]);
+                    case "removeProfile" -> {
+                        members((String) args[0]).remove(((Profile) args[1]).getId());
+                        yield snapshot((String) args[0]);
+                    }
+                    case "deleteMultiMatch" -> matches.remove((String) args[0]);
+                    case "findOldestAvailableMultiMatchCandidate" -> {
+                        queries.incrementAndGet();
+                        yield matches.keySet()
+                                .stream()
+                                .filter(id -> matches.get(id).size() < MAX_PROFILES)
+                                .filter(id -> !matches.get(id).contains((String) args[1]))
+                                .findFirst()
+                                .map(this::snapshot);
+                    }
+                    case "openMatch", "closeMatch", "endMatch" -> snapshot((String) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                };
+            }
+        });
+
+        private Database() {
+            configuration.setId("configuration");
+            configuration.setMaxProfiles(MAX_PROFILES);
+        }
+
+        private synchronized void clear() {
+            matches.clear();
+            created.set(0);
+            queries.set(0);
+            failing.set(false);
+        }
+
+        /**
+         * Fails the next write with an exception the DAO would not raise itself, as when the database is unreachable.
+         */
+        private void failNextWrite() {
+            failing.set(true);
+        }
+
+        private synchronized Map<String, Set<String>> members() {
+            final var members = new LinkedHashMap<String, Set<String>>();
+            matches.forEach((id, profiles) -> { if (!profiles.isEmpty()) members.put(id, Set.copyOf(profiles)); });
+            return members;
+        }
+
+        private synchronized Set<String> members(final String matchId) {
+            final var members = matches.get(matchId);
+            if (members == null) throw new MultiMatchNotFoundException();
+            return members;
+        }
+
+        private MultiMatch addProfile(final String matchId, final Profile profile) {
+
+            if (failing.compareAndSet(true, false)) {
+                throw new IllegalStateException("Database unavailable.");
+            }
+
+            final var members = members(matchId);
+
+            if (members.size() >= MAX_PROFILES) {
+                throw new ForbiddenException("Match " + matchId + " is full.");
+            }
+
+            members.add(profile.getId());
+            return snapshot(matchId);
+
+        }
+
+        private MultiMatch snapshot(final String matchId) {
+            final var match = new MultiMatch();
+            match.setId(matchId);
+            match.setConfiguration(configuration);
+            match.setStatus(MultiMatchStatus.OPEN);
+            match.setCount(members(matchId).size());
+            return match;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Transaction transaction() {
+            return stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getDao" -> dao;
+                case "performAndClose" -> ((Function<Transaction, ?>) args[0]).apply((Transaction) proxy);
+                case "performAndCloseV" -> {
+                    ((Consumer<Transaction>) args[0]).accept((Transaction) proxy);
+                    yield null;
+                }
+                default -> null;
+            });
+        }
+
+    }
+
+}
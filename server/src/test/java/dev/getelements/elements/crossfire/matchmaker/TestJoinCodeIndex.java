@@ -0,0 +1,126 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.ucode.UniqueCode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the {@link JoinCodeIndex} never serves a match whose code may have been issued again.
+ */
+public class TestJoinCodeIndex {
+
+    private final Map<String, MultiMatch> database = new HashMap<>();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private JoinCodeIndex index;
+
+    @BeforeMethod
+    public void setupIndex() {
+
+        database.clear();
+        loads.set(0);
+
+        index = new JoinCodeIndex();
+        index.setMaxEntries(16);
+        index.setTransactionProvider(this::transaction);
+
+    }
+
+    @Test
+    public void testRemoveKeepsNewerEntryForCode() {
+
+        final var expired = match("expired", "ABCD", 60);
+        final var reissued = match("reissued", "ABCD", 60);
+
+        index.register(expired, List.of("alice"));
+        index.register(reissued, List.of("bob"));
+
+        // The reaper or the lifecycle writer catches up with the old match after its code was issued again.
+        index.remove("expired");
+
+        assertSame(index.find("ABCD").getMatch(), reissued);
+        assertEquals(loads.get(), 0, "The newer entry must have stayed indexed.");
+
+    }
+
+    @Test
+    public void testExpiredEntryReloaded() throws Exception {
+
+        index.register(match("expired", "ABCD", 1), List.of("alice"));
+        database.put("ABCD", match("reissued", "ABCD", 60));
+
+        Thread.sleep(1100);
+
+        assertEquals(index.find("ABCD").getMatch().getId(), "reissued");
+        assertEquals(loads.get(), 1);
+
+        assertEquals(index.find("ABCD").getMatch().getId(), "reissued");
+        assertEquals(loads.get(), 1, "The reloaded entry must be indexed in place of the expired one.");
+
+    }
+
+    private static MultiMatch match(final String id, final String joinCode, final long timeoutSeconds) {
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId("configuration");
+        configuration.setTimeoutSeconds(timeoutSeconds);
+
+        final var code = new UniqueCode();
+        code.setId(joinCode);
+
+        final var match = new MultiMatch();
+        match.setId(id);
+        match.setConfiguration(configuration);
+        match.setJoinCode(code);
+
+        return match;
+
+    }
+
+    private Transaction transaction() {
+
+        final MultiMatchDao dao = stub(MultiMatchDao.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMultiMatchByJoinCode" -> {
+                loads.incrementAndGet();
+                yield database.get((String) args[0]);
+            }
+            case "getProfiles" -> List.of();
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        return stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDao" -> dao;
+            default -> null;
+        });
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
@@ -0,0 +1,134 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the {@link OpenMatchIndex} drops matches once they fill, and takes them back when a slot is released.
+ */
+public class TestOpenMatchIndex {
+
+    private static final String CONFIGURATION = "configuration";
+
+    @Test
+    public void testFullMatchDropped() {
+
+        final var index = new OpenMatchIndex();
+        final var match = match("match");
+
+        index.offer(match, 2);
+        claim(index);
+        claim(index);
+
+        assertTrue(index.claim(CONFIGURATION, 0).isEmpty());
+        assertFalse(index.release(match.getId()), "A full match must no longer be indexed.");
+
+        index.release(match);
+
+        assertEquals(claim(index).getMatch().getId(), "match");
+        assertTrue(index.claim(CONFIGURATION, 0).isEmpty());
+
+    }
+
+    @Test
+    public void testReleaseBeforeFull() {
+
+        final var index = new OpenMatchIndex();
+        final var match = match("match");
+
+        index.offer(match, 2);
+        claim(index);
+
+        assertTrue(index.release(match.getId()));
+        assertEquals(index.claim(CONFIGURATION, 0, 2).orElseThrow().getMatch().getId(), "match");
+        assertFalse(index.release(match.getId()));
+
+    }
+
+    @Test
+    public void testRemove() {
+
+        final var index = new OpenMatchIndex();
+
+        index.offer(match("removed"), 2);
+        index.offer(match("kept"), 1);
+        index.remove("removed");
+
+        assertFalse(index.release("removed"));
+        assertEquals(claim(index).getMatch().getId(), "kept");
+        assertTrue(index.claim(CONFIGURATION, 0).isEmpty());
+
+    }
+
+    @Test
+    public void testClaimSkipsMatchHoldingProfile() {
+
+        final var index = new OpenMatchIndex();
+        final var configuration = match("held").getConfiguration();
+
+        index.offer(match("held"), 2, Set.of("alice"));
+
+        assertTrue(index.claim(configuration, "alice").isEmpty());
+
+        final var claimed = index.claim(configuration, "bob").orElseThrow();
+        claimed.addProfile("bob");
+        claimed.complete();
+
+        assertEquals(claimed.getMatch().getId(), "held");
+        assertTrue(index.claim(configuration, "bob").isEmpty());
+        assertEquals(index.claim(configuration, "carol").orElseThrow().getMatch().getId(), "held");
+
+    }
+
+    @Test
+    public void testMoveKeepsSlotsAndProfiles() {
+
+        final var index = new OpenMatchIndex();
+
+        index.offer("east", match("moved"), 3, Set.of("alice"));
+        claim(index, "east");
+
+        assertTrue(index.move("moved", "any"));
+        assertFalse(index.move("missing", "any"));
+
+        assertTrue(index.claim("east", 0).isEmpty(), "The match must leave its old queue.");
+        assertTrue(index.claim("any", 0, 1, Set.of("alice")).isEmpty(), "The recorded profiles must move with it.");
+
+        assertTrue(index.claim("any", 0, 3).isEmpty(), "The match must keep only its free slots.");
+        claim(index, "any");
+        claim(index, "any");
+        assertTrue(index.claim("any", 0).isEmpty());
+
+    }
+
+    private static OpenMatchIndex.OpenMatch claim(final OpenMatchIndex index, final String key) {
+        final var claimed = index.claim(key, 0).orElseThrow();
+        claimed.complete();
+        return claimed;
+    }
+
+    private static OpenMatchIndex.OpenMatch claim(final OpenMatchIndex index) {
+        final var claimed = index.claim(CONFIGURATION, 0).orElseThrow();
+        claimed.complete();
+        return claimed;
+    }
+
+    private static MultiMatch match(final String id) {
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId(CONFIGURATION);
+
+        final var match = new MultiMatch();
+        match.setId(id);
+        match.setConfiguration(configuration);
+
+        return match;
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Benchmarks how many simulated addProfile commits per second the {@link OpenMatchIndex} sustains as the number of
+ * concurrent requesters grows. Each commit holds a per-match lock for a fixed time, as a database would serialize
+ * writes to one document, so requesters piling onto the same match cannot commit in parallel.
+ */
+public class TestOpenMatchIndexContention {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestOpenMatchIndexContention.class);
+
+    private static final String KEY = "configuration";
+
+    private static final int MAX_PROFILES = 8;
+
+    private static final int SHARDS = 8;
+
+    private static final long COMMIT_NANOS = MILLISECONDS.toNanos(1);
+
+    private static final long DURATION_MILLIS = 250;
+
+    private static final int[] REQUESTERS = {1, 2, 4, 8, 16};
+
+    @Test
+    public void benchmarkCommitsPerSecond() throws InterruptedException {
+
+        for (final var requesters : REQUESTERS) {
+
+            final var unsharded = run(1, requesters);
+            final var sharded = run(SHARDS, requesters);
+
+            logger.info("{} requesters: {} commits/s with {} shards, {} commits/s unsharded.",
+                    requesters,
+                    Math.round(sharded),
+                    SHARDS,
+                    Math.round(unsharded)
+            );
+
+            // Only reported, as wall-clock throughput depends on the machine running the build.
+            assertTrue(sharded > 0);
+            assertTrue(unsharded > 0);
+
+        }
+
+    }
+
+    private double run(final int shards, final int requesters) throws InterruptedException {
+
+        final var index = new OpenMatchIndex();
+        index.setShards(shards);
+
+        final var locks = new ConcurrentHashMap<String, Object>();
+        final var commits = new AtomicLong();
+        final var start = new CountDownLatch(1);
+        final var threads = new ArrayList<Thread>();
+        final var deadline = new AtomicLong();
+
+        for (int i = 0; i < requesters; ++i) {
+            final var thread = new Thread(() -> {
+
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+
+                while (System.nanoTime() < deadline.get()) {
+                    request(index, locks);
+                    commits.incrementAndGet();
+                }
+
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        final var begin = System.nanoTime();
+        deadline.set(begin + MILLISECONDS.toNanos(DURATION_MILLIS));
+        start.countDown();
+
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        final var elapsed = System.nanoTime() - begin;
+        return commits.get() / (elapsed / (double) SECONDS.toNanos(1));
+
+    }
+
+    private void request(final OpenMatchIndex index, final ConcurrentMap<String, Object> locks) {
+
+        final var claimed = index.claim(KEY, 0);
+
+        if (claimed.isPresent()) {
+            try {
+                commit(locks, claimed.get().getMatch().getId());
+            } finally {
+                claimed.get().complete();
+            }
+        } else {
+            final var match = new MultiMatch();
+            match.setId(UUID.randomUUID().toString());
+            commit(locks, match.getId());
+            index.offer(KEY, match, MAX_PROFILES - 1);
+        }
+
+    }
+
+    private void commit(final ConcurrentMap<String, Object> locks, final String matchId) {
+        synchronized (locks.computeIfAbsent(matchId, id -> new Object())) {
+            LockSupport.parkNanos(COMMIT_NANOS);
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.model.error.TimeoutException;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.ForbiddenException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Checks that {@link PartyReservations} only forms a party once every member has listed the same party, and that
+ * members who wait too long are released.
+ */
+public class TestPartyReservations {
+
+    private static final MatchmakingApplicationConfiguration CONFIGURATION = configuration();
+
+    private ExecutorService executorService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private PartyReservations reservations;
+
+    @BeforeMethod
+    public void setupReservations() {
+
+        executorService = Executors.newSingleThreadExecutor();
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+        reservations = new PartyReservations();
+        reservations.setReservationSeconds(60);
+        reservations.setExecutorService(executorService);
+        reservations.setScheduledExecutorService(scheduledExecutorService);
+
+    }
+
+    @AfterMethod
+    public void shutdownExecutors() {
+        scheduledExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testPartyFormsWhenLastMemberArrives() throws Exception {
+
+        final var alice = reserve("alice", "bob", "carol");
+        final var bob = reserve("bob", "alice", "carol");
+
+        assertTrue(alice.formed.isEmpty());
+        assertTrue(bob.formed.isEmpty());
+
+        final var carol = reserve("carol", "alice", "bob");
+        final var party = carol.formed.orElseThrow();
+
+        assertEquals(ids(party.getMembers()), Set.of("alice", "bob"));
+
+        final var match = new MultiMatch();
+        match.setId("match");
+        party.attach(match);
+
+        assertSame(alice.attached.get(5, SECONDS), match);
+        assertSame(bob.attached.get(5, SECONDS), match);
+
+        // Attached members no longer hold reservations.
+        assertFalse(reservations.withdraw(CONFIGURATION, profile("alice")));
+        assertFalse(reservations.withdraw(CONFIGURATION, profile("bob")));
+
+    }
+
+    @Test
+    public void testMemberWhichDidNotListPartyNotReserved() {
+
+        // Bob is waiting for a different party, so Alice may not place him.
+        final var bob = reserve("bob", "carol");
+        final var alice = reserve("alice", "bob");
+
+        assertTrue(alice.formed.isEmpty());
+        assertFalse(bob.attached.isDone());
+
+        // Mallory lists Alice, but Alice never listed Mallory.
+        final var mallory = reserve("mallory", "alice");
+
+        assertTrue(mallory.formed.isEmpty());
+        assertFalse(alice.attached.isDone());
+
+        // A member which lists the leader but leaves someone out does not agree to the same party either.
+        final var dave = reserve("dave", "erin", "frank");
+        final var erin = reserve("erin", "dave");
+
+        assertTrue(erin.formed.isEmpty());
+        assertFalse(dave.attached.isDone());
+
+    }
+
+    @Test
+    public void testExpiredReservationReleased() throws Exception {
+
+        reservations.setReservationSeconds(0);
+
+        final var alice = reserve("alice", "bob");
+        final var th = alice.released.get(5, SECONDS);
+
+        assertTrue(th instanceof TimeoutException);
+        assertFalse(alice.attached.isDone());
+
+        // The expired reservation no longer counts toward the party.
+        reservations.setReservationSeconds(60);
+        assertTrue(reserve("bob", "alice").formed.isEmpty());
+
+    }
+
+    @Test
+    public void testWithdrawnReservationNotAttached() {
+
+        final var alice = reserve("alice", "bob");
+
+        assertTrue(reservations.withdraw(CONFIGURATION, profile("alice")));
+        assertFalse(reservations.withdraw(CONFIGURATION, profile("alice")));
+
+        assertTrue(reserve("bob", "alice").formed.isEmpty());
+        assertFalse(alice.attached.isDone());
+        assertFalse(alice.released.isDone());
+
+    }
+
+    @Test
+    public void testReplacedReservationReleased() throws Exception {
+
+        final var first = reserve("alice", "bob");
+        final var second = reserve("alice", "bob");
+
+        assertNotNull(first.released.get(5, SECONDS));
+
+        final var party = reserve("bob", "alice").formed.orElseThrow();
+        party.attach(new MultiMatch());
+
+        assertNotNull(second.attached.get(5, SECONDS));
+        assertFalse(first.attached.isDone());
+
+    }
+
+    @Test
+    public void testFailedPartyReleased() throws Exception {
+
+        final var alice = reserve("alice", "bob");
+        final var party = reserve("bob", "alice").formed.orElseThrow();
+        final var failure = new IllegalStateException("Placement failed.");
+
+        party.release(failure);
+
+        assertSame(alice.released.get(5, SECONDS), failure);
+        assertFalse(alice.attached.isDone());
+
+    }
+
+    @Test
+    public void testPartyRejectedWhenNotSingleNode() {
+
+        reservations.setSingleNode(false);
+
+        assertThrows(ForbiddenException.class, () -> reserve("alice", "bob"));
+        assertFalse(reservations.withdraw(CONFIGURATION, profile("alice")), "Nothing may be left waiting.");
+
+    }
+
+    private Reserved reserve(final String profileId, final String ... party) {
+        final var attached = new CompletableFuture<MultiMatch>();
+        final var released = new CompletableFuture<Throwable>();
+        final var formed = reservations.reserve(
+                CONFIGURATION,
+                profile(profileId),
+                List.of(party),
+                attached::complete,
+                released::complete
+        );
+        return new Reserved(formed, attached, released);
+    }
+
+    private static Set<String> ids(final List<Profile> profiles) {
+        return profiles.stream().map(Profile::getId).collect(Collectors.toSet());
+    }
+
+    private static Profile profile(final String id) {
+        final var profile = new Profile();
+        profile.setId(id);
+        return profile;
+    }
+
+    private static MatchmakingApplicationConfiguration configuration() {
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId("configuration");
+        return configuration;
+    }
+
+    private record Reserved(
+            Optional<PartyReservations.Party> formed,
+            CompletableFuture<MultiMatch> attached,
+            CompletableFuture<Throwable> released) {}
+
+}
@@ -0,0 +1,128 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks the behavior of {@link RatingIndex} and benchmarks how the cost of finding the nearest entry scales with the
+ * number of waiting entries, up to 100k.
+ */
+public class TestRatingIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestRatingIndex.class);
+
+    private static final int LOOKUPS = 100_000;
+
+    @Test
+    public void testClaimsNearestWithinTolerance() {
+
+        final var index = new RatingIndex<String>();
+        index.add(1000, "low", 1);
+        index.add(1500, "mid", 1);
+        index.add(2000, "high", 1);
+
+        assertEquals(index.claimNearest(1450, 100).orElseThrow().getValue(), "mid");
+        assertTrue(index.claimNearest(1450, 100).isEmpty(), "Full entries must leave the index.");
+        assertEquals(index.claimNearest(1900, 200).orElseThrow().getValue(), "high");
+        assertTrue(index.claimNearest(1300, 100).isEmpty(), "Entries outside the tolerance must not match.");
+
+    }
+
+    @Test
+    public void testReleaseAndRemove() {
+
+        final var index = new RatingIndex<String>();
+        final var entry = index.add(1500, "match", 1);
+
+        assertTrue(index.claimNearest(1500, 0).isPresent());
+        assertEquals(index.size(), 0);
+        assertEquals(entry.getAvailable(), 0);
+
+        entry.release();
+        assertEquals(index.size(), 1);
+        assertEquals(entry.getAvailable(), 1);
+        assertTrue(index.claimNearest(1500, 0).isPresent());
+
+        entry.release();
+        entry.remove();
+        assertEquals(index.size(), 0);
+        assertTrue(index.claimNearest(1500, 0).isEmpty());
+
+        entry.release();
+        assertEquals(index.size(), 0, "Removed entries must never return.");
+
+    }
+
+    @Test
+    public void testWidenedEntryAcceptsDistantRating() {
+
+        final var index = new RatingIndex<String>();
+        final var waiting = index.add(1500, "waiting", 2);
+        index.add(1150, "narrow", 1);
+
+        assertTrue(index.claimNearest(1300, 100).isEmpty());
+
+        waiting.widen(250);
+        assertEquals(index.claimNearest(1300, 100).orElseThrow().getValue(), "waiting",
+                "The widened entry must accept a rating beyond the requester's tolerance.");
+
+        waiting.widen(50);
+        assertEquals(index.claimNearest(1300, 100).orElseThrow().getValue(), "waiting",
+                "Widening must never narrow an entry.");
+
+    }
+
+    @DataProvider
+    public Object[][] waitingTickets() {
+        return new Object[][] {
+                {1_000},
+                {10_000},
+                {100_000}
+        };
+    }
+
+    @Test(dataProvider = "waitingTickets")
+    public void benchmarkClaimNearest(final int waiting) {
+
+        final var random = new Random(waiting);
+        final var index = new RatingIndex<Integer>();
+
+        for (int i = 0; i < waiting; ++i) {
+            index.add(random.nextGaussian(1500, 300), i, Integer.MAX_VALUE);
+        }
+
+        // Warm up so that the measurement reflects compiled code.
+        for (int i = 0; i < LOOKUPS; ++i) {
+            index.claimNearest(random.nextGaussian(1500, 300), 100);
+        }
+
+        var found = 0;
+        final var start = System.nanoTime();
+
+        for (int i = 0; i < LOOKUPS; ++i) {
+            if (index.claimNearest(random.nextGaussian(1500, 300), 100).isPresent()) {
+                ++found;
+            }
+        }
+
+        final var elapsed = System.nanoTime() - start;
+
+        logger.info("{} waiting tickets: {} ns per claim ({} of {} found a match).",
+                waiting,
+                elapsed / LOOKUPS,
+                found,
+                LOOKUPS
+        );
+
+        assertEquals(index.size(), waiting);
+        assertTrue(found > 0);
+
+    }
+
+}
@@ -0,0 +1,236 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.crossfire.api.BatchAssignment;
+import dev.getelements.elements.crossfire.api.BatchMatchmaker;
+import dev.getelements.elements.crossfire.api.BatchMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Drives the {@link StandardBatchMatchmaker} with an algorithm which pairs requests in arrival order, against an in
+ * memory stand-in for the database.
+ */
+public class TestStandardBatchMatchmaker {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final AtomicBoolean failCommits = new AtomicBoolean();
+
+    private final BatchMatchmakingAlgorithm<FindHandshakeRequest, ?> pairs = stub(
+            BatchMatchmakingAlgorithm.class,
+            (proxy, method, args) -> switch (method.getName()) {
+                case "match" -> pair(args[1]);
+                case "getName" -> "PAIRS";
+                default -> throw new UnsupportedOperationException(method.getName());
+            }
+    );
+
+    private final MultiMatchDao multiMatchDao = stub(MultiMatchDao.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "createMultiMatch" -> {
+                final var match = (MultiMatch) args[0];
+                match.setId("match-" + created.incrementAndGet());
+                return match;
+            }
+            case "addProfile" -> {
+                if (failCommits.get()) throw new IllegalStateException("Commit failed.");
+                final var match = new MultiMatch();
+                match.setId((String) args[0]);
+                return match;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        }
+    });
+
+    private ScheduledThreadPoolExecutor scheduledExecutorService;
+
+    private ExecutorService executorService;
+
+    private StandardBatchMatchmaker matchmaker;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setupMatchmaker() {
+
+        created.set(0);
+        failCommits.set(false);
+
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        executorService = Executors.newSingleThreadExecutor();
+
+        matchmaker = new StandardBatchMatchmaker();
+        matchmaker.setTickMillis(TICK_MILLIS);
+        matchmaker.setExecutorService(executorService);
+        matchmaker.setScheduledExecutorService(scheduledExecutorService);
+        matchmaker.setTransactionProvider(() -> stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDao" -> multiMatchDao;
+            case "performAndClose" -> ((Function<Transaction, ?>) args[0]).apply((Transaction) proxy);
+            case "performAndCloseV" -> {
+                ((Consumer<Transaction>) args[0]).accept((Transaction) proxy);
+                yield null;
+            }
+            default -> null;
+        }));
+
+    }
+
+    @AfterMethod
+    public void shutdownExecutors() {
+        scheduledExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testTickAssignsPairsInOrder() throws Exception {
+
+        final var first = enqueue("first");
+        final var second = enqueue("second");
+        final var third = enqueue("third");
+
+        assertEquals(first.matched.get(5, SECONDS).getId(), "match-1");
+        assertEquals(second.matched.get(5, SECONDS).getId(), "match-1");
+
+        // The odd request out stays pending across ticks until it has a partner.
+        Thread.sleep(5 * TICK_MILLIS);
+        assertFalse(third.matched.isDone());
+
+        final var fourth = enqueue("fourth");
+
+        assertEquals(third.matched.get(5, SECONDS).getId(), "match-2");
+        assertEquals(fourth.matched.get(5, SECONDS).getId(), "match-2");
+
+        awaitRetired();
+
+    }
+
+    @Test
+    public void testCancelledRequestNotAssigned() throws Exception {
+
+        final var cancelled = enqueue("cancelled");
+        assertTrue(cancelled.ticket.cancel());
+        assertFalse(cancelled.ticket.cancel());
+
+        final var first = enqueue("first");
+        final var second = enqueue("second");
+
+        assertEquals(first.matched.get(5, SECONDS).getId(), "match-1");
+        assertEquals(second.matched.get(5, SECONDS).getId(), "match-1");
+        assertFalse(first.ticket.cancel(), "An assigned request cannot be withdrawn.");
+
+        awaitRetired();
+        assertFalse(cancelled.matched.isDone());
+
+    }
+
+    @Test
+    public void testFailedCommitReportsError() throws Exception {
+
+        failCommits.set(true);
+
+        final var first = enqueue("first");
+        final var second = enqueue("second");
+
+        assertThrows(ExecutionException.class, () -> first.matched.get(5, SECONDS));
+        assertThrows(ExecutionException.class, () -> second.matched.get(5, SECONDS));
+
+        awaitRetired();
+
+    }
+
+    @Test
+    public void testTickMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.setTickMillis(0));
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.setTickMillis(-1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Enqueued enqueue(final String profileId) {
+
+        final var profile = new Profile();
+        profile.setId(profileId);
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId("configuration");
+
+        final var request = (MatchmakingRequest<FindHandshakeRequest>) stub(
+                MatchmakingRequest.class,
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getProfile" -> profile;
+                    case "getApplicationConfiguration" -> configuration;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+
+        final var matched = new CompletableFuture<MultiMatch>();
+        final var ticket = matchmaker.enqueue(pairs, request, matched::complete, matched::completeExceptionally);
+
+        return new Enqueued(ticket, matched);
+
+    }
+
+    private void awaitRetired() throws InterruptedException {
+
+        // Once the queue drains the batch cancels its tick, which removes it from the scheduler.
+        for (int i = 0; i < 500 && !scheduledExecutorService.getQueue().isEmpty(); ++i) {
+            Thread.sleep(TICK_MILLIS);
+        }
+
+        assertTrue(scheduledExecutorService.getQueue().isEmpty(), "The batch tick was not cancelled.");
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BatchAssignment<FindHandshakeRequest>> pair(final Object pending) {
+
+        final var requests = (List<MatchmakingRequest<FindHandshakeRequest>>) pending;
+        final var assignments = new ArrayList<BatchAssignment<FindHandshakeRequest>>();
+
+        for (int i = 0; i + 1 < requests.size(); i += 2) {
+            assignments.add(BatchAssignment.toNewMatch(requests.subList(i, i + 2)));
+        }
+
+        return assignments;
+
+    }
+
+    private record Enqueued(BatchMatchmaker.Ticket ticket, CompletableFuture<MultiMatch> matched) {}
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
@@ -0,0 +1,183 @@
+package dev.getelements.elements.crossfire.matchmaker;
+
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the {@link WarmMatchPool} refills to cover demand, never hands out stale matches and sweeps each pool on
+ * a single schedule.
+ */
+public class TestWarmMatchPool {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> joined = ConcurrentHashMap.newKeySet();
+
+    private final MultiMatchDao multiMatchDao = stub(MultiMatchDao.class, (proxy, method, args) -> switch (method.getName()) {
+        case "createMultiMatch" -> {
+            final var match = (MultiMatch) args[0];
+            match.setId("match-" + created.incrementAndGet());
+            yield match;
+        }
+        case "getProfiles" -> joined.contains((String) args[0]) ? List.of(new Profile()) : List.of();
+        case "deleteMultiMatch" -> {
+            deleted.add((String) args[0]);
+            yield null;
+        }
+        default -> throw new UnsupportedOperationException(method.getName());
+    });
+
+    private ScheduledThreadPoolExecutor scheduledExecutorService;
+
+    private ExecutorService executorService;
+
+    private WarmMatchPool pool;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setupPool() {
+
+        created.set(0);
+        deleted.clear();
+        joined.clear();
+
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        executorService = Executors.newCachedThreadPool();
+
+        pool = new WarmMatchPool();
+        pool.setMaxSize(16);
+        pool.setLeadSeconds(90);
+        pool.setMaxAgeSeconds(60);
+        pool.setExecutorService(executorService);
+        pool.setScheduledExecutorService(scheduledExecutorService);
+        pool.setTransactionProvider(() -> stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDao" -> multiMatchDao;
+            case "performAndClose" -> ((Function<Transaction, ?>) args[0]).apply((Transaction) proxy);
+            case "performAndCloseV" -> {
+                ((Consumer<Transaction>) args[0]).accept((Transaction) proxy);
+                yield null;
+            }
+            default -> null;
+        }));
+
+    }
+
+    @AfterMethod
+    public void shutdownExecutors() {
+        scheduledExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testRefilledAfterTake() throws Exception {
+
+        // The first take finds the pool empty, but the demand it records is enough to cover three matches.
+        assertTrue(pool.take(configuration("configuration")).isEmpty());
+        await(() -> created.get() == 3);
+
+        assertEquals(pool.take(configuration("configuration")).orElseThrow().getId(), "match-1");
+        assertTrue(deleted.isEmpty());
+
+    }
+
+    @Test
+    public void testStaleMatchesDeletedUnlessJoined() throws Exception {
+
+        pool.setMaxAgeSeconds(0);
+        joined.add("match-1");
+
+        assertTrue(pool.take(configuration("configuration")).isEmpty());
+        await(() -> created.get() == 3);
+
+        // Every match is stale immediately, so none is handed out. Only those nobody joined are deleted.
+        assertTrue(pool.take(configuration("configuration")).isEmpty());
+        await(() -> deleted.containsAll(Set.of("match-2", "match-3")));
+
+        assertFalse(deleted.contains("match-1"));
+
+    }
+
+    @Test
+    public void testSweeperScheduledOncePerPool() throws Exception {
+
+        final var start = new CountDownLatch(1);
+        final var takers = Executors.newFixedThreadPool(8);
+
+        try {
+
+            final var futures = IntStream.range(0, 8).mapToObj(i -> takers.submit(() -> {
+                start.await();
+                return pool.take(configuration("configuration"));
+            })).toList();
+
+            start.countDown();
+
+            for (var future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            takers.shutdownNow();
+        }
+
+        assertEquals(scheduledExecutorService.getQueue().size(), 1);
+
+        pool.take(configuration("other"));
+        pool.takeWithJoinCode(configuration("configuration"));
+
+        assertEquals(scheduledExecutorService.getQueue().size(), 3);
+
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); ++i) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(condition.getAsBoolean(), "Timed out waiting for the pool.");
+
+    }
+
+    private static MatchmakingApplicationConfiguration configuration(final String id) {
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setId(id);
+        return configuration;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
@@ -0,0 +1,289 @@
+package dev.getelements.elements.crossfire.protocol.v1;
+
+import dev.getelements.elements.crossfire.api.FindMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchHandle;
+import dev.getelements.elements.crossfire.api.model.handshake.JoinHandshakeRequest;
+import dev.getelements.elements.crossfire.protocol.ProtocolMessageHandler;
+import dev.getelements.elements.crossfire.service.AuthCacheService;
+import dev.getelements.elements.crossfire.service.MemoryMatchmakingConfigurationService;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.model.application.Application;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import dev.getelements.elements.sdk.model.exception.ForbiddenException;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import dev.getelements.elements.sdk.model.session.Session;
+import dev.getelements.elements.sdk.model.user.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+/**
+ * Drives {@link V10HandshakeHandler} against local stand-ins for the session, profile, and match lookups. Checks that
+ * the match lookup overlaps the profile lookup, that no lookup starts without a valid session, and logs the latency
+ * of the pipeline against the same lookups performed one after another.
+ */
+public class TestHandshakePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestHandshakePipeline.class);
+
+    private static final long LOOKUP_LATENCY_MILLIS = 5;
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private static final int MEASURED_ITERATIONS = 200;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final User user = new User();
+
+    private final Profile profile = new Profile();
+
+    private final Session session = new Session();
+
+    private final MultiMatch match = new MultiMatch();
+
+    private final AtomicInteger matchLookups = new AtomicInteger();
+
+    private volatile boolean validSession;
+
+    private volatile Runnable onProfileLookup;
+
+    private final AuthCacheService authCacheService = new AuthCacheService() {
+
+        @Override
+        public Session getSession(final String sessionKey) {
+            pause();
+            if (!validSession) throw new ForbiddenException();
+            return session;
+        }
+
+        @Override
+        public Profile getActiveProfile(final String profileId) {
+            pause();
+            onProfileLookup.run();
+            return profile;
+        }
+
+        @Override
+        public void invalidateSession(final String sessionKey) {}
+
+        @Override
+        public void invalidateProfile(final String profileId) {}
+
+    };
+
+    private final MultiMatchDao multiMatchDao = stub(MultiMatchDao.class, (proxy, method, args) -> switch (method.getName()) {
+        case "getMultiMatch" -> {
+            matchLookups.incrementAndGet();
+            pause();
+            yield match;
+        }
+        default -> throw new UnsupportedOperationException(method.getName());
+    });
+
+    @BeforeClass
+    public void setupModel() {
+
+        final var application = new Application();
+        application.setId("application");
+
+        user.setId("user");
+
+        profile.setId("profile");
+        profile.setUser(user);
+        profile.setApplication(application);
+
+        session.setUser(user);
+        session.setProfile(profile);
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setName("default");
+
+        match.setId("match");
+        match.setConfiguration(configuration);
+
+    }
+
+    @BeforeMethod
+    public void resetLookups() {
+        validSession = true;
+        onProfileLookup = () -> {};
+        matchLookups.set(0);
+    }
+
+    @AfterClass
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testMatchLookupOverlapsProfileLookup() throws Exception {
+
+        // The profile lookup cannot finish until the match lookup has started, so running them one after the other
+        // would fail the handshake rather than merely slow it down.
+        final var matchLookupStarted = new CountDownLatch(1);
+        final var matchLookup = multiMatchDao;
+
+        onProfileLookup = () -> {
+            try {
+                if (!matchLookupStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Match lookup did not overlap the profile lookup.");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        };
+
+        final var failure = handshake(stub(MultiMatchDao.class, (proxy, method, args) -> {
+            matchLookupStarted.countDown();
+            return method.invoke(matchLookup, args);
+        }));
+
+        assertNull(failure.get(), "Handshake failed.");
+        assertEquals(matchLookups.get(), 1);
+
+    }
+
+    @Test
+    public void testNoLookupWithoutValidSession() throws Exception {
+
+        validSession = false;
+
+        final var failure = handshake(multiMatchDao);
+
+        assertTrue(failure.get() instanceof ForbiddenException, "Expected forbidden but got " + failure.get());
+        assertEquals(matchLookups.get(), 0);
+
+    }
+
+    @Test
+    public void testPipelineLatency() throws Exception {
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            handshake();
+            sequential();
+        }
+
+        final var pipeline = new long[MEASURED_ITERATIONS];
+        final var sequential = new long[MEASURED_ITERATIONS];
+
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            pipeline[i] = handshake();
+            sequential[i] = sequential();
+        }
+
+        Arrays.sort(pipeline);
+        Arrays.sort(sequential);
+
+        logger.info("Handshake latency with {}ms lookups. Pipeline p50={}µs p99={}µs. Sequential p50={}µs p99={}µs.",
+                LOOKUP_LATENCY_MILLIS,
+                percentile(pipeline, 50), percentile(pipeline, 99),
+                percentile(sequential, 50), percentile(sequential, 99)
+        );
+
+    }
+
+    private long handshake() throws Exception {
+        final var start = System.nanoTime();
+        assertNull(handshake(multiMatchDao).get(), "Handshake failed.");
+        return System.nanoTime() - start;
+    }
+
+    private AtomicReference<Throwable> handshake(final MultiMatchDao multiMatchDao) throws Exception {
+
+        final var matching = new CountDownLatch(1);
+        final var failure = new AtomicReference<Throwable>();
+
+        final var matchHandle = stub(MatchHandle.class, (proxy, method, args) -> {
+            if ("startMatching".equals(method.getName())) matching.countDown();
+            return null;
+        });
+
+        final var algorithm = stub(FindMatchmakingAlgorithm.class, (proxy, method, args) -> switch (method.getName()) {
+            case "resume" -> matchHandle;
+            case "getName" -> "stub";
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        final var protocolMessageHandler = stub(ProtocolMessageHandler.class, (proxy, method, args) -> switch (method.getName()) {
+            case "submit" -> executor.submit((Runnable) args[0]);
+            case "terminate" -> {
+                failure.set(args == null ? new IllegalStateException("Terminated.") : (Throwable) args[0]);
+                matching.countDown();
+                yield null;
+            }
+            default -> null;
+        });
+
+        final var webSocketSession = stub(jakarta.websocket.Session.class, (proxy, method, args) -> null);
+
+        final var handshakeHandler = new V10HandshakeHandler();
+        handshakeHandler.setAuthCacheService(authCacheService);
+        handshakeHandler.setMultiMatchDao(multiMatchDao);
+        handshakeHandler.setMatchmakingConfigurationService(new MemoryMatchmakingConfigurationService());
+        handshakeHandler.setFindMatchmakingAlgorithm(algorithm);
+
+        final var request = new JoinHandshakeRequest();
+        request.setMatchId(match.getId());
+        request.setProfileId(profile.getId());
+        request.setSessionKey("session");
+
+        handshakeHandler.start(protocolMessageHandler, webSocketSession);
+        handshakeHandler.onMessage(protocolMessageHandler, webSocketSession, request);
+
+        assertTrue(matching.await(10, TimeUnit.SECONDS), "Timed out waiting for handshake.");
+        return failure;
+
+    }
+
+    private long sequential() {
+        final var start = System.nanoTime();
+        authCacheService.getSession("session");
+        authCacheService.getActiveProfile(profile.getId());
+        multiMatchDao.getMultiMatch(match.getId());
+        return System.nanoTime() - start;
+    }
+
+    private static long percentile(final long[] sorted, final int percentile) {
+        final var index = Math.min(sorted.length - 1, (sorted.length * percentile) / 100);
+        return TimeUnit.NANOSECONDS.toMicros(sorted[index]);
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(LOOKUP_LATENCY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<T> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
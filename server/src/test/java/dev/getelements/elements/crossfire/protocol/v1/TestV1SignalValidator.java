@@ -0,0 +1,172 @@
+package dev.getelements.elements.crossfire.protocol.v1;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageCategory;
+import dev.getelements.elements.crossfire.api.model.ProtocolMessageType;
+import dev.getelements.elements.crossfire.api.model.signal.CandidateDirectSignal;
+import dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.*;
+
+/**
+ * Checks that {@link V1SignalValidator} agrees with full bean validation for every message type it supports, and logs
+ * the per-message cost of each approach for comparison.
+ */
+public class TestV1SignalValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestV1SignalValidator.class);
+
+    private static final int WARMUP_ITERATIONS = 100_000;
+
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+
+    private jakarta.validation.ValidatorFactory factory;
+
+    private Validator validator;
+
+    @BeforeClass
+    public void setupValidator() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterClass
+    public void closeValidator() {
+        factory.close();
+    }
+
+    @DataProvider
+    public Object[][] supportedTypes() {
+        return Stream.of(ProtocolMessageType.values())
+                .filter(t -> switch (t.getCategory()) {
+                    case SIGNALING, SIGNALING_DIRECT, CONTROL -> true;
+                    default -> false;
+                })
+                .map(t -> new Object[]{t})
+                .toArray(Object[][]::new);
+    }
+
+    @Test(dataProvider = "supportedTypes")
+    public void testValidMessage(final ProtocolMessageType type) throws Exception {
+        final var message = populate(type);
+        assertTrue(V1SignalValidator.supports(message));
+        assertTrue(validator.validate(message).isEmpty());
+        assertNull(V1SignalValidator.validate(message));
+    }
+
+    @Test(dataProvider = "supportedTypes")
+    public void testEachNullFieldMatchesBeanValidation(final ProtocolMessageType type) throws Exception {
+        for (final Method setter : setters(type)) {
+
+            if (setter.getParameterTypes()[0].isPrimitive()) {
+                continue;
+            }
+
+            final var message = populate(type);
+            setter.invoke(message, (Object) null);
+
+            final var expected = validator.validate(message).isEmpty();
+            final var actual = V1SignalValidator.validate(message) == null;
+            assertEquals(actual, expected, "Mismatch for " + type + " with " + setter.getName() + "(null)");
+
+        }
+    }
+
+    @Test
+    public void testNegativeMidIndex() throws Exception {
+        final var message = (CandidateDirectSignal) populate(ProtocolMessageType.CANDIDATE);
+        message.setMidIndex(-1);
+        assertFalse(validator.validate(message).isEmpty());
+        assertNotNull(V1SignalValidator.validate(message));
+    }
+
+    @Test
+    public void testHandshakeNotSupported() throws Exception {
+        Stream.of(ProtocolMessageType.values())
+                .filter(t -> t.getCategory() == ProtocolMessageCategory.HANDSHAKE)
+                .forEach(t -> {
+                    try {
+                        assertFalse(V1SignalValidator.supports(populate(t)));
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                });
+    }
+
+    @Test
+    public void measureCandidateValidation() throws Exception {
+
+        final var message = populate(ProtocolMessageType.CANDIDATE);
+
+        final var beanNanos = measure(() -> validator.validate(message).isEmpty());
+        final var fastNanos = measure(() -> V1SignalValidator.validate(message) == null);
+
+        logger.info("CANDIDATE validation cost: bean validation {} ns/message, fast path {} ns/message.",
+                "%.1f".formatted(beanNanos),
+                "%.1f".formatted(fastNanos)
+        );
+
+    }
+
+    private double measure(final java.util.function.BooleanSupplier check) {
+
+        var valid = true;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            valid &= check.getAsBoolean();
+        }
+
+        final var start = System.nanoTime();
+
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            valid &= check.getAsBoolean();
+        }
+
+        final var elapsed = System.nanoTime() - start;
+        assertTrue(valid);
+
+        return (double) elapsed / MEASURED_ITERATIONS;
+
+    }
+
+    private static Method[] setters(final ProtocolMessageType type) {
+        return Stream.of(type.getMessageType().getMethods())
+                .filter(m -> m.getName().startsWith("set") && m.getParameterCount() == 1)
+                .toArray(Method[]::new);
+    }
+
+    private static ProtocolMessage populate(final ProtocolMessageType type) throws Exception {
+
+        final var message = type.getMessageType().getConstructor().newInstance();
+
+        for (final Method method : setters(type)) {
+
+            final var parameter = method.getParameterTypes()[0];
+
+            if (String.class.equals(parameter)) {
+                method.invoke(message, "test-" + method.getName());
+            } else if (byte[].class.equals(parameter)) {
+                method.invoke(message, (Object) method.getName().getBytes(UTF_8));
+            } else if (SignalLifecycle.class.equals(parameter)) {
+                method.invoke(message, SignalLifecycle.SESSION);
+            }
+
+        }
+
+        return message;
+
+    }
+
+}
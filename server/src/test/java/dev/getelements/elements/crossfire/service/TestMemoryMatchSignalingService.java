@@ -0,0 +1,150 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.match.MultiMatchStatus;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static dev.getelements.elements.crossfire.api.model.Version.V_1_2;
+import static org.testng.Assert.*;
+
+/**
+ * Checks which matches the idle sweeper in the {@link MemoryMatchSignalingService} evicts.
+ */
+public class TestMemoryMatchSignalingService {
+
+    private final List<Runnable> sweeps = new ArrayList<>();
+
+    private final List<String> reaped = new ArrayList<>();
+
+    private MemoryMatchSignalingService service;
+
+    @BeforeMethod
+    public void setupService() {
+
+        sweeps.clear();
+        reaped.clear();
+
+        final MultiMatchDao multiMatchDao = stub(MultiMatchDao.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMultiMatch" -> {
+                final var match = new MultiMatch();
+                match.setId((String) args[0]);
+                match.setStatus(MultiMatchStatus.OPEN);
+                yield match;
+            }
+            case "getProfiles" -> List.of(profile("alice"), profile("bob"));
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        // Runs each pass of the sweeper only when the test asks for it.
+        final ScheduledExecutorService scheduledExecutorService = stub(
+                ScheduledExecutorService.class,
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "scheduleWithFixedDelay" -> {
+                        sweeps.add((Runnable) args[0]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+
+        final ExecutorService executorService = stub(ExecutorService.class, (proxy, method, args) -> {
+            if ("submit".equals(method.getName())) {
+                ((Runnable) args[0]).run();
+                return null;
+            } else {
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        service = new MemoryMatchSignalingService();
+        service.setMaxBacklogSize(256);
+        service.setIdleTtlSeconds(0);
+        service.setPresenceGraceMillis(0);
+        service.setOffHeapArena(new OffHeapArena());
+        service.setMongoMultiMatchDao(multiMatchDao);
+        service.setExecutorService(executorService);
+        service.setScheduledExecutorService(scheduledExecutorService);
+        service.setMatchReaper(new MatchReaper() {
+            @Override
+            public void reap(final String matchId) {
+                reaped.add(matchId);
+            }
+        });
+
+    }
+
+    @Test
+    public void testIdleMatchWithConnectedPeersKept() {
+
+        final var errors = new ArrayList<Throwable>();
+
+        service.join("playing", "alice");
+        service.join("playing", "bob");
+        service.connect("playing", "alice", V_1_2, 0, m -> {}, errors::add);
+        service.connect("playing", "bob", V_1_2, 0, m -> {}, errors::add);
+
+        // The peers exchange data directly, so the match sends no signals however long it is played.
+        sweep();
+
+        assertTrue(reaped.isEmpty());
+        assertTrue(errors.isEmpty());
+        assertTrue(service.leave("playing", "alice"), "The match state must not have been evicted.");
+
+    }
+
+    @Test
+    public void testAbandonedMatchReaped() {
+
+        final var errors = new ArrayList<Throwable>();
+
+        service.join("abandoned", "alice");
+        service.join("abandoned", "bob");
+
+        service.join("playing", "alice");
+        service.connect("playing", "alice", V_1_2, 0, m -> {}, errors::add);
+
+        sweep();
+
+        assertEquals(reaped, List.of("abandoned"));
+        assertTrue(errors.isEmpty());
+        assertFalse(service.leave("abandoned", "alice"), "The match state must have been evicted.");
+        assertTrue(service.leave("playing", "alice"), "The match state must not have been evicted.");
+
+    }
+
+    private void sweep() {
+        assertEquals(sweeps.size(), 1, "The sweeper must be scheduled exactly once.");
+        sweeps.get(0).run();
+    }
+
+    private static Profile profile(final String id) {
+        final var profile = new Profile();
+        profile.setId(id);
+        return profile;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
@@ -0,0 +1,356 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.signal.*;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dev.getelements.elements.crossfire.api.model.Version.V_1_0;
+import static dev.getelements.elements.crossfire.api.model.Version.V_1_2;
+import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle.MATCH;
+import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle.ONCE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks routing and presence tracking within a {@link MemoryMatchState}.
+ */
+public class TestMemoryMatchState {
+
+    @Test
+    public void testBroadcastSkipsSenderAndDisconnected() {
+
+        final var state = newState(new AtomicInteger());
+        final var alice = new ArrayList<ProtocolMessage>();
+        final var bob = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+        state.join("carol");
+
+        state.connect("alice", alice::add, th -> {});
+        state.connect("bob", bob::add, th -> {});
+        alice.clear();
+        bob.clear();
+
+        state.send(broadcast("alice", "hello"));
+
+        assertTrue(alice.isEmpty());
+        assertEquals(payloads(bob), List.of("hello"));
+
+    }
+
+    @Test
+    public void testHostReassignedAndAllDisconnected() {
+
+        final var disconnected = new AtomicInteger();
+        final var state = newState(disconnected);
+        final var bob = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+
+        final var aliceSubscription = state.connect("alice", m -> {}, th -> {});
+        final var bobSubscription = state.connect("bob", bob::add, th -> {});
+        bob.clear();
+
+        aliceSubscription.unsubscribe();
+
+        assertTrue(bob.stream().anyMatch(m -> m instanceof HostBroadcastSignal h && "bob".equals(h.getProfileId())));
+        assertEquals(disconnected.get(), 0);
+
+        bobSubscription.unsubscribe();
+        assertEquals(disconnected.get(), 1);
+
+    }
+
+    @Test
+    public void testIndexReusedAfterLeave() {
+
+        final var state = newState(new AtomicInteger());
+        final var carol = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+        state.leave("alice");
+        state.join("carol");
+
+        state.connect("carol", carol::add, th -> {});
+        state.connect("bob", m -> {}, th -> {});
+        carol.clear();
+
+        state.send(broadcast("bob", "hi"));
+        assertEquals(payloads(carol), List.of("hi"));
+
+    }
+
+    @Test
+    public void testRosterSentOnConnect() {
+
+        final var state = newState(new AtomicInteger());
+        final var bob = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+        state.join("carol");
+
+        state.connect("alice", m -> {}, th -> {});
+        state.connect("bob", V_1_2, 0, bob::add, th -> {});
+
+        final var roster = (RosterBroadcastSignal) bob.get(0);
+        assertEquals(roster.getProfileId(), "bob");
+        assertEquals(roster.getHost(), "alice");
+        assertEquals(roster.getParticipants(), List.of("alice", "bob", "carol"));
+        assertEquals(roster.getConnected(), List.of("alice", "bob"));
+        assertEquals(bob.size(), 1);
+
+    }
+
+    @Test
+    public void testPresenceOmitsDeparted() {
+
+        final var state = newState(new AtomicInteger());
+        final var dave = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+        state.join("carol");
+
+        state.connect("alice", m -> {}, th -> {});
+        state.connect("carol", m -> {}, th -> {}).unsubscribe();
+        state.leave("bob");
+        state.join("dave");
+
+        state.connect("dave", dave::add, th -> {});
+
+        assertEquals(presence(dave, JoinBroadcastSignal.class), List.of("alice", "dave", "carol"));
+        assertEquals(presence(dave, ConnectBroadcastSignal.class), List.of("alice", "dave"));
+        assertEquals(presence(dave, HostBroadcastSignal.class), List.of("alice"));
+
+    }
+
+    @Test
+    public void testReconnectWithinGraceIsResumed() {
+
+        final var scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+
+            final var disconnected = new AtomicInteger();
+            final var state = newState(disconnected, 60_000, scheduler);
+            final var alice = new ArrayList<ProtocolMessage>();
+
+            state.join("alice");
+            state.join("bob");
+
+            state.connect("alice", alice::add, th -> {});
+            state.connect("bob", m -> {}, th -> {}).unsubscribe();
+            state.connect("bob", m -> {}, th -> {});
+
+            assertFalse(alice.stream().anyMatch(DisconnectBroadcastSignal.class::isInstance));
+
+            final var connects = alice.stream()
+                    .filter(ConnectBroadcastSignal.class::isInstance)
+                    .map(ConnectBroadcastSignal.class::cast)
+                    .filter(c -> "bob".equals(c.getProfileId()))
+                    .map(ConnectBroadcastSignal::isResumed)
+                    .toList();
+
+            assertEquals(connects, List.of(false, true));
+            assertEquals(disconnected.get(), 0);
+
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testDisconnectAnnouncedAfterGrace() throws InterruptedException {
+
+        final var scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+
+            final var disconnected = new AtomicInteger();
+            final var state = newState(disconnected, 10, scheduler);
+            final var alice = new ArrayList<ProtocolMessage>();
+
+            state.join("alice");
+            state.join("bob");
+
+            state.connect("alice", m -> { synchronized (alice) { alice.add(m); } }, th -> {});
+            state.connect("bob", m -> {}, th -> {}).unsubscribe();
+
+            for (int i = 0; i < 500 && presence(snapshot(alice), DisconnectBroadcastSignal.class).isEmpty(); ++i) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(presence(snapshot(alice), DisconnectBroadcastSignal.class), List.of("bob"));
+            assertEquals(disconnected.get(), 0);
+
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testDeliberateDisconnectSkipsGrace() {
+
+        final var scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+
+            final var disconnected = new AtomicInteger();
+            final var state = newState(disconnected, 60_000, scheduler);
+            final var alice = new ArrayList<ProtocolMessage>();
+
+            state.join("alice");
+            state.join("bob");
+
+            final var aliceSubscription = state.connect("alice", alice::add, th -> {});
+            state.connect("bob", m -> {}, th -> {}).unsubscribe();
+
+            assertFalse(state.disconnect("alice"));
+            assertTrue(state.disconnect("bob"));
+            assertFalse(state.disconnect("bob"));
+            assertEquals(presence(alice, DisconnectBroadcastSignal.class), List.of("bob"));
+
+            aliceSubscription.unsubscribe();
+            assertTrue(state.disconnect("alice"));
+            assertEquals(disconnected.get(), 1);
+
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testReplacedSubscriptionCannotDisconnectReplacement() {
+
+        final var disconnected = new AtomicInteger();
+        final var state = newState(disconnected);
+        final var alice = new ArrayList<ProtocolMessage>();
+        final var replaced = new ArrayList<Throwable>();
+
+        state.join("alice");
+        state.join("bob");
+
+        state.connect("bob", m -> {}, th -> {});
+        final var first = state.connect("alice", m -> {}, replaced::add);
+        state.connect("alice", alice::add, th -> {});
+        alice.clear();
+
+        // The first connection closes late, after its replacement was established.
+        first.unsubscribe();
+        state.send(broadcast("bob", "still here"));
+
+        assertEquals(replaced.size(), 1);
+        assertEquals(payloads(alice), List.of("still here"));
+        assertFalse(state.disconnect("alice"), "The replacement must still be connected.");
+        assertEquals(disconnected.get(), 0);
+
+    }
+
+    @Test
+    public void testReconnectReplaysOnlyAfterSequence() {
+
+        final var state = newState(new AtomicInteger());
+        final var bob = new ArrayList<ProtocolMessage>();
+
+        state.join("alice");
+        state.join("bob");
+
+        state.connect("alice", m -> {}, th -> {});
+        final var subscription = state.connect("bob", bob::add, th -> {});
+
+        state.send(broadcast("alice", "one", MATCH));
+        state.send(broadcast("alice", "two", MATCH));
+
+        final var sequences = bob.stream()
+                .filter(SequencedSignal.class::isInstance)
+                .mapToLong(m -> ((SequencedSignal) m).getSequence())
+                .toArray();
+
+        assertEquals(sequences.length, 2);
+        assertTrue(sequences[0] > 0 && sequences[1] > sequences[0]);
+
+        subscription.unsubscribe();
+        state.send(broadcast("alice", "three", MATCH));
+
+        bob.clear();
+        state.connect("bob", V_1_0, sequences[0], bob::add, th -> {}).unsubscribe();
+        assertEquals(payloads(bob), List.of("two", "three"));
+
+        bob.clear();
+        state.connect("bob", V_1_0, Long.MAX_VALUE, bob::add, th -> {});
+        assertEquals(payloads(bob), List.of("one", "two", "three"));
+
+    }
+
+    private static MemoryMatchState newState(final AtomicInteger disconnected) {
+        return newState(disconnected, 0, null);
+    }
+
+    private static MemoryMatchState newState(
+            final AtomicInteger disconnected,
+            final long presenceGraceMillis,
+            final ScheduledExecutorService scheduler) {
+        return new MemoryMatchState(new MemoryMatchState.Parameters(
+                "match",
+                256,
+                null,
+                s -> {},
+                s -> disconnected.incrementAndGet(),
+                null,
+                presenceGraceMillis,
+                scheduler
+        ));
+    }
+
+    private static List<ProtocolMessage> snapshot(final List<ProtocolMessage> messages) {
+        synchronized (messages) {
+            return List.copyOf(messages);
+        }
+    }
+
+    private static StringBroadcastSignal broadcast(final String profileId, final String payload) {
+        return broadcast(profileId, payload, ONCE);
+    }
+
+    private static StringBroadcastSignal broadcast(
+            final String profileId,
+            final String payload,
+            final SignalLifecycle lifecycle) {
+        final var signal = new StringBroadcastSignal();
+        signal.setProfileId(profileId);
+        signal.setLifecycle(lifecycle);
+        signal.setPayload(payload);
+        return signal;
+    }
+
+    private static List<String> presence(
+            final List<ProtocolMessage> messages,
+            final Class<? extends BroadcastSignal> type) {
+        return messages.stream()
+                .filter(type::isInstance)
+                .map(m -> ((BroadcastSignal) m).getProfileId())
+                .toList();
+    }
+
+    private static List<String> payloads(final List<ProtocolMessage> messages) {
+        return messages.stream()
+                .filter(StringBroadcastSignal.class::isInstance)
+                .map(m -> ((StringBroadcastSignal) m).getPayload())
+                .toList();
+    }
+
+}
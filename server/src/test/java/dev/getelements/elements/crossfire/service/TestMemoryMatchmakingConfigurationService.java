@@ -0,0 +1,213 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.FindMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.model.error.InvalidConfigurationException;
+import dev.getelements.elements.sdk.Element;
+import dev.getelements.elements.sdk.dao.ApplicationConfigurationDao;
+import dev.getelements.elements.sdk.model.application.ElementServiceReference;
+import dev.getelements.elements.sdk.model.application.MatchmakingApplicationConfiguration;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks the caching of configurations and resolved algorithms in the {@link MemoryMatchmakingConfigurationService}.
+ */
+public class TestMemoryMatchmakingConfigurationService {
+
+    @Test
+    public void testConfigurationCachedUntilInvalidated() {
+
+        final var reads = new AtomicInteger();
+        final var service = new FakeService(true);
+
+        service.setApplicationConfigurationDao(proxy(ApplicationConfigurationDao.class, () -> {
+            final var configuration = new MatchmakingApplicationConfiguration();
+            configuration.setId("configuration-" + reads.incrementAndGet());
+            return configuration;
+        }));
+
+        final var first = service.getConfiguration("application", "configuration");
+        assertSame(service.getConfiguration("application", "configuration"), first);
+        assertEquals(reads.get(), 1);
+
+        service.invalidateConfiguration("application", "configuration");
+        assertEquals(service.getConfiguration("application", "configuration").getId(), "configuration-2");
+
+    }
+
+    @Test
+    public void testConfigurationInvalidatedUnderNameAndId() {
+
+        final var reads = new AtomicInteger();
+        final var service = new FakeService(true);
+
+        service.setApplicationConfigurationDao(proxy(ApplicationConfigurationDao.class, () -> {
+            reads.incrementAndGet();
+            final var configuration = new MatchmakingApplicationConfiguration();
+            configuration.setId("id");
+            configuration.setName("name");
+            return configuration;
+        }));
+
+        service.getConfiguration("application", "name");
+        service.getConfiguration("application", "id");
+        assertEquals(reads.get(), 2);
+
+        // Invalidating by either the id or the name drops the entries cached under both.
+        service.invalidateConfiguration("application", "id");
+        service.getConfiguration("application", "name");
+        service.getConfiguration("application", "id");
+        assertEquals(reads.get(), 4);
+
+        service.invalidateConfiguration("application", "name");
+        service.getConfiguration("application", "name");
+        service.getConfiguration("application", "id");
+        assertEquals(reads.get(), 6);
+
+        final var updated = new MatchmakingApplicationConfiguration();
+        updated.setId("id");
+        service.onConfigurationUpdated(updated);
+
+        service.getConfiguration("application", "name");
+        service.getConfiguration("application", "id");
+        assertEquals(reads.get(), 8);
+
+    }
+
+    @Test
+    public void testElementLoadedDropsItsAlgorithms() {
+
+        final var service = new FakeService(true);
+        final var reloaded = configuration("matchmaker");
+        final var other = configuration("other");
+
+        final var first = service.getAlgorithm(FindMatchmakingAlgorithm.class, reloaded, null);
+        final var kept = service.getAlgorithm(FindMatchmakingAlgorithm.class, other, null);
+
+        service.onElementLoaded(element("com.example.matchmaker"));
+
+        assertNotSame(service.getAlgorithm(FindMatchmakingAlgorithm.class, reloaded, null), first);
+        assertSame(service.getAlgorithm(FindMatchmakingAlgorithm.class, other, null), kept);
+        assertEquals(service.resolutions.get(), 3);
+
+    }
+
+    @Test
+    public void testAlgorithmResolvedOnceUntilInvalidated() {
+
+        final var service = new FakeService(true);
+        final var configuration = configuration();
+
+        final var first = service.getAlgorithm(FindMatchmakingAlgorithm.class, configuration, null);
+        assertSame(service.getAlgorithm(FindMatchmakingAlgorithm.class, configuration, null), first);
+        assertEquals(service.resolutions.get(), 1);
+
+        service.invalidateAlgorithms();
+
+        assertNotSame(service.getAlgorithm(FindMatchmakingAlgorithm.class, configuration, null), first);
+        assertEquals(service.resolutions.get(), 2);
+
+    }
+
+    @Test
+    public void testMissingElementRejected() {
+
+        final var service = new FakeService(false);
+
+        assertThrows(
+                InvalidConfigurationException.class,
+                () -> service.getAlgorithm(FindMatchmakingAlgorithm.class, configuration(), null)
+        );
+
+        assertEquals(service.resolutions.get(), 0);
+
+        service.present = true;
+        assertNotNull(service.getAlgorithm(FindMatchmakingAlgorithm.class, configuration(), null));
+
+    }
+
+    @Test
+    public void testDefaultWithoutMatchmaker() {
+
+        final var service = new FakeService(true);
+        final var defaultAlgorithm = proxy(FindMatchmakingAlgorithm.class, () -> null);
+
+        assertSame(
+                service.getAlgorithm(FindMatchmakingAlgorithm.class, new MatchmakingApplicationConfiguration(), defaultAlgorithm),
+                defaultAlgorithm
+        );
+
+        assertEquals(service.resolutions.get(), 0);
+
+    }
+
+    private static MatchmakingApplicationConfiguration configuration() {
+        return configuration("matchmaker");
+    }
+
+    private static MatchmakingApplicationConfiguration configuration(final String elementName) {
+
+        final var matchmaker = new ElementServiceReference();
+        matchmaker.setElementName(elementName);
+
+        final var configuration = new MatchmakingApplicationConfiguration();
+        configuration.setMatchmaker(matchmaker);
+
+        return configuration;
+
+    }
+
+    private static Element element(final String name) {
+        final Element.Def definition = proxy(Element.Def.class, () -> name);
+        final Element.Rec record = proxy(Element.Rec.class, () -> definition);
+        return proxy(Element.class, () -> record);
+    }
+
+    private static <T> T proxy(final Class<T> type, final java.util.function.Supplier<?> result) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> type.getSimpleName();
+                    default -> result.get();
+                }
+        ));
+    }
+
+    /**
+     * Stands in for the element registry, which is not available outside a running Elements instance.
+     */
+    private static class FakeService extends MemoryMatchmakingConfigurationService {
+
+        private final AtomicInteger resolutions = new AtomicInteger();
+
+        private boolean present;
+
+        private FakeService(final boolean present) {
+            this.present = present;
+            setTtlSeconds(60);
+            setMaxEntries(16);
+        }
+
+        @Override
+        Optional<Element> findElement(final String elementName) {
+            return present ? Optional.of(proxy(Element.class, () -> null)) : Optional.empty();
+        }
+
+        @Override
+        MatchmakingAlgorithm<?, ?> resolve(final Element element, final AlgorithmKey key) {
+            resolutions.incrementAndGet();
+            return proxy(FindMatchmakingAlgorithm.class, () -> null);
+        }
+
+    }
+
+}
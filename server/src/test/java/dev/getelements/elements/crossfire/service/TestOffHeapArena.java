@@ -0,0 +1,94 @@
+package dev.getelements.elements.crossfire.service;
+
+import dev.getelements.elements.crossfire.api.model.ProtocolMessage;
+import dev.getelements.elements.crossfire.api.model.signal.BinaryBroadcastSignal;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static dev.getelements.elements.crossfire.api.model.signal.SignalLifecycle.MATCH;
+import static org.testng.Assert.*;
+
+/**
+ * Checks allocation in the {@link OffHeapArena} and the replay of payloads held in it.
+ */
+public class TestOffHeapArena {
+
+    @Test
+    public void testFreedBlocksAreReused() {
+
+        final var arena = newArena(OffHeapArena.SLAB_SIZE);
+        final var payload = new byte[] {1, 2, 3};
+
+        final var first = arena.allocate(payload).orElseThrow();
+        assertEquals(first.read(), payload);
+        first.free();
+        first.free();
+
+        for (int i = 0; i < 1000; ++i) {
+            arena.allocate(new byte[OffHeapArena.MIN_BLOCK_SIZE]).orElseThrow().free();
+        }
+
+        assertEquals(arena.getReserved(), OffHeapArena.SLAB_SIZE);
+
+    }
+
+    @Test
+    public void testFullArenaRefuses() {
+
+        final var arena = newArena(OffHeapArena.SLAB_SIZE);
+
+        assertTrue(arena.allocate(new byte[OffHeapArena.SLAB_SIZE]).isPresent());
+        assertTrue(arena.allocate(new byte[1]).isEmpty());
+        assertTrue(arena.allocate(new byte[OffHeapArena.SLAB_SIZE + 1]).isEmpty());
+
+    }
+
+    @Test
+    public void testReplayMaterializesPayload() {
+
+        final var arena = newArena(OffHeapArena.SLAB_SIZE);
+        final var state = new MemoryMatchState(new MemoryMatchState.Parameters(
+                "match",
+                256,
+                null,
+                s -> {},
+                s -> {},
+                arena,
+                0,
+                null
+        ));
+
+        final var signal = new BinaryBroadcastSignal();
+        signal.setProfileId("alice");
+        signal.setLifecycle(MATCH);
+        signal.setPayload(new byte[] {4, 5, 6});
+
+        state.join("alice");
+        state.send(signal);
+
+        final var bob = new ArrayList<ProtocolMessage>();
+        state.connect("bob", bob::add, th -> {});
+
+        final var replayed = bob.stream()
+                .filter(BinaryBroadcastSignal.class::isInstance)
+                .map(BinaryBroadcastSignal.class::cast)
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(replayed.getProfileId(), "alice");
+        assertEquals(replayed.getLifecycle(), MATCH);
+        assertEquals(replayed.getPayload(), new byte[] {4, 5, 6});
+
+        state.release();
+
+    }
+
+    private static OffHeapArena newArena(final long maxBytes) {
+        final var arena = new OffHeapArena();
+        arena.setEnabled(true);
+        arena.setMaxBytes(maxBytes);
+        return arena;
+    }
+
+}
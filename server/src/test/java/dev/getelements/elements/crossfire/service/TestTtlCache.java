@@ -0,0 +1,160 @@
+package dev.getelements.elements.crossfire.service;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks expiry, refresh, eviction and invalidation in the {@link TtlCache}.
+ */
+public class TestTtlCache {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws InterruptedException {
+
+        final var loads = new AtomicInteger();
+        final var cache = newCache(k -> loads.incrementAndGet(), v -> Long.MAX_VALUE, 16, 60_000, DIRECT);
+
+        assertEquals(cache.get("key").intValue(), 1);
+        assertEquals(cache.get("key").intValue(), 1);
+
+        final var hardExpiry = newCache(k -> loads.incrementAndGet(), v -> System.currentTimeMillis() + 20, 16, 60_000, DIRECT);
+
+        assertEquals(hardExpiry.get("key").intValue(), 2);
+        Thread.sleep(50);
+        assertEquals(hardExpiry.get("key").intValue(), 3);
+
+    }
+
+    @Test
+    public void testRefreshAhead() throws InterruptedException {
+
+        final var loads = new AtomicInteger();
+        final var refreshes = new AtomicInteger();
+        final Executor counting = r -> {
+            refreshes.incrementAndGet();
+            r.run();
+        };
+
+        final var cache = newCache(k -> loads.incrementAndGet(), v -> Long.MAX_VALUE, 16, 2_000, counting);
+
+        assertEquals(cache.get("key").intValue(), 1);
+        assertEquals(refreshes.get(), 0);
+
+        // Past half of the time-to-live, the cached value is served while it is reloaded.
+        Thread.sleep(1_100);
+        assertEquals(cache.get("key").intValue(), 1);
+        assertEquals(refreshes.get(), 1);
+        assertEquals(cache.get("key").intValue(), 2);
+        assertEquals(refreshes.get(), 1);
+
+    }
+
+    @Test
+    public void testRevalidateBeforeServing() throws InterruptedException {
+
+        final var loads = new AtomicInteger();
+        final Executor unused = r -> { throw new AssertionError("Revalidating caches do not refresh in the background."); };
+
+        final var cache = new TtlCache<String, Integer>(k -> {
+            if (loads.incrementAndGet() > 2) throw new IllegalStateException("Revoked.");
+            return loads.get();
+        }, v -> Long.MAX_VALUE, () -> 16, () -> 2_000, () -> unused, true);
+
+        assertEquals(cache.get("key").intValue(), 1);
+        assertEquals(cache.get("key").intValue(), 1);
+
+        // Past half of the time-to-live, the value is reloaded before it is served.
+        Thread.sleep(1_100);
+        assertEquals(cache.get("key").intValue(), 2);
+        assertEquals(cache.get("key").intValue(), 2);
+
+        // A value the loader rejects is evicted rather than served.
+        Thread.sleep(1_100);
+        assertThrows(IllegalStateException.class, () -> cache.get("key"));
+        assertEquals(cache.size(), 0);
+
+    }
+
+    @Test
+    public void testOldestEvictedFirst() {
+
+        final var loads = new AtomicInteger();
+        final var cache = newCache(k -> loads.incrementAndGet(), v -> Long.MAX_VALUE, 2, 60_000, DIRECT);
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+
+        assertEquals(cache.size(), 2);
+        assertEquals(loads.get(), 3);
+
+        cache.get("b");
+        cache.get("c");
+        assertEquals(loads.get(), 3);
+
+        cache.get("a");
+        assertEquals(loads.get(), 4);
+
+    }
+
+    @Test
+    public void testInvalidateDuringLoadDiscardsValue() throws Exception {
+
+        final var loads = new AtomicInteger();
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+
+        final var cache = newCache(k -> {
+            final var load = loads.incrementAndGet();
+            if (load == 1) {
+                started.countDown();
+                await(release);
+            }
+            return load;
+        }, v -> Long.MAX_VALUE, 16, 60_000, DIRECT);
+
+        final var first = CompletableFuture.supplyAsync(() -> cache.get("key"));
+        assertTrue(started.await(5, SECONDS));
+
+        cache.invalidate("key");
+        release.countDown();
+
+        assertEquals(first.get(5, SECONDS).intValue(), 1);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.get("key").intValue(), 2);
+
+    }
+
+    private static TtlCache<String, Integer> newCache(
+            final Function<String, Integer> loader,
+            final ToLongFunction<Integer> hardExpiry,
+            final int maxSize,
+            final long ttlMillis,
+            final Executor executor) {
+        return new TtlCache<>(loader, hardExpiry, () -> maxSize, () -> ttlMillis, () -> executor);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
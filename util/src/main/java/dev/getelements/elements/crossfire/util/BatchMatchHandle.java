@@ -0,0 +1,71 @@
+package dev.getelements.elements.crossfire.util;
+
+import dev.getelements.elements.crossfire.api.BatchMatchmaker;
+import dev.getelements.elements.crossfire.api.BatchMatchmakingAlgorithm;
+import dev.getelements.elements.crossfire.api.MatchPhase;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import jakarta.inject.Provider;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link StandardCancelableMatchHandle} for {@link BatchMatchmakingAlgorithm}s. When matching starts the handle
+ * enqueues its request with the {@link BatchMatchmaker}, and withdraws it if matching is terminated before the request
+ * is assigned.
+ *
+ * @param <RequestT> the type of handshake request
+ */
+public class BatchMatchHandle<RequestT extends HandshakeRequest> extends StandardCancelableMatchHandle<RequestT> {
+
+    private final BatchMatchmakingAlgorithm<RequestT, ?> algorithm;
+
+    private final BatchMatchmaker batchMatchmaker;
+
+    private final AtomicReference<BatchMatchmaker.Ticket> ticket = new AtomicReference<>();
+
+    public BatchMatchHandle(
+            final BatchMatchmakingAlgorithm<RequestT, ?> algorithm,
+            final MatchmakingRequest<RequestT> request,
+            final Provider<Transaction> transactionProvider,
+            final MatchLifecycleWriter lifecycleWriter,
+            final BatchMatchmaker batchMatchmaker) {
+        super(algorithm, request, transactionProvider, lifecycleWriter);
+        this.algorithm = algorithm;
+        this.batchMatchmaker = batchMatchmaker;
+    }
+
+    @Override
+    protected void onMatching(final CancelableMatchStateRecord<RequestT> state) {
+        ticket.set(batchMatchmaker.enqueue(algorithm, getRequest(), this::onAssigned, getRequest()::failure));
+    }
+
+    private void onAssigned(final MultiMatch match) {
+
+        final var state = setResult(match);
+
+        if (MatchPhase.TERMINATED.equals(state.phase())) {
+            // The request was withdrawn after its assignment was committed, so the profile must leave again. It goes
+            // through the writer like any other departure so the match is deleted once empty and the slot reported.
+            final var left = new CancelableMatchStateRecord<RequestT>(MatchPhase.TERMINATED, match);
+            getLifecycleWriter().leave(match.getId(), getRequest().getProfile(), () -> onLeft(left));
+        }
+
+    }
+
+    @Override
+    protected void onTerminated(final CancelableMatchStateRecord<RequestT> state) {
+
+        final var ticket = this.ticket.getAndSet(null);
+
+        if (ticket != null) {
+            ticket.cancel();
+        }
+
+        super.onTerminated(state);
+
+    }
+
+}
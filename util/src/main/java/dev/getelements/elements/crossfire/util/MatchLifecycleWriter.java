@@ -0,0 +1,334 @@
+package dev.getelements.elements.crossfire.util;
+
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import jakarta.inject.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes match lifecycle transitions (open, close, end and participants leaving) to the database in the background.
+ * Callers never block on the database, so control messages may be handled directly on IO threads.
+ *
+ * Transitions are queued per match and coalesced before they are written. Only the latest of open and close is kept,
+ * as the match's final status is all that other nodes can observe, and ending a match supersedes both. Participants
+ * leaving accumulate and are removed together. All matches with pending transitions are then written in a single
+ * transaction. Should that transaction fail, each match is retried in a transaction of its own so that one rejected
+ * match does not discard the writes for the others. A match which still fails on its own is logged as an error along
+ * with the transitions which were dropped.
+ *
+ * Callers which must not act on a participant leaving until the database reflects it may pass a callback, which runs
+ * once the removal has been committed. Matchmakers must not place a profile back into a match it is still leaving, as
+ * the queued removal would then take it out again, and may ask whether that is the case before they claim a slot.
+ * Node-local indexes which must forget matches once they can no longer be joined
+ * may register a listener, which is told of every match the writer ends or deletes.
+ */
+public class MatchLifecycleWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchLifecycleWriter.class);
+
+    /**
+     * The maximum number of matches written in a single transaction.
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final Provider<Transaction> transactionProvider;
+
+    private final Executor executor;
+
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    private final Map<String, Pending> writing = new HashMap<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final List<Consumer<String>> retiredListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a writer.
+     *
+     * @param transactionProvider the transaction provider
+     * @param executor the executor which performs the writes
+     */
+    public MatchLifecycleWriter(final Provider<Transaction> transactionProvider, final Executor executor) {
+        this.transactionProvider = requireNonNull(transactionProvider, "transactionProvider");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Queues opening the match.
+     *
+     * @param matchId the match id
+     */
+    public void open(final String matchId) {
+        status(matchId, Status.OPEN);
+    }
+
+    /**
+     * Queues closing the match.
+     *
+     * @param matchId the match id
+     */
+    public void close(final String matchId) {
+        status(matchId, Status.CLOSED);
+    }
+
+    /**
+     * Queues ending the match.
+     *
+     * @param matchId the match id
+     */
+    public void end(final String matchId) {
+        status(matchId, Status.ENDED);
+    }
+
+    /**
+     * Queues removing the profile from the match. The match is deleted if nobody remains in it.
+     *
+     * @param matchId the match id
+     * @param profile the profile
+     */
+    public void leave(final String matchId, final Profile profile) {
+        leave(matchId, profile, () -> {});
+    }
+
+    /**
+     * Queues removing the profile from the match, and calls back on the writer's thread once the removal has been
+     * committed. The callback is not called if the removal could not be written.
+     *
+     * @param matchId the match id
+     * @param profile the profile
+     * @param onWritten called once the removal has been committed
+     */
+    public void leave(final String matchId, final Profile profile, final Runnable onWritten) {
+
+        requireNonNull(profile, "profile");
+        requireNonNull(onWritten, "onWritten");
+
+        synchronized (pending) {
+            final var match = pending.computeIfAbsent(matchId, Pending::new);
+            match.leaving.add(profile);
+            match.onWritten.add(onWritten);
+        }
+
+        flush();
+
+    }
+
+    /**
+     * Checks whether the profile has left the match, but its removal has not yet been committed. This includes removals
+     * which are being written.
+     *
+     * @param matchId the match id
+     * @param profileId the profile id
+     * @return true if the removal is still to be committed
+     */
+    public boolean isLeaving(final String matchId, final String profileId) {
+        synchronized (pending) {
+            return isLeaving(pending.get(matchId), profileId) || isLeaving(writing.get(matchId), profileId);
+        }
+    }
+
+    private static boolean isLeaving(final Pending match, final String profileId) {
+        return match != null && match.leaving.stream().anyMatch(profile -> profile.getId().equals(profileId));
+    }
+
+    /**
+     * Registers a listener which is called on the writer's thread with the id of each match the writer ended or deleted,
+     * once that has been committed.
+     *
+     * @param listener the listener
+     */
+    public void addRetiredListener(final Consumer<String> listener) {
+        retiredListeners.add(requireNonNull(listener, "listener"));
+    }
+
+    private void status(final String matchId, final Status status) {
+
+        synchronized (pending) {
+            final var match = pending.computeIfAbsent(matchId, Pending::new);
+            // Ending is final, so neither opening nor closing may follow it.
+            if (match.status != Status.ENDED) match.status = status;
+        }
+
+        flush();
+
+    }
+
+    private void flush() {
+        if (flushing.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        for (var batch = take(); !batch.isEmpty(); batch = take()) {
+            write(batch);
+        }
+    }
+
+    private List<Pending> take() {
+        synchronized (pending) {
+
+            final var batch = new ArrayList<Pending>(Math.min(MAX_BATCH_SIZE, pending.size()));
+            final var iterator = pending.values().iterator();
+
+            while (iterator.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                final var match = iterator.next();
+                batch.add(match);
+                writing.put(match.matchId, match);
+                iterator.remove();
+            }
+
+            // Cleared under the lock, so any transition queued after the queue was found empty schedules a new drain.
+            if (batch.isEmpty()) {
+                flushing.set(false);
+            }
+
+            return batch;
+
+        }
+    }
+
+    private void write(final List<Pending> batch) {
+
+        try {
+            transactionProvider.get().performAndCloseV(txn -> {
+                final var dao = txn.getDao(MultiMatchDao.class);
+                batch.forEach(match -> match.write(dao));
+            });
+            batch.forEach(this::written);
+            return;
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                failed(batch.get(0), ex);
+                return;
+            }
+            logger.debug("Unable to write lifecycle batch of {} matches. Retrying individually.", batch.size(), ex);
+        }
+
+        for (var match : batch) {
+            try {
+                transactionProvider.get().performAndCloseV(txn -> match.write(txn.getDao(MultiMatchDao.class)));
+                written(match);
+            } catch (RuntimeException ex) {
+                failed(match, ex);
+            }
+        }
+
+    }
+
+    private void written(final Pending match) {
+
+        finished(match);
+        match.written();
+
+        if (!match.retired) {
+            return;
+        }
+
+        for (var listener : retiredListeners) {
+            try {
+                listener.accept(match.matchId);
+            } catch (RuntimeException ex) {
+                logger.error("Caught exception handling retired match {}.", match.matchId, ex);
+            }
+        }
+
+    }
+
+    private void failed(final Pending match, final RuntimeException ex) {
+
+        finished(match);
+
+        // Nothing retries the transitions after this, so the log carries everything needed to repair the match by hand.
+        logger.error("Dropped lifecycle of match {} (status {}, leaving {}).",
+                match.matchId,
+                match.status,
+                match.leaving.stream().map(Profile::getId).toList(),
+                ex
+        );
+
+    }
+
+    private void finished(final Pending match) {
+        synchronized (pending) {
+            writing.remove(match.matchId, match);
+        }
+    }
+
+    private enum Status { OPEN, CLOSED, ENDED }
+
+    private static class Pending {
+
+        private final String matchId;
+
+        private final List<Profile> leaving = new ArrayList<>();
+
+        private final List<Runnable> onWritten = new ArrayList<>();
+
+        private Status status;
+
+        private boolean retired;
+
+        private Pending(final String matchId) {
+            this.matchId = matchId;
+        }
+
+        private void write(final MultiMatchDao dao) {
+
+            // Reset in case an earlier attempt in a batch which failed as a whole got as far as deleting the match.
+            retired = Status.ENDED == status;
+
+            if (status != null) {
+                switch (status) {
+                    case OPEN -> dao.openMatch(matchId);
+                    case CLOSED -> dao.closeMatch(matchId);
+                    case ENDED -> dao.endMatch(matchId);
+                }
+            }
+
+            if (leaving.isEmpty()) {
+                return;
+            }
+
+            var count = -1;
+
+            for (var profile : leaving) {
+                count = dao.removeProfile(matchId, profile).getCount();
+            }
+
+            if (count == 0) {
+                // The last profile left, so delete the match rather than leaving an empty match in the queue.
+                dao.deleteMultiMatch(matchId);
+                retired = true;
+            }
+
+        }
+
+        private void written() {
+            for (var callback : onWritten) {
+                try {
+                    callback.run();
+                } catch (RuntimeException ex) {
+                    logger.error("Caught exception handling written lifecycle of match {}.", matchId, ex);
+                }
+            }
+        }
+
+    }
+
+}
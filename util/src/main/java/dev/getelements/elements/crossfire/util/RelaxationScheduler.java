@@ -0,0 +1,211 @@
+package dev.getelements.elements.crossfire.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.IntConsumer;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Widens the matching constraints of waiting tickets over time. Each ticket registers a list of steps, measured from
+ * the time of registration, and is notified with its new relaxation level as each step elapses. Level zero is the
+ * initial, strictest level and each step raises it by one.
+ *
+ * All tickets share one timer. Tickets are held in a queue ordered by the time of their next step, and the timer is
+ * armed only for the earliest of them. When it fires, only the tickets whose step has elapsed are notified. Other
+ * waiting tickets are not visited.
+ *
+ * Callbacks run on the timer's thread, after the scheduler's lock has been released, so they may register or cancel
+ * tickets. They should still be brief, handing off any blocking work to another executor. A ticket cancelled before its
+ * callback runs is not notified.
+ */
+public class RelaxationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelaxationScheduler.class);
+
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private final PriorityQueue<Ticket> tickets = new PriorityQueue<>(Comparator.comparingLong(t -> t.due));
+
+    private ScheduledFuture<?> wakeup;
+
+    private long wakeupAt = Long.MAX_VALUE;
+
+    /**
+     * Creates a scheduler using the supplied executor as its timer.
+     *
+     * @param scheduledExecutorService the timer
+     */
+    public RelaxationScheduler(final ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = requireNonNull(scheduledExecutorService, "scheduledExecutorService");
+    }
+
+    /**
+     * Registers a ticket.
+     *
+     * @param steps the delays, measured from now, after which the ticket advances to levels 1, 2, and so on. Must be
+     *              in ascending order.
+     * @param onRelaxed called with the new level as each step elapses
+     * @return the {@link Registration}
+     */
+    public Registration register(final List<Duration> steps, final IntConsumer onRelaxed) {
+
+        requireNonNull(onRelaxed, "onRelaxed");
+
+        final var start = System.nanoTime();
+        final var offsets = steps.stream().mapToLong(Duration::toNanos).toArray();
+
+        for (int i = 1; i < offsets.length; ++i) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Steps must be in ascending order.");
+            }
+        }
+
+        final var ticket = new Ticket(start, offsets, onRelaxed);
+
+        if (offsets.length > 0) {
+            synchronized (this) {
+                ticket.due = start + offsets[0];
+                tickets.add(ticket);
+                arm();
+            }
+        }
+
+        return ticket;
+
+    }
+
+    private void fire() {
+
+        final var now = System.nanoTime();
+        final var relaxed = new ArrayList<Relaxed>();
+
+        synchronized (this) {
+
+            wakeup = null;
+            wakeupAt = Long.MAX_VALUE;
+
+            for (var ticket = tickets.peek(); ticket != null && ticket.due <= now; ticket = tickets.peek()) {
+
+                tickets.poll();
+
+                final var level = ++ticket.level;
+
+                if (level < ticket.offsets.length) {
+                    ticket.due = ticket.start + ticket.offsets[level];
+                    tickets.add(ticket);
+                }
+
+                relaxed.add(new Relaxed(ticket, level));
+
+            }
+
+            arm();
+
+        }
+
+        for (var r : relaxed) {
+
+            if (r.ticket().cancelled) {
+                continue;
+            }
+
+            try {
+                r.ticket().onRelaxed.accept(r.level());
+            } catch (Exception ex) {
+                logger.error("Caught exception relaxing ticket to level {}.", r.level(), ex);
+            }
+
+        }
+
+    }
+
+    private void arm() {
+
+        final var next = tickets.peek();
+
+        if (next == null || next.due >= wakeupAt) {
+            return;
+        }
+
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+
+        wakeupAt = next.due;
+        wakeup = scheduledExecutorService.schedule(this::fire, Math.max(0, next.due - System.nanoTime()), NANOSECONDS);
+
+    }
+
+    private synchronized void cancel(final Ticket ticket) {
+        ticket.cancelled = true;
+        if (tickets.remove(ticket) && tickets.isEmpty() && wakeup != null) {
+            wakeup.cancel(false);
+            wakeup = null;
+            wakeupAt = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * A registered ticket.
+     */
+    public interface Registration {
+
+        /**
+         * Gets the current relaxation level.
+         *
+         * @return the level
+         */
+        int getLevel();
+
+        /**
+         * Stops relaxing the ticket. It will not be notified again.
+         */
+        void cancel();
+
+    }
+
+    private record Relaxed(Ticket ticket, int level) {}
+
+    private class Ticket implements Registration {
+
+        private final long start;
+
+        private final long[] offsets;
+
+        private final IntConsumer onRelaxed;
+
+        private long due;
+
+        private volatile int level;
+
+        private volatile boolean cancelled;
+
+        private Ticket(final long start, final long[] offsets, final IntConsumer onRelaxed) {
+            this.start = start;
+            this.offsets = offsets;
+            this.onRelaxed = onRelaxed;
+        }
+
+        @Override
+        public int getLevel() {
+            return level;
+        }
+
+        @Override
+        public void cancel() {
+            RelaxationScheduler.this.cancel(this);
+        }
+
+    }
+
+}
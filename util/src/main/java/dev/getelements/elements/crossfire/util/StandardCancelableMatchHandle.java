@@ -3,81 +3,174 @@ package dev.getelements.elements.crossfire.util;
 import dev.getelements.elements.crossfire.api.MatchmakingAlgorithm;
 import dev.getelements.elements.crossfire.api.MatchmakingRequest;
 import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
-import dev.getelements.elements.sdk.dao.MultiMatchDao;
 import dev.getelements.elements.sdk.dao.Transaction;
 import dev.getelements.elements.sdk.model.match.MultiMatch;
 import jakarta.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 public abstract class StandardCancelableMatchHandle<RequestT extends HandshakeRequest> extends AbstractMatchHandle<RequestT> {
 
     private static final Logger logger = LoggerFactory.getLogger(StandardCancelableMatchHandle.class);
 
     private final Provider<Transaction> transactionProvider;
 
+    private final AtomicReference<RelaxationScheduler.Registration> relaxation = new AtomicReference<>();
+
+    private final MatchLifecycleWriter lifecycleWriter;
+
+    /**
+     * Creates a handle which writes lifecycle transitions through a writer of its own, running on the request's server.
+     * Transitions are not coalesced with those of other handles, and claims made by other handles cannot see this
+     * handle's pending departures.
+     *
+     * @param algorithm the algorithm
+     * @param request the request
+     * @param transactionProvider the transaction provider
+     * @deprecated use {@link #StandardCancelableMatchHandle(MatchmakingAlgorithm, MatchmakingRequest, Provider,
+     * MatchLifecycleWriter)} with a writer shared between handles
+     */
+    @Deprecated
     public StandardCancelableMatchHandle(
             final MatchmakingAlgorithm<?,?> algorithm,
             final MatchmakingRequest<RequestT> request,
             final Provider<Transaction> transactionProvider) {
+        this(algorithm, request, transactionProvider, new MatchLifecycleWriter(
+                transactionProvider,
+                request.getServer()::submit
+        ));
+    }
+
+    /**
+     * Creates a handle which writes lifecycle transitions through the supplied writer. Sharing one writer between
+     * handles allows transitions to the same match, and to different matches, to be written together.
+     *
+     * @param algorithm the algorithm
+     * @param request the request
+     * @param transactionProvider the transaction provider
+     * @param lifecycleWriter the lifecycle writer
+     */
+    public StandardCancelableMatchHandle(
+            final MatchmakingAlgorithm<?,?> algorithm,
+            final MatchmakingRequest<RequestT> request,
+            final Provider<Transaction> transactionProvider,
+            final MatchLifecycleWriter lifecycleWriter) {
         super(algorithm, request);
         this.transactionProvider = transactionProvider;
+        this.lifecycleWriter = lifecycleWriter;
     }
 
     @Override
     protected void onEndMatch(final CancelableMatchStateRecord<RequestT> state) {
-        getRequest()
-                .getServer()
-                .submit(() -> getTransactionProvider().get().performAndCloseV(txn -> {
-                    final var dao = txn.getDao(MultiMatchDao.class);
-                    dao.endMatch(state.result().getId());
-                }));
+        stopRelaxing();
+        getLifecycleWriter().end(state.result().getId());
     }
 
     @Override
     protected void onCloseMatch(final CancelableMatchStateRecord<RequestT> state) {
-        getRequest()
-                .getServer()
-                .submit(() -> getTransactionProvider().get().performAndCloseV(txn -> {
-                    final var dao = txn.getDao(MultiMatchDao.class);
-                    dao.closeMatch(state.result().getId());
-                }));
+        stopRelaxing();
+        getLifecycleWriter().close(state.result().getId());
     }
 
     @Override
     protected void onLeaveMatch(final CancelableMatchStateRecord<RequestT> state) {
-        getRequest()
-                .getServer()
-                .submit(() -> getTransactionProvider().get().performAndCloseV(txn -> {
-
-                    final var dao = txn.getDao(MultiMatchDao.class);
-                    final var result = dao.removeProfile(state.result().getId(), getRequest().getProfile());
-
-                    if (result.getCount() == 0) {
-                        // We are the last profile, delete the match. The database will not need a dangling or empty
-                        // match hanging around in the queue.
-                        dao.deleteMultiMatch(result.getId());
-                    }
+        stopRelaxing();
+        getLifecycleWriter().leave(state.result().getId(), getRequest().getProfile(), () -> onLeft(state));
+    }
 
-                }));
+    /**
+     * Called on the lifecycle writer's thread once the participant's departure from the match has been committed.
+     * Subclasses return the freed slot to their indexes here rather than in
+     * {@link #onLeaveMatch(CancelableMatchStateRecord)}, so that the slot is never offered while the database still
+     * counts the participant. The default implementation only logs.
+     *
+     * @param state the state result as part of the leave operation
+     */
+    protected void onLeft(final CancelableMatchStateRecord<RequestT> state) {
+        logger.debug("Left match {}: {}", state.result().getId(), getRequest());
     }
 
     @Override
     protected void onOpenMatch(final CancelableMatchStateRecord<RequestT> state) {
-        getTransactionProvider().get().performAndCloseV(txn -> {
-            final var dao = txn.getDao(MultiMatchDao.class);
-            final var match = dao.getMultiMatch(state.result().getId());
-            dao.openMatch(match.getId());
-        });
+        getLifecycleWriter().open(state.result().getId());
     }
 
     @Override
     protected void onResult(final CancelableMatchStateRecord<RequestT> state, final MultiMatch result) {
+        stopRelaxing();
         getRequest().success(this);
     }
 
+    @Override
+    protected void onTerminated(final CancelableMatchStateRecord<RequestT> state) {
+        stopRelaxing();
+        super.onTerminated(state);
+    }
+
+    /**
+     * Begins widening this handle's matching constraints using the supplied {@link RelaxationScheduler}. Subclasses
+     * typically call this from {@link #onMatching(CancelableMatchStateRecord)} and receive each new level through
+     * {@link #onRelaxed(int)}. Relaxation stops automatically once the handle is matched, leaves or terminates. A handle
+     * which opens a new match may instead start relaxing once it is matched, to widen the reach of that match while it
+     * waits to fill, in which case relaxation stops when the handle leaves or the match is closed or ended.
+     *
+     * @param scheduler the scheduler
+     * @param steps the delays after which the handle advances to each level
+     */
+    protected void relax(final RelaxationScheduler scheduler, final List<Duration> steps) {
+
+        final var registration = scheduler.register(steps, this::onRelaxed);
+        final var previous = relaxation.getAndSet(registration);
+
+        if (previous != null) {
+            previous.cancel();
+        }
+
+    }
+
+    /**
+     * Stops widening this handle's matching constraints.
+     */
+    protected void stopRelaxing() {
+
+        final var registration = relaxation.getAndSet(null);
+
+        if (registration != null) {
+            registration.cancel();
+        }
+
+    }
+
+    /**
+     * Gets the current relaxation level, or zero if the handle is not relaxing.
+     *
+     * @return the level
+     */
+    protected int getRelaxationLevel() {
+        final var registration = relaxation.get();
+        return registration == null ? 0 : registration.getLevel();
+    }
+
+    /**
+     * Called on the scheduler's thread when the handle advances to a new relaxation level. The default implementation
+     * only logs the new level.
+     *
+     * @param level the new level
+     */
+    protected void onRelaxed(final int level) {
+        logger.debug("Relaxed to level {}: {}", level, getRequest());
+    }
+
     public Provider<Transaction> getTransactionProvider() {
         return transactionProvider;
     }
 
+    public MatchLifecycleWriter getLifecycleWriter() {
+        return lifecycleWriter;
+    }
+
 }
@@ -0,0 +1,134 @@
+package dev.getelements.elements.crossfire.util;
+
+import dev.getelements.elements.crossfire.api.BatchMatchmaker;
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.HandshakeRequest;
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks how the {@link BatchMatchHandle} withdraws a request whose assignment was committed after it left.
+ */
+public class TestBatchMatchHandle {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWithdrawnAssignmentLeavesThroughWriter() {
+
+        final var tasks = new ConcurrentLinkedQueue<Runnable>();
+        final var operations = new ArrayList<String>();
+        final var assigned = new AtomicReference<Consumer<MultiMatch>>();
+        final var left = new ArrayList<String>();
+
+        final BatchMatchmaker batchMatchmaker = stub(BatchMatchmaker.class, (proxy, method, args) -> {
+            assigned.set((Consumer<MultiMatch>) args[2]);
+            return stub(BatchMatchmaker.Ticket.class, (p, m, a) -> false);
+        });
+
+        final MatchmakingRequest<HandshakeRequest> request = stub(MatchmakingRequest.class, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "getProfile" -> profile("alice");
+                    case "success", "failure" -> throw new AssertionError("Answered a withdrawn request: " + method.getName());
+                    default -> null;
+                }
+        );
+
+        final var writer = new MatchLifecycleWriter(() -> transaction(operations), tasks::add);
+
+        final var handle = new BatchMatchHandle<>(null, request, () -> transaction(operations), writer, batchMatchmaker) {
+            @Override
+            protected void onLeft(final CancelableMatchStateRecord<HandshakeRequest> state) {
+                left.add(state.result().getId());
+            }
+        };
+
+        handle.startMatching();
+        handle.leaveMatch();
+
+        // The batch committed the assignment before it saw the ticket was cancelled.
+        final var match = new MultiMatch();
+        match.setId("assigned");
+        assigned.get().accept(match);
+
+        assertTrue(operations.isEmpty(), "The removal must be queued on the writer.");
+        runTasks(tasks);
+
+        assertEquals(operations, List.of("remove assigned alice", "delete assigned"));
+        assertEquals(left, List.of("assigned"));
+
+    }
+
+    private static void runTasks(final Queue<Runnable> tasks) {
+        for (var task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    private static Profile profile(final String id) {
+        final var profile = new Profile();
+        profile.setId(id);
+        return profile;
+    }
+
+    /**
+     * Records each operation in the transaction. The withdrawn profile is the only one in its match.
+     */
+    @SuppressWarnings("unchecked")
+    private static Transaction transaction(final List<String> operations) {
+
+        final MultiMatchDao dao = stub(MultiMatchDao.class, (proxy, method, args) -> switch (method.getName()) {
+            case "removeProfile" -> {
+                operations.add("remove " + args[0] + " " + ((Profile) args[1]).getId());
+                final var match = new MultiMatch();
+                match.setId((String) args[0]);
+                match.setCount(0);
+                yield match;
+            }
+            case "deleteMultiMatch" -> {
+                operations.add("delete " + args[0]);
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        return stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDao" -> dao;
+            case "performAndCloseV" -> {
+                ((Consumer<Transaction>) args[0]).accept((Transaction) proxy);
+                yield null;
+            }
+            default -> null;
+        });
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
@@ -0,0 +1,311 @@
+package dev.getelements.elements.crossfire.util;
+
+import dev.getelements.elements.sdk.dao.MultiMatchDao;
+import dev.getelements.elements.sdk.dao.Transaction;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import dev.getelements.elements.sdk.model.profile.Profile;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Checks how the {@link MatchLifecycleWriter} coalesces and batches transitions, and how it falls back when a batch
+ * cannot be written.
+ */
+public class TestMatchLifecycleWriter {
+
+    private final List<List<String>> commits = Collections.synchronizedList(new ArrayList<>());
+
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    @BeforeMethod
+    public void resetDatabase() {
+        commits.clear();
+        failing.clear();
+        counts.clear();
+        tasks.clear();
+    }
+
+    @Test
+    public void testTransitionsCoalesced() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+
+        counts.put("ended", new AtomicInteger(3));
+        counts.put("left", new AtomicInteger(2));
+
+        writer.open("ended");
+        writer.close("ended");
+        writer.end("ended");
+        writer.open("ended");
+
+        writer.close("closed");
+        writer.open("closed");
+        writer.close("closed");
+
+        writer.leave("left", profile("alice"));
+        writer.leave("left", profile("bob"));
+
+        // Only one drain is scheduled however many transitions were queued.
+        assertEquals(tasks.size(), 1);
+        runTasks();
+        assertTrue(tasks.isEmpty());
+
+        assertEquals(commits, List.of(List.of(
+                "end ended",
+                "close closed",
+                "remove left alice",
+                "remove left bob",
+                "delete left"
+        )));
+
+    }
+
+    @Test
+    public void testFailedBatchRetriedIndividually() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+        final var written = new ArrayList<String>();
+
+        counts.put("good", new AtomicInteger(2));
+        counts.put("bad", new AtomicInteger(2));
+        failing.add("bad");
+
+        writer.leave("good", profile("alice"), () -> written.add("good"));
+        writer.leave("bad", profile("bob"), () -> written.add("bad"));
+        writer.end("other");
+        runTasks();
+
+        // The batch is rolled back as a whole, then each match is written on its own.
+        assertEquals(commits, List.of(
+                List.of("remove good alice"),
+                List.of("end other")
+        ));
+
+        assertEquals(written, List.of("good"), "Only committed removals call back.");
+
+    }
+
+    @Test
+    public void testRetiredMatchesReported() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+        final var retired = new ArrayList<String>();
+
+        writer.addRetiredListener(retired::add);
+
+        counts.put("emptied", new AtomicInteger(1));
+        counts.put("occupied", new AtomicInteger(2));
+        failing.add("rejected");
+
+        writer.end("ended");
+        writer.close("closed");
+        writer.leave("emptied", profile("alice"));
+        writer.leave("occupied", profile("bob"));
+        writer.end("rejected");
+        runTasks();
+
+        assertEquals(retired, List.of("ended", "emptied"), "Only committed ends and deletes are reported.");
+
+    }
+
+    @Test
+    public void testLeavingUntilCommitted() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+        final var leavingWhenWritten = new ArrayList<Boolean>();
+
+        counts.put("left", new AtomicInteger(2));
+        counts.put("rejected", new AtomicInteger(2));
+        failing.add("rejected");
+
+        writer.leave("left", profile("alice"), () -> leavingWhenWritten.add(writer.isLeaving("left", "alice")));
+        writer.leave("rejected", profile("bob"));
+
+        assertTrue(writer.isLeaving("left", "alice"));
+        assertTrue(writer.isLeaving("rejected", "bob"));
+        assertFalse(writer.isLeaving("left", "bob"));
+        assertFalse(writer.isLeaving("other", "alice"));
+
+        runTasks();
+
+        assertEquals(leavingWhenWritten, List.of(false), "The removal must be settled before its callback runs.");
+        assertFalse(writer.isLeaving("left", "alice"));
+        assertFalse(writer.isLeaving("rejected", "bob"), "A dropped removal must not block the match forever.");
+
+    }
+
+    @Test
+    public void testCallbackFailureDoesNotStopDrain() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+        final var written = new ArrayList<String>();
+
+        counts.put("first", new AtomicInteger(2));
+        counts.put("second", new AtomicInteger(2));
+
+        writer.leave("first", profile("alice"), () -> { throw new IllegalStateException("Callback failed."); });
+        writer.leave("second", profile("bob"), () -> written.add("second"));
+        runTasks();
+
+        assertEquals(written, List.of("second"));
+
+        writer.end("third");
+        runTasks();
+
+        assertEquals(commits.get(commits.size() - 1), List.of("end third"));
+
+    }
+
+    @Test
+    public void testTransitionAfterDrainSchedulesDrain() {
+
+        final var writer = new MatchLifecycleWriter(this::transaction, tasks::add);
+
+        counts.put("first", new AtomicInteger(2));
+
+        // Queued while the drain is writing, so the same drain picks it up without scheduling another.
+        writer.leave("first", profile("alice"), () -> writer.end("second"));
+        runTasks();
+
+        assertEquals(commits, List.of(List.of("remove first alice"), List.of("end second")));
+
+        // Once the drain has found the queue empty, the next transition must schedule a new one.
+        writer.end("third");
+
+        assertEquals(tasks.size(), 1);
+        runTasks();
+
+        assertEquals(commits.get(commits.size() - 1), List.of("end third"));
+
+    }
+
+    @Test
+    public void testNoTransitionStrandedAfterDrain() throws Exception {
+
+        final var executor = Executors.newSingleThreadExecutor();
+        final var writers = Executors.newFixedThreadPool(8);
+
+        try {
+
+            final var writer = new MatchLifecycleWriter(this::transaction, executor);
+            final var start = new CountDownLatch(1);
+            final var written = new CountDownLatch(8 * 500);
+
+            for (int thread = 0; thread < 8; ++thread) {
+
+                final var matchId = "match-" + thread;
+                counts.put(matchId, new AtomicInteger(Integer.MAX_VALUE));
+
+                writers.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; ++i) writer.leave(matchId, profile("profile-" + i), written::countDown);
+                    return null;
+                });
+
+            }
+
+            start.countDown();
+
+            // A transition queued while a drain is finishing must still be written, or this would never complete.
+            assertTrue(written.await(10, SECONDS), "Transitions were left unwritten: " + written.getCount());
+
+        } finally {
+            writers.shutdownNow();
+            executor.shutdownNow();
+        }
+
+    }
+
+    private void runTasks() {
+        for (var task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    private static Profile profile(final String id) {
+        final var profile = new Profile();
+        profile.setId(id);
+        return profile;
+    }
+
+    /**
+     * Records each operation in the transaction, and only keeps them if the transaction commits.
+     */
+    @SuppressWarnings("unchecked")
+    private Transaction transaction() {
+
+        final var operations = new ArrayList<String>();
+        final var removed = new HashMap<String, Integer>();
+
+        final MultiMatchDao dao = stub(MultiMatchDao.class, (proxy, method, args) -> {
+
+            final var matchId = (String) args[0];
+
+            if (failing.contains(matchId)) {
+                throw new IllegalStateException("Write rejected for " + matchId);
+            }
+
+            return switch (method.getName()) {
+                case "openMatch" -> record(operations, "open " + matchId);
+                case "closeMatch" -> record(operations, "close " + matchId);
+                case "endMatch" -> record(operations, "end " + matchId);
+                case "deleteMultiMatch" -> record(operations, "delete " + matchId);
+                case "removeProfile" -> {
+                    record(operations, "remove " + matchId + " " + ((Profile) args[1]).getId());
+                    final var match = new MultiMatch();
+                    match.setId(matchId);
+                    match.setCount(counts.get(matchId).get() - removed.merge(matchId, 1, Integer::sum));
+                    yield match;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+
+        });
+
+        return stub(Transaction.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getDao" -> dao;
+            case "performAndCloseV" -> {
+                ((Consumer<Transaction>) args[0]).accept((Transaction) proxy);
+                removed.forEach((matchId, count) -> counts.get(matchId).addAndGet(-count));
+                commits.add(List.copyOf(operations));
+                yield null;
+            }
+            default -> null;
+        });
+
+    }
+
+    private static MultiMatch record(final List<String> operations, final String operation) {
+        operations.add(operation);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+}
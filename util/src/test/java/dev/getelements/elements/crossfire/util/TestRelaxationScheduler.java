@@ -0,0 +1,189 @@
+package dev.getelements.elements.crossfire.util;
+
+import dev.getelements.elements.crossfire.api.MatchmakingRequest;
+import dev.getelements.elements.crossfire.api.model.handshake.FindHandshakeRequest;
+import dev.getelements.elements.sdk.model.match.MultiMatch;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.*;
+
+/**
+ * Checks level progression and cancellation in the {@link RelaxationScheduler}, and that a
+ * {@link StandardCancelableMatchHandle} stops relaxing once it leaves the matching phase.
+ */
+public class TestRelaxationScheduler {
+
+    private static final List<Duration> STEPS = List.of(
+            Duration.ofMillis(20),
+            Duration.ofMillis(40),
+            Duration.ofMillis(60)
+    );
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private RelaxationScheduler scheduler;
+
+    @BeforeMethod
+    public void setupScheduler() {
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new RelaxationScheduler(scheduledExecutorService);
+    }
+
+    @AfterMethod
+    public void shutdownScheduler() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void testLevelProgression() throws Exception {
+
+        final var levels = new LinkedBlockingQueue<Integer>();
+        final var registration = scheduler.register(STEPS, levels::add);
+
+        assertEquals(registration.getLevel(), 0);
+        assertEquals(levels.poll(5, SECONDS).intValue(), 1);
+        assertEquals(levels.poll(5, SECONDS).intValue(), 2);
+        assertEquals(levels.poll(5, SECONDS).intValue(), 3);
+        assertEquals(registration.getLevel(), 3);
+
+        // The last step has elapsed, so the ticket is never notified again.
+        assertNull(levels.poll(100, TimeUnit.MILLISECONDS));
+
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+
+        final var levels = new LinkedBlockingQueue<Integer>();
+        final var cancelled = scheduler.register(STEPS, levels::add);
+        final var kept = scheduler.register(STEPS.subList(0, 1), level -> levels.add(-level));
+
+        cancelled.cancel();
+
+        assertEquals(levels.poll(5, SECONDS).intValue(), -1);
+        assertNull(levels.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(cancelled.getLevel(), 0);
+        assertEquals(kept.getLevel(), 1);
+
+    }
+
+    @Test
+    public void testCallbackRunsOutsideLock() throws Exception {
+
+        final var inCallback = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var returned = new CountDownLatch(1);
+
+        scheduler.register(STEPS.subList(0, 1), level -> {
+            inCallback.countDown();
+            await(release);
+            returned.countDown();
+        });
+
+        assertTrue(inCallback.await(5, SECONDS));
+
+        try {
+            // Registering takes the scheduler's lock, which must not be held while the callback blocks.
+            final var registered = CompletableFuture.supplyAsync(() -> scheduler.register(STEPS, level -> {}));
+            assertNotNull(registered.get(5, SECONDS));
+        } finally {
+            release.countDown();
+        }
+
+        assertTrue(returned.await(5, SECONDS));
+
+    }
+
+    @Test
+    public void testHandleStopsRelaxingOnResult() throws Exception {
+
+        final var handle = new RelaxingHandle(scheduler);
+
+        handle.startMatching();
+        assertEquals(handle.levels.poll(5, SECONDS).intValue(), 1);
+
+        handle.match(new MultiMatch());
+
+        assertNull(handle.levels.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(handle.level(), 0);
+
+    }
+
+    @Test
+    public void testHandleStopsRelaxingOnLeave() throws Exception {
+
+        final var handle = new RelaxingHandle(scheduler);
+
+        handle.startMatching();
+        handle.leaveMatch();
+
+        assertNull(handle.levels.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(handle.level(), 0);
+
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MatchmakingRequest<FindHandshakeRequest> request() {
+        return (MatchmakingRequest<FindHandshakeRequest>) Proxy.newProxyInstance(
+                MatchmakingRequest.class.getClassLoader(),
+                new Class<?>[]{MatchmakingRequest.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "success" -> null;
+                    case "toString" -> "request";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    /**
+     * Relaxes through the test steps while matching and records each level it reaches.
+     */
+    private static class RelaxingHandle extends StandardCancelableMatchHandle<FindHandshakeRequest> {
+
+        private final BlockingQueue<Integer> levels = new LinkedBlockingQueue<>();
+
+        private final RelaxationScheduler scheduler;
+
+        private RelaxingHandle(final RelaxationScheduler scheduler) {
+            super(null, request(), null, null);
+            this.scheduler = scheduler;
+        }
+
+        private void match(final MultiMatch match) {
+            setResult(match);
+        }
+
+        private int level() {
+            return getRelaxationLevel();
+        }
+
+        @Override
+        protected void onMatching(final CancelableMatchStateRecord<FindHandshakeRequest> state) {
+            relax(scheduler, STEPS);
+        }
+
+        @Override
+        protected void onRelaxed(final int level) {
+            levels.add(level);
+        }
+
+    }
+
+}